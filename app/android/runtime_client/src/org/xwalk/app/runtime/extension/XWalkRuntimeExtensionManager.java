@@ -12,6 +12,7 @@ import android.content.res.Resources;
 import android.content.res.Resources.NotFoundException;
 import android.util.Log;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -199,10 +200,15 @@ public class XWalkRuntimeExtensionManager implements XWalkExtensionContextClient
                 AssetManager assetManager = context.getAssets();
                 inputStream = assetManager.open(fileName);
             }
-            int size = inputStream.available();
-            byte[] buffer = new byte[size];
-            inputStream.read(buffer);
-            result = new String(buffer);
+            // available() is only a hint, read until the end and decode once.
+            ByteArrayOutputStream bytes =
+                    new ByteArrayOutputStream(Math.max(inputStream.available(), 1024));
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, length);
+            }
+            result = bytes.toString("UTF-8");
         } finally {
             if (inputStream != null) {
                 inputStream.close();
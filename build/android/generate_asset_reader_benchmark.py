@@ -0,0 +1,69 @@
+#!/usr/bin/env python
+
+# Copyright (c) 2015 Intel Corporation. All rights reserved.
+# Use of this source code is governed by a BSD-style license that can be
+# found in the LICENSE file.
+
+"""Generates the assets read by AssetReaderBenchmarkTest.
+
+Both assets hold the same JS bundle of about 1MB. aapt compresses the .js
+one, which is then read as a stream, and stores the .png one uncompressed,
+which is then mapped. manifest.json is a manifest of about 1MB, read through
+AndroidProtocolHandler.getUrlContent() like the manifests of packaged apps.
+"""
+
+import json
+import optparse
+import os
+import sys
+
+FILE_SIZE = 1024 * 1024
+
+# The multibyte characters make fixed size chunks split UTF-8 sequences.
+LINE = u'function f(a, b) { return a + b; } // \u5e94\u7528 \u00e9\u00e8\n'
+
+OUTPUT_FILES = ['compressed.js', 'stored.png']
+
+MANIFEST_FILE = 'manifest.json'
+
+
+def main(argv):
+  parser = optparse.OptionParser()
+  info = ('The directory to write the assets to')
+  parser.add_option('--output-dir', help=info)
+  options, _ = parser.parse_args(argv[1:])
+
+  if not options.output_dir:
+    parser.error('--output-dir is needed. See --help for help info.')
+
+  if not os.path.isdir(options.output_dir):
+    os.makedirs(options.output_dir)
+
+  line = LINE.encode('utf-8')
+  content = line * (FILE_SIZE // len(line))
+  for name in OUTPUT_FILES:
+    with open(os.path.join(options.output_dir, name), 'wb') as f:
+      f.write(content)
+
+  write_manifest(os.path.join(options.output_dir, MANIFEST_FILE))
+
+
+def write_manifest(path):
+  manifest = {
+    'name': u'Asset reader benchmark \u5e94\u7528',
+    'start_url': 'index.html',
+    'xwalk_launch_screen': {'ready_when': 'complete'},
+    'icons': [],
+  }
+  # Grow the icons, a batch at a time, until the manifest reaches FILE_SIZE.
+  icons = manifest['icons']
+  while len(json.dumps(manifest, indent=2)) < FILE_SIZE:
+    for index in range(len(icons), len(icons) + 500):
+      icons.append({'src': 'icons/icon_%d.png' % index,
+                    'sizes': '%dx%d' % (index, index)})
+  with open(path, 'w') as f:
+    json.dump(manifest, f, indent=2)
+
+
+if __name__ == '__main__':
+  sys.exit(main(sys.argv))
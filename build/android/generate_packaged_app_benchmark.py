@@ -0,0 +1,90 @@
+#!/usr/bin/env python
+
+# Copyright (c) 2015 Intel Corporation. All rights reserved.
+# Use of this source code is governed by a BSD-style license that can be
+# found in the LICENSE file.
+
+"""Generates the packaged app loaded by AssetLoadBenchmarkTest.
+
+The app is an index.html page loading IMAGE_COUNT PNG images of about 1MB
+each. aapt stores PNG files uncompressed, so they are read through the mapped
+asset path, while the page itself is compressed and read as a stream.
+"""
+
+import optparse
+import os
+import struct
+import sys
+import zlib
+
+IMAGE_COUNT = 5
+IMAGE_SIZE = 512
+
+INDEX_HTML = """<!DOCTYPE html>
+<html>
+<head>
+<title>loading</title>
+<script>
+var pending = %(count)d;
+function onImageLoaded() {
+  if (--pending == 0)
+    document.title = 'loaded';
+}
+function onImageError() {
+  document.title = 'error';
+}
+</script>
+</head>
+<body>
+%(images)s
+</body>
+</html>
+"""
+
+IMAGE_TAG = ('<img src="image_%d.png" onload="onImageLoaded()" '
+             'onerror="onImageError()">')
+
+
+def PngChunk(chunk_type, data):
+  chunk = struct.pack('>I', len(data)) + chunk_type + data
+  return chunk + struct.pack('>I', zlib.crc32(chunk_type + data) & 0xffffffff)
+
+
+def GeneratePng(seed):
+  # Each row starts with the "None" filter byte. The pixels are stored
+  # without compression so that every image has the same, known size.
+  rows = []
+  for y in range(IMAGE_SIZE):
+    row = bytearray([0])
+    for x in range(IMAGE_SIZE):
+      row.extend([(x + seed) & 0xff, (y + seed) & 0xff, (x ^ y) & 0xff, 0xff])
+    rows.append(bytes(row))
+  header = struct.pack('>IIBBBBB', IMAGE_SIZE, IMAGE_SIZE, 8, 6, 0, 0, 0)
+  return (b'\x89PNG\r\n\x1a\n' +
+          PngChunk(b'IHDR', header) +
+          PngChunk(b'IDAT', zlib.compress(b''.join(rows), 0)) +
+          PngChunk(b'IEND', b''))
+
+
+def main(argv):
+  parser = optparse.OptionParser()
+  info = ('The directory to write the packaged app to')
+  parser.add_option('--output-dir', help=info)
+  options, _ = parser.parse_args(argv[1:])
+
+  if not options.output_dir:
+    parser.error('--output-dir is needed. See --help for help info.')
+
+  if not os.path.isdir(options.output_dir):
+    os.makedirs(options.output_dir)
+
+  images = '\n'.join(IMAGE_TAG % i for i in range(IMAGE_COUNT))
+  with open(os.path.join(options.output_dir, 'index.html'), 'w') as f:
+    f.write(INDEX_HTML % {'count': IMAGE_COUNT, 'images': images})
+  for i in range(IMAGE_COUNT):
+    with open(os.path.join(options.output_dir, 'image_%d.png' % i), 'wb') as f:
+      f.write(GeneratePng(i))
+
+
+if __name__ == '__main__':
+  sys.exit(main(sys.argv))
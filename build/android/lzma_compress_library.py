@@ -0,0 +1,94 @@
+#!/usr/bin/env python
+
+# Copyright (c) 2015 Intel Corporation. All rights reserved.
+# Use of this source code is governed by a BSD-style license that can be
+# found in the LICENSE file.
+
+"""Compresses a library into independently decodable LZMA blocks.
+
+The output starts with a little-endian header, read back by
+XWalkCompressUtil on the device:
+
+  char[4]  magic "XWLZ"
+  uint32   format version (1)
+  uint32   number of blocks
+  uint64   size of the uncompressed library
+  then, for each block:
+  uint32   uncompressed size of the block
+  uint32   compressed size of the block
+
+followed by the blocks, each one a complete .lzma stream as written by
+"lzma -z", so that they can be decompressed in parallel.
+"""
+
+import optparse
+import os
+import shutil
+import struct
+import subprocess
+import sys
+import tempfile
+
+MAGIC = b'XWLZ'
+FORMAT_VERSION = 1
+DEFAULT_BLOCK_SIZE = 1024 * 1024
+
+
+def CompressBlock(data, temp_dir, index):
+  block_path = os.path.join(temp_dir, 'block%d' % index)
+  with open(block_path, 'wb') as block:
+    block.write(data)
+  # Compressing a file, not a pipe, keeps the size in the .lzma header.
+  subprocess.check_call(['lzma', '-z', '-f', block_path])
+  with open(block_path + '.lzma', 'rb') as compressed:
+    return compressed.read()
+
+
+def CompressLibrary(input_path, output_path, block_size):
+  temp_dir = tempfile.mkdtemp()
+  try:
+    blocks = []
+    with open(input_path, 'rb') as library:
+      while True:
+        data = library.read(block_size)
+        if not data:
+          break
+        blocks.append((len(data), CompressBlock(data, temp_dir, len(blocks))))
+  finally:
+    shutil.rmtree(temp_dir)
+
+  total_size = sum(raw_size for raw_size, _ in blocks)
+  with open(output_path, 'wb') as output:
+    output.write(MAGIC)
+    output.write(struct.pack('<IIQ', FORMAT_VERSION, len(blocks), total_size))
+    for raw_size, compressed in blocks:
+      output.write(struct.pack('<II', raw_size, len(compressed)))
+    for _, compressed in blocks:
+      output.write(compressed)
+
+
+def main():
+  parser = optparse.OptionParser()
+  parser.add_option('--input',
+                    help='The library to compress.',
+                    type='string')
+  parser.add_option('--output',
+                    help='The compressed file to write.',
+                    type='string')
+  parser.add_option('--block-size',
+                    help='The uncompressed size of each block in bytes.',
+                    type='int',
+                    default=DEFAULT_BLOCK_SIZE)
+  options, _ = parser.parse_args()
+
+  if not options.input or not os.path.isfile(options.input):
+    return 1
+  if not options.output or options.block_size <= 0:
+    return 1
+
+  CompressLibrary(options.input, options.output, options.block_size)
+  return 0
+
+
+if __name__ == '__main__':
+  sys.exit(main())
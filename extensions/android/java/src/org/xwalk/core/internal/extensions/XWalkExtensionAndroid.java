@@ -6,10 +6,19 @@ package org.xwalk.core.internal.extensions;
 
 import android.util.Log;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.chromium.base.CalledByNative;
 import org.chromium.base.JNINamespace;
+import org.json.JSONException;
+import org.json.JSONObject;
 
 /**
  * This class is the implementation class for XWalkExtension by calling internal
@@ -18,13 +27,81 @@ import org.chromium.base.JNINamespace;
 @JNINamespace("xwalk::extensions")
 public abstract class XWalkExtensionAndroid {
     private final static String TAG = "XWalkExtensionAndroid";
+
+    /**
+     * onMessage() is called on the extension thread shared by all extensions.
+     */
+    public final static int DISPATCH_SHARED_THREAD = 0;
+    /**
+     * onMessage() is called, in order, on a thread of the extension's own.
+     */
+    public final static int DISPATCH_SERIAL = 1;
+    /**
+     * onMessage() is called concurrently by a bounded pool of threads of the
+     * extension's own, messages may then be handled out of order.
+     */
+    public final static int DISPATCH_CONCURRENT = 2;
+
+    /**
+     * The time in milliseconds after which a sync message not replied to
+     * gets an empty reply, unblocking the page.
+     */
+    public final static int DEFAULT_SYNC_REPLY_TIMEOUT = 10000;
+
     private long mXWalkExtension;
+    private final String mName;
+
+    private final Object mDispatchLock = new Object();
+    private int mDispatchPolicy = DISPATCH_SHARED_THREAD;
+    private ExecutorService mExecutor;
+    private volatile int mSyncReplyTimeout = DEFAULT_SYNC_REPLY_TIMEOUT;
+
+    // Message metrics, the times are in nanoseconds.
+    private final AtomicInteger mQueueDepth = new AtomicInteger();
+    private final Object mStatsLock = new Object();
+    private int mMaxQueueDepth;
+    private long mMessageCount;
+    private long mTotalWaitTime;
+    private long mMaxWaitTime;
+    private long mTotalHandleTime;
+    private long mMaxHandleTime;
+
+    // Messages of a stand-in extension, see holdMessages(). They are held in
+    // mHeldMessages until forwardMessagesTo() sets mMessageTarget.
+    private interface HeldMessage {
+        void receiveBy(XWalkExtensionAndroid extension);
+
+        // Called instead of receiveBy() when the message is never handled.
+        void drop();
+    }
+
+    // A native binary message, released exactly once whether it is handled,
+    // fails to be dispatched or is dropped.
+    private static class NativeBinaryMessage {
+        private final AtomicLong mMessage;
+
+        NativeBinaryMessage(long message) {
+            mMessage = new AtomicLong(message);
+        }
+
+        void release() {
+            long message = mMessage.getAndSet(0);
+            if (message != 0) nativeReleaseBinaryMessage(message);
+        }
+    }
+
+    private volatile boolean mForwarding;
+    private final Object mForwardLock = new Object();
+    private ArrayList<HeldMessage> mHeldMessages;
+    private XWalkExtensionAndroid mMessageTarget;
 
     public XWalkExtensionAndroid(String name, String jsApi) {
+        mName = name;
         mXWalkExtension = nativeGetOrCreateExtension(name, jsApi, null);
     }
 
     public XWalkExtensionAndroid(String name, String jsApi, String[] entryPoints) {
+        mName = name;
         mXWalkExtension = nativeGetOrCreateExtension(name, jsApi, entryPoints);
     }
 
@@ -36,6 +113,329 @@ public abstract class XWalkExtensionAndroid {
 
         nativeDestroyExtension(mXWalkExtension);
         mXWalkExtension = 0;
+
+        synchronized (mDispatchLock) {
+            if (mExecutor != null) mExecutor.shutdown();
+            mExecutor = null;
+            mDispatchPolicy = DISPATCH_SHARED_THREAD;
+        }
+
+        // The messages still held are never forwarded now.
+        ArrayList<HeldMessage> messages;
+        synchronized (mForwardLock) {
+            messages = mHeldMessages;
+            mHeldMessages = null;
+            mMessageTarget = null;
+            mForwarding = false;
+        }
+        if (messages != null) dropMessages(messages, 0);
+    }
+
+    /**
+     * Set the thread onMessage() is called on, so that a slow extension
+     * doesn't hold back the messages of the others. Messages already queued
+     * are still handled with the previous policy. Sync messages are
+     * dispatched the same way, see onDeferredSyncMessage().
+     * @param policy one of DISPATCH_SHARED_THREAD, DISPATCH_SERIAL and
+     *               DISPATCH_CONCURRENT.
+     * @param poolSize the number of threads for DISPATCH_CONCURRENT.
+     */
+    public void setMessageDispatchPolicy(int policy, int poolSize) {
+        if (policy < DISPATCH_SHARED_THREAD || policy > DISPATCH_CONCURRENT) {
+            throw new IllegalArgumentException("Unknown dispatch policy: " + policy);
+        }
+        if (policy == DISPATCH_CONCURRENT && poolSize < 1) {
+            throw new IllegalArgumentException("Invalid pool size: " + poolSize);
+        }
+
+        synchronized (mDispatchLock) {
+            if (mExecutor != null) mExecutor.shutdown();
+            mExecutor = null;
+            mDispatchPolicy = policy;
+
+            final String threadName = "XWalkExtension-" + mName;
+            ThreadFactory factory = new ThreadFactory() {
+                private final AtomicInteger mCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    return new Thread(runnable, threadName + "-" + mCount.incrementAndGet());
+                }
+            };
+            if (policy == DISPATCH_SERIAL) {
+                mExecutor = Executors.newSingleThreadExecutor(factory);
+            } else if (policy == DISPATCH_CONCURRENT) {
+                mExecutor = Executors.newFixedThreadPool(poolSize, factory);
+            }
+        }
+    }
+
+    public int getMessageDispatchPolicy() {
+        synchronized (mDispatchLock) {
+            return mDispatchPolicy;
+        }
+    }
+
+    /**
+     * Set the time the page waits for the reply to a sync message before it
+     * gets an empty one.
+     * @param timeout the time in milliseconds.
+     */
+    public void setSyncReplyTimeout(int timeout) {
+        if (timeout < 1) {
+            throw new IllegalArgumentException("Invalid sync reply timeout: " + timeout);
+        }
+        mSyncReplyTimeout = timeout;
+    }
+
+    public int getSyncReplyTimeout() {
+        return mSyncReplyTimeout;
+    }
+
+    /**
+     * Returns the message metrics as a JSON object: the current and maximum
+     * "queueDepth", the "messageCount", and the average and maximum time in
+     * microseconds messages waited before being handled ("averageWaitTime",
+     * "maxWaitTime") and were handled for ("averageHandleTime",
+     * "maxHandleTime").
+     */
+    public String getMessageStats() {
+        JSONObject stats = new JSONObject();
+        try {
+            synchronized (mStatsLock) {
+                long count = Math.max(mMessageCount, 1);
+                stats.put("dispatchPolicy", getMessageDispatchPolicy());
+                stats.put("queueDepth", mQueueDepth.get());
+                stats.put("maxQueueDepth", mMaxQueueDepth);
+                stats.put("messageCount", mMessageCount);
+                stats.put("averageWaitTime", mTotalWaitTime / count / 1000);
+                stats.put("maxWaitTime", mMaxWaitTime / 1000);
+                stats.put("averageHandleTime", mTotalHandleTime / count / 1000);
+                stats.put("maxHandleTime", mMaxHandleTime / 1000);
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, e.toString());
+        }
+        return stats.toString();
+    }
+
+    /**
+     * Makes this extension stand for another one, which isn't created yet.
+     * The messages received from now on are held, onMessageHeld() is called
+     * for each of them, until forwardMessagesTo() is called.
+     */
+    protected void holdMessages() {
+        synchronized (mForwardLock) {
+            if (mHeldMessages == null) mHeldMessages = new ArrayList<HeldMessage>();
+            mMessageTarget = null;
+            mForwarding = true;
+        }
+    }
+
+    /**
+     * Called on the extension thread when a message is held, see
+     * holdMessages().
+     */
+    protected void onMessageHeld() {
+    }
+
+    /**
+     * Hands the held messages, in order, then all the messages received
+     * afterwards to |target|, which handles them with its own dispatch
+     * policy and handlers. Passing this extension lets it handle them
+     * itself. Held messages dispatched to the shared extension thread are
+     * handled on the calling thread.
+     */
+    protected void forwardMessagesTo(XWalkExtensionAndroid target) {
+        while (true) {
+            ArrayList<HeldMessage> messages;
+            synchronized (mForwardLock) {
+                messages = mHeldMessages;
+                if (messages == null || messages.isEmpty()) {
+                    mHeldMessages = null;
+                    mMessageTarget = target != this ? target : null;
+                    mForwarding = mMessageTarget != null;
+                    return;
+                }
+                // Messages received meanwhile are held after these ones.
+                mHeldMessages = new ArrayList<HeldMessage>();
+            }
+            for (int i = 0; i < messages.size(); ++i) {
+                try {
+                    messages.get(i).receiveBy(target);
+                } catch (RuntimeException e) {
+                    dropMessages(messages, i + 1);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static void dropMessages(ArrayList<HeldMessage> messages, int start) {
+        for (int i = start; i < messages.size(); ++i) {
+            messages.get(i).drop();
+        }
+    }
+
+    // Returns the extension receiving |message|, or null if it was held.
+    private XWalkExtensionAndroid getReceiver(HeldMessage message) {
+        synchronized (mForwardLock) {
+            if (mHeldMessages == null) {
+                return mMessageTarget != null ? mMessageTarget : this;
+            }
+            mHeldMessages.add(message);
+        }
+        onMessageHeld();
+        return null;
+    }
+
+    @CalledByNative
+    private void handleMessage(final int instanceID, final String message) {
+        XWalkExtensionAndroid receiver = this;
+        if (mForwarding) {
+            receiver = getReceiver(new HeldMessage() {
+                @Override
+                public void receiveBy(XWalkExtensionAndroid extension) {
+                    extension.receiveMessage(instanceID, message);
+                }
+
+                @Override
+                public void drop() {
+                }
+            });
+            if (receiver == null) return;
+        }
+        receiver.receiveMessage(instanceID, message);
+    }
+
+    // Returns the time in milliseconds the native side waits for the reply.
+    @CalledByNative
+    private int handleSyncMessage(final int instanceID, final int replyID,
+            final String message) {
+        XWalkExtensionAndroid receiver = this;
+        if (mForwarding) {
+            receiver = getReceiver(new HeldMessage() {
+                @Override
+                public void receiveBy(XWalkExtensionAndroid extension) {
+                    extension.receiveSyncMessage(instanceID, replyID, message);
+                }
+
+                @Override
+                public void drop() {
+                    // The native side replies once the timeout expires.
+                }
+            });
+            if (receiver == null) return mSyncReplyTimeout;
+        }
+        return receiver.receiveSyncMessage(instanceID, replyID, message);
+    }
+
+    // |message| wraps the native message, which is released once
+    // onBinaryMessage() returned, or once the message is dropped.
+    @CalledByNative
+    private void handleBinaryMessage(final int instanceID, final ByteBuffer message,
+            long nativeMessage) {
+        final NativeBinaryMessage binaryMessage = new NativeBinaryMessage(nativeMessage);
+        XWalkExtensionAndroid receiver = this;
+        if (mForwarding) {
+            receiver = getReceiver(new HeldMessage() {
+                @Override
+                public void receiveBy(XWalkExtensionAndroid extension) {
+                    extension.receiveBinaryMessage(instanceID, message, binaryMessage);
+                }
+
+                @Override
+                public void drop() {
+                    binaryMessage.release();
+                }
+            });
+            if (receiver == null) return;
+        }
+        receiver.receiveBinaryMessage(instanceID, message, binaryMessage);
+    }
+
+    private void receiveMessage(final int instanceID, final String message) {
+        dispatchMessage(new Runnable() {
+            @Override
+            public void run() {
+                onMessage(instanceID, message);
+            }
+        });
+    }
+
+    private int receiveSyncMessage(final int instanceID, final int replyID,
+            final String message) {
+        dispatchMessage(new Runnable() {
+            @Override
+            public void run() {
+                onDeferredSyncMessage(instanceID, replyID, message);
+            }
+        });
+        return mSyncReplyTimeout;
+    }
+
+    private void receiveBinaryMessage(final int instanceID, final ByteBuffer message,
+            final NativeBinaryMessage nativeMessage) {
+        try {
+            dispatchMessage(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        onBinaryMessage(instanceID, message);
+                    } finally {
+                        nativeMessage.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // The handler may never run, releasing twice does nothing.
+            nativeMessage.release();
+            throw e;
+        }
+    }
+
+    // Runs |handler| according to the dispatch policy.
+    private void dispatchMessage(final Runnable handler) {
+        final long queuedTime = System.nanoTime();
+        synchronized (mDispatchLock) {
+            if (mExecutor != null) {
+                int depth = mQueueDepth.incrementAndGet();
+                synchronized (mStatsLock) {
+                    mMaxQueueDepth = Math.max(mMaxQueueDepth, depth);
+                }
+                try {
+                    mExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            mQueueDepth.decrementAndGet();
+                            runMessageHandler(handler, queuedTime);
+                        }
+                    });
+                    return;
+                } catch (RejectedExecutionException e) {
+                    mQueueDepth.decrementAndGet();
+                    Log.w(TAG, "Unable to queue message, handling it on the extension thread");
+                }
+            }
+        }
+        runMessageHandler(handler, queuedTime);
+    }
+
+    private void runMessageHandler(Runnable handler, long queuedTime) {
+        long startTime = System.nanoTime();
+        try {
+            handler.run();
+        } finally {
+            long waitTime = startTime - queuedTime;
+            long handleTime = System.nanoTime() - startTime;
+            synchronized (mStatsLock) {
+                ++mMessageCount;
+                mTotalWaitTime += waitTime;
+                mMaxWaitTime = Math.max(mMaxWaitTime, waitTime);
+                mTotalHandleTime += handleTime;
+                mMaxHandleTime = Math.max(mMaxHandleTime, handleTime);
+            }
+        }
     }
 
     public void postMessage(int instanceID, String message) {
@@ -47,6 +447,44 @@ public abstract class XWalkExtensionAndroid {
         nativePostMessage(mXWalkExtension, instanceID, message);
     }
 
+    /**
+     * Posts the bytes of |message| between its position and its limit. They
+     * are received by JavaScript as an ArrayBuffer. The position of |message|
+     * is not changed. Direct buffers are read without an extra copy.
+     */
+    public void postBinaryMessage(int instanceID, ByteBuffer message) {
+        if (mXWalkExtension == 0) {
+            Log.e(TAG, "Can not post a message to an invalid extension!");
+            return;
+        }
+
+        if (message.isDirect()) {
+            nativePostBinaryMessage(mXWalkExtension, instanceID, message,
+                    message.position(), message.remaining());
+        } else if (message.hasArray()) {
+            nativePostBinaryMessageArray(mXWalkExtension, instanceID, message.array(),
+                    message.arrayOffset() + message.position(), message.remaining());
+        } else {
+            byte[] bytes = new byte[message.remaining()];
+            message.duplicate().get(bytes);
+            nativePostBinaryMessageArray(mXWalkExtension, instanceID, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Reply to the sync message identified by |replyID|, see
+     * onDeferredSyncMessage(). It can be called on any thread. Replies
+     * coming after the timeout are dropped.
+     */
+    public void sendSyncReply(int instanceID, int replyID, String reply) {
+        if (mXWalkExtension == 0) {
+            Log.e(TAG, "Can not send a sync reply from an invalid extension!");
+            return;
+        }
+
+        nativeSendSyncReply(mXWalkExtension, instanceID, replyID, reply != null ? reply : "");
+    }
+
     public void broadcastMessage(String message) {
         if (mXWalkExtension == 0) {
             Log.e(TAG, "Can not broadcast message to an invalid extension!");
@@ -56,14 +494,39 @@ public abstract class XWalkExtensionAndroid {
         nativeBroadcastMessage(mXWalkExtension, message);
     }
 
-    @CalledByNative
     public abstract void onMessage(int instanceID, String message);
 
-    @CalledByNative
+    /**
+     * Called with the ArrayBuffers and typed arrays posted by JavaScript.
+     * |message| is a direct buffer wrapping the received bytes, it is only
+     * valid until this method returns.
+     */
+    public void onBinaryMessage(int instanceID, ByteBuffer message) {
+        Log.w(TAG, "Binary message ignored by extension " + mName);
+    }
+
     public abstract String onSyncMessage(int instanceID, String message);
 
+    /**
+     * Called with the sync messages, according to the dispatch policy. The
+     * page is blocked until sendSyncReply() is called with |replyID|, or the
+     * sync reply timeout expires. The default implementation replies with
+     * the value returned by onSyncMessage(); override it to reply later, e.g.
+     * once some slow work is done on another thread.
+     */
+    public void onDeferredSyncMessage(int instanceID, int replyID, String message) {
+        sendSyncReply(instanceID, replyID, onSyncMessage(instanceID, message));
+    }
+
     private native long nativeGetOrCreateExtension(String name, String jsApi, String[] entryPoints);
     private native void nativePostMessage(long nativeXWalkExtensionAndroid, int instanceID, String message);
+    private native void nativePostBinaryMessage(long nativeXWalkExtensionAndroid, int instanceID,
+            ByteBuffer message, int offset, int length);
+    private native void nativePostBinaryMessageArray(long nativeXWalkExtensionAndroid,
+            int instanceID, byte[] message, int offset, int length);
+    private native void nativeSendSyncReply(long nativeXWalkExtensionAndroid, int instanceID,
+            int replyID, String reply);
     private native void nativeBroadcastMessage(long nativeXWalkExtensionAndroid, String message);
     private native void nativeDestroyExtension(long nativeXWalkExtensionAndroid);
+    private static native void nativeReleaseBinaryMessage(long message);
 }
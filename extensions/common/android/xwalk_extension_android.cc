@@ -10,6 +10,8 @@
 #include "base/android/jni_array.h"
 #include "base/bind.h"
 #include "base/logging.h"
+#include "base/thread_task_runner_handle.h"
+#include "base/time/time.h"
 #include "jni/XWalkExtensionAndroid_jni.h"
 #include "xwalk/extensions/common/xwalk_extension.h"
 #include "xwalk/runtime/browser/xwalk_browser_main_parts_android.h"
@@ -50,6 +52,7 @@ XWalkExtensionAndroid::~XWalkExtensionAndroid() {
 }
 
 bool XWalkExtensionAndroid::is_valid() {
+  base::AutoLock lock(instances_lock_);
   if (instances_.empty() || javascript_api().empty()) {
     return false;
   }
@@ -57,31 +60,173 @@ bool XWalkExtensionAndroid::is_valid() {
   return true;
 }
 
-void XWalkExtensionAndroid::PostMessage(JNIEnv* env, jobject obj,
-                                       jint instance, jstring msg) {
-  if (!is_valid()) return;
-
+bool XWalkExtensionAndroid::GetInstanceTarget(int instance,
+                                              InstanceTarget* target) {
+  base::AutoLock lock(instances_lock_);
   InstanceMap::iterator it = instances_.find(instance);
   if (it == instances_.end()) {
     LOG(WARNING) << "Instance(" << instance << ") not found ";
+    return false;
+  }
+
+  *target = it->second;
+  return true;
+}
+
+// static
+void XWalkExtensionAndroid::PostMessageToInstance(
+    const InstanceTarget& target, scoped_ptr<base::Value> msg) {
+  if (target.task_runner->BelongsToCurrentThread()) {
+    if (target.instance)
+      target.instance->PostMessageWrapper(msg.Pass());
     return;
   }
 
+  target.task_runner->PostTask(
+      FROM_HERE,
+      base::Bind(&XWalkExtensionAndroidInstance::PostMessageWrapper,
+                 target.instance, base::Passed(&msg)));
+}
+
+// static
+void XWalkExtensionAndroid::BroadcastMessageOnInstanceThread(
+    const std::vector<base::WeakPtr<XWalkExtensionAndroidInstance> >&
+        instances,
+    scoped_ptr<base::Value> msg) {
+  std::vector<XWalkExtensionInstance*> alive_instances;
+  for (size_t i = 0; i < instances.size(); ++i) {
+    if (instances[i])
+      alive_instances.push_back(instances[i].get());
+  }
+
+  if (alive_instances.empty())
+    return;
+
+  XWalkExtensionInstance::BroadcastMessageToJS(alive_instances, msg.Pass());
+}
+
+void XWalkExtensionAndroid::PostMessage(JNIEnv* env, jobject obj,
+                                       jint instance, jstring msg) {
+  if (!is_valid()) return;
+
+  InstanceTarget target;
+  if (!GetInstanceTarget(instance, &target))
+    return;
+
   const char* str = env->GetStringUTFChars(msg, 0);
-  it->second->PostMessageWrapper(str);
+  scoped_ptr<base::Value> value(new base::StringValue(str));
   env->ReleaseStringUTFChars(msg, str);
+  PostMessageToInstance(target, value.Pass());
+}
+
+void XWalkExtensionAndroid::PostBinaryMessage(JNIEnv* env, jobject obj,
+                                              jint instance, jobject buffer,
+                                              jint offset, jint length) {
+  if (!is_valid()) return;
+
+  InstanceTarget target;
+  if (!GetInstanceTarget(instance, &target))
+    return;
+
+  char* data = static_cast<char*>(env->GetDirectBufferAddress(buffer));
+  jlong capacity = env->GetDirectBufferCapacity(buffer);
+  if (!data || offset < 0 || length < 0 || offset + length > capacity) {
+    LOG(ERROR) << "Invalid binary message buffer";
+    return;
+  }
+
+  // The IPC message needs its own copy, this is the only one made.
+  PostMessageToInstance(target, scoped_ptr<base::Value>(
+      base::BinaryValue::CreateWithCopiedBuffer(data + offset, length)));
+}
+
+void XWalkExtensionAndroid::PostBinaryMessageArray(JNIEnv* env, jobject obj,
+                                                   jint instance,
+                                                   jbyteArray array,
+                                                   jint offset, jint length) {
+  if (!is_valid()) return;
+
+  InstanceTarget target;
+  if (!GetInstanceTarget(instance, &target))
+    return;
+
+  if (offset < 0 || length < 0 ||
+      offset + length > env->GetArrayLength(array)) {
+    LOG(ERROR) << "Invalid binary message array";
+    return;
+  }
+
+  scoped_ptr<char[]> data(new char[length]);
+  env->GetByteArrayRegion(array, offset, length,
+                          reinterpret_cast<jbyte*>(data.get()));
+  PostMessageToInstance(target, scoped_ptr<base::Value>(
+      new base::BinaryValue(data.Pass(), length)));
 }
 
 void XWalkExtensionAndroid::BroadcastMessage(JNIEnv* env, jobject obj,
                                              jstring msg) {
   if (!is_valid()) return;
 
-  const char* str = env->GetStringUTFChars(msg, 0);
-  for (InstanceMap::iterator it = instances_.begin();
-       it != instances_.end(); ++it) {
-    it->second->PostMessageWrapper(str);
+  // The instances are grouped by the thread they handle messages on, where
+  // they are broadcast to.
+  typedef std::vector<base::WeakPtr<XWalkExtensionAndroidInstance> >
+      WeakInstanceList;
+  std::map<base::SingleThreadTaskRunner*, WeakInstanceList> groups;
+  std::vector<scoped_refptr<base::SingleThreadTaskRunner> > task_runners;
+  {
+    base::AutoLock lock(instances_lock_);
+    for (InstanceMap::iterator it = instances_.begin();
+         it != instances_.end(); ++it) {
+      base::SingleThreadTaskRunner* task_runner = it->second.task_runner.get();
+      if (!groups.count(task_runner))
+        task_runners.push_back(it->second.task_runner);
+      groups[task_runner].push_back(it->second.instance);
+    }
   }
+
+  // The message is serialized once per renderer process, not per instance.
+  const char* str = env->GetStringUTFChars(msg, 0);
+  scoped_ptr<base::Value> value(new base::StringValue(str));
   env->ReleaseStringUTFChars(msg, str);
+
+  for (size_t i = 0; i < task_runners.size(); ++i) {
+    const WeakInstanceList& instances = groups[task_runners[i].get()];
+    scoped_ptr<base::Value> copy(value->DeepCopy());
+    if (task_runners[i]->BelongsToCurrentThread()) {
+      BroadcastMessageOnInstanceThread(instances, copy.Pass());
+      continue;
+    }
+
+    task_runners[i]->PostTask(
+        FROM_HERE,
+        base::Bind(&XWalkExtensionAndroid::BroadcastMessageOnInstanceThread,
+                   instances, base::Passed(&copy)));
+  }
+}
+
+void XWalkExtensionAndroid::SendSyncReply(JNIEnv* env, jobject obj,
+                                          jint instance, jint reply_id,
+                                          jstring reply) {
+  // This is called from any thread, the instance is only used on the thread
+  // it handles messages on.
+  InstanceTarget target;
+  if (!GetInstanceTarget(instance, &target))
+    return;
+
+  const char* str = env->GetStringUTFChars(reply, 0);
+  scoped_ptr<base::Value> value(new base::StringValue(str));
+  env->ReleaseStringUTFChars(reply, str);
+
+  if (target.task_runner->BelongsToCurrentThread()) {
+    if (target.instance)
+      target.instance->SendPendingSyncReply(reply_id, value.Pass());
+    return;
+  }
+
+  target.task_runner->PostTask(
+      FROM_HERE,
+      base::Bind(&XWalkExtensionAndroidInstance::SendPendingSyncReply,
+                 target.instance, reply_id, base::Passed(&value)));
 }
 
 void XWalkExtensionAndroid::DestroyExtension(JNIEnv* env, jobject obj) {
@@ -102,7 +247,12 @@ XWalkExtensionInstance* XWalkExtensionAndroid::CreateInstance() {
 
   XWalkExtensionAndroidInstance* instance =
       new XWalkExtensionAndroidInstance(this, java_ref_, next_instance_id_);
-  instances_[next_instance_id_] = instance;
+  {
+    base::AutoLock lock(instances_lock_);
+    InstanceTarget& target = instances_[next_instance_id_];
+    target.task_runner = instance->task_runner();
+    target.instance = instance->weak_ptr();
+  }
 
   next_instance_id_++;
 
@@ -114,19 +264,9 @@ XWalkExtensionInstance* XWalkExtensionAndroid::CreateInstance() {
 }
 
 void XWalkExtensionAndroid::RemoveInstance(int instance) {
-  JNIEnv* env = base::android::AttachCurrentThread();
-  ScopedJavaLocalRef<jobject> obj = java_ref_.get(env);
-  if (obj.is_null()) {
-    return;
-  }
-
-  InstanceMap::iterator it = instances_.find(instance);
-  if (it == instances_.end()) {
+  base::AutoLock lock(instances_lock_);
+  if (!instances_.erase(instance))
     LOG(WARNING) << "Instance(" << instance << ") not found ";
-    return;
-  }
-
-  instances_.erase(instance);
 }
 
 void XWalkExtensionAndroid::BindToJavaObject(JNIEnv* env, jobject obj) {
@@ -140,7 +280,12 @@ XWalkExtensionAndroidInstance::XWalkExtensionAndroidInstance(
     int id)
     : extension_(extension),
       java_ref_(java_ref),
-      id_(id) {
+      id_(id),
+      pending_sync_reply_id_(0),
+      next_sync_reply_id_(0),
+      task_runner_(base::ThreadTaskRunnerHandle::Get()),
+      weak_ptr_factory_(this) {
+  weak_ptr_ = weak_ptr_factory_.GetWeakPtr();
 }
 
 XWalkExtensionAndroidInstance::~XWalkExtensionAndroidInstance() {
@@ -149,6 +294,12 @@ XWalkExtensionAndroidInstance::~XWalkExtensionAndroidInstance() {
 
 void XWalkExtensionAndroidInstance::HandleMessage(
     scoped_ptr<base::Value> msg) {
+  if (msg->IsType(base::Value::TYPE_BINARY)) {
+    HandleBinaryMessage(make_scoped_ptr(
+        static_cast<base::BinaryValue*>(msg.release())));
+    return;
+  }
+
   std::string value;
 
   if (!msg->GetAsString(&value)) {
@@ -163,10 +314,36 @@ void XWalkExtensionAndroidInstance::HandleMessage(
     return;
   }
 
-  Java_XWalkExtensionAndroid_onMessage(
+  // The Java side calls onMessage() here or queues the message, depending on
+  // the extension's dispatch policy.
+  Java_XWalkExtensionAndroid_handleMessage(
       env, obj.obj(), getID(), buffer.obj());
 }
 
+void XWalkExtensionAndroidInstance::HandleBinaryMessage(
+    scoped_ptr<base::BinaryValue> msg) {
+  JNIEnv* env = base::android::AttachCurrentThread();
+  ScopedJavaLocalRef<jobject> obj = java_ref_.get(env);
+  if (obj.is_null()) {
+    LOG(ERROR) << "No valid Java object is referenced for message routing";
+    return;
+  }
+
+  // The message is wrapped without a copy. Its ownership goes to the Java
+  // side, which may handle it on another thread, and which releases it with
+  // ReleaseBinaryMessage() once onBinaryMessage() returned.
+  ScopedJavaLocalRef<jobject> buffer(
+      env, env->NewDirectByteBuffer(msg->GetBuffer(), msg->GetSize()));
+  if (base::android::ClearException(env) || buffer.is_null()) {
+    LOG(ERROR) << "Unable to wrap the binary message";
+    return;
+  }
+
+  Java_XWalkExtensionAndroid_handleBinaryMessage(
+      env, obj.obj(), getID(), buffer.obj(),
+      reinterpret_cast<intptr_t>(msg.release()));
+}
+
 void XWalkExtensionAndroidInstance::HandleSyncMessage(
     scoped_ptr<base::Value> msg) {
   scoped_ptr<base::Value> ret_val(new base::StringValue(""));
@@ -185,16 +362,49 @@ void XWalkExtensionAndroidInstance::HandleSyncMessage(
     return;
   }
 
+  if (++next_sync_reply_id_ <= 0)
+    next_sync_reply_id_ = 1;
+  int reply_id = pending_sync_reply_id_ = next_sync_reply_id_;
+
+  // The Java side may reply before returning, or later from any thread via
+  // SendSyncReply(). Meanwhile this thread keeps handling the messages of the
+  // other instances and extensions.
   ScopedJavaLocalRef<jstring> buffer(env, env->NewStringUTF(value.c_str()));
-  ScopedJavaLocalRef<jstring> ret =
-      Java_XWalkExtensionAndroid_onSyncMessage(
-              env, obj.obj(), getID(), buffer.obj());
+  int timeout = Java_XWalkExtensionAndroid_handleSyncMessage(
+      env, obj.obj(), getID(), reply_id, buffer.obj());
+
+  if (pending_sync_reply_id_ == reply_id) {
+    task_runner_->PostDelayedTask(
+        FROM_HERE,
+        base::Bind(&XWalkExtensionAndroidInstance::OnSyncReplyTimeout,
+                   weak_ptr_, reply_id),
+        base::TimeDelta::FromMilliseconds(timeout));
+  }
+}
+
+void XWalkExtensionAndroidInstance::SendPendingSyncReply(
+    int reply_id, scoped_ptr<base::Value> reply) {
+  if (pending_sync_reply_id_ != reply_id) {
+    LOG(WARNING) << "Dropping the late reply to sync message " << reply_id;
+    return;
+  }
 
-  const char *str = env->GetStringUTFChars(ret.obj(), 0);
-  ret_val.reset(new base::StringValue(str));
-  env->ReleaseStringUTFChars(ret.obj(), str);
+  pending_sync_reply_id_ = 0;
+  SendSyncReplyToJS(reply.Pass());
+}
+
+void XWalkExtensionAndroidInstance::OnSyncReplyTimeout(int reply_id) {
+  if (pending_sync_reply_id_ != reply_id)
+    return;
+
+  LOG(WARNING) << "Sync message " << reply_id << " of instance " << id_
+               << " timed out, replying with an empty string";
+  SendPendingSyncReply(reply_id, scoped_ptr<base::Value>(
+      new base::StringValue("")));
+}
 
-  SendSyncReplyToJS(ret_val.Pass());
+static void ReleaseBinaryMessage(JNIEnv* env, jclass clazz, jlong message) {
+  delete reinterpret_cast<base::BinaryValue*>(message);
 }
 
 static jlong GetOrCreateExtension(JNIEnv* env, jobject obj, jstring name,
@@ -7,12 +7,18 @@
 
 #include <map>
 #include <string>
+#include <vector>
 
 #include "base/android/jni_weak_ref.h"
 #include "base/android/scoped_java_ref.h"
 #include "base/callback.h"
 #include "base/logging.h"
+#include "base/memory/ref_counted.h"
 #include "base/memory/scoped_ptr.h"
+#include "base/memory/weak_ptr.h"
+#include "base/single_thread_task_runner.h"
+#include "base/synchronization/lock.h"
+#include "base/values.h"
 #include "xwalk/extensions/browser/xwalk_extension_service.h"
 #include "xwalk/extensions/common/xwalk_extension.h"
 
@@ -50,10 +56,23 @@ class XWalkExtensionAndroid : public XWalkExtension {
                         jstring js_api, jobjectArray js_entry_ports);
   ~XWalkExtensionAndroid() override;
 
-  // JNI interface to post message from Java to JS
+  // JNI interface to post message from Java to JS, from any thread. The
+  // messages are posted to the thread each instance handles messages on.
   void PostMessage(JNIEnv* env, jobject obj, jint instance, jstring msg);
   void BroadcastMessage(JNIEnv* env, jobject obj, jstring msg);
 
+  // JNI interface to reply to a sync message, from any thread.
+  void SendSyncReply(JNIEnv* env, jobject obj, jint instance, jint reply_id,
+                     jstring reply);
+
+  // JNI interface to post binary message from Java to JS, where it is
+  // received as an ArrayBuffer. |buffer| is a direct ByteBuffer.
+  void PostBinaryMessage(JNIEnv* env, jobject obj, jint instance,
+                         jobject buffer, jint offset, jint length);
+  // Same as above for a byte array.
+  void PostBinaryMessageArray(JNIEnv* env, jobject obj, jint instance,
+                              jbyteArray array, jint offset, jint length);
+
   void DestroyExtension(JNIEnv* env, jobject obj);
 
   XWalkExtensionInstance* CreateInstance() override;
@@ -68,10 +87,36 @@ class XWalkExtensionAndroid : public XWalkExtension {
   void BindToJavaObject(JNIEnv* env, jobject obj);
 
  private:
+  // Where to send the messages and sync replies of an instance. The
+  // instance is only dereferenced on |task_runner|.
+  struct InstanceTarget {
+    scoped_refptr<base::SingleThreadTaskRunner> task_runner;
+    base::WeakPtr<XWalkExtensionAndroidInstance> instance;
+  };
+
   bool is_valid();
 
-  typedef std::map<int, XWalkExtensionAndroidInstance*> InstanceMap;
+  // Copies the target of |instance| into |target|, returns false if there
+  // is no such instance. Called from any thread.
+  bool GetInstanceTarget(int instance, InstanceTarget* target);
+
+  // Posts |msg| to |target|, or sends it right away when called on the
+  // thread of |target|.
+  static void PostMessageToInstance(const InstanceTarget& target,
+                                    scoped_ptr<base::Value> msg);
+
+  // Broadcasts |msg| to the instances still alive, called on their thread.
+  static void BroadcastMessageOnInstanceThread(
+      const std::vector<base::WeakPtr<XWalkExtensionAndroidInstance> >&
+          instances,
+      scoped_ptr<base::Value> msg);
+
+  // The instances created on the extension thread, while the Java side
+  // posts messages from any thread. Guarded by |instances_lock_|.
+  typedef std::map<int, InstanceTarget> InstanceMap;
   InstanceMap instances_;
+  base::Lock instances_lock_;
+
   // Hold a reference to Java-side extension object for message routing.
   JavaObjectWeakGlobalRef java_ref_;
   int next_instance_id_;
@@ -87,23 +132,48 @@ class XWalkExtensionAndroidInstance : public XWalkExtensionInstance {
       int id);
   ~XWalkExtensionAndroidInstance();
 
-  void PostMessageWrapper(const char* msg) {
-    PostMessageToJS(scoped_ptr<base::Value>(new base::StringValue(msg)));
+  void PostMessageWrapper(scoped_ptr<base::Value> msg) {
+    PostMessageToJS(msg.Pass());
   }
 
+  // Sends |reply| if the sync message |reply_id| is still waiting for it.
+  // Called on the thread the sync message was received on.
+  void SendPendingSyncReply(int reply_id, scoped_ptr<base::Value> reply);
+
   int getID() {
       return id_;
   }
 
+  // The thread this instance handles messages on, which created it.
+  scoped_refptr<base::SingleThreadTaskRunner> task_runner() {
+    return task_runner_;
+  }
+
+  base::WeakPtr<XWalkExtensionAndroidInstance> weak_ptr() {
+    return weak_ptr_;
+  }
+
  private:
   void HandleMessage(scoped_ptr<base::Value> msg) override;
   void HandleSyncMessage(scoped_ptr<base::Value> msg) override;
+  void HandleBinaryMessage(scoped_ptr<base::BinaryValue> msg);
+
+  void OnSyncReplyTimeout(int reply_id);
 
   XWalkExtensionAndroid* extension_;
   // Hold a refenerence to Java-side XWalkExtensionAndroid object.
   JavaObjectWeakGlobalRef java_ref_;
   int id_;
 
+  // The sync message waiting for its reply, 0 if none. The renderer blocks
+  // on a sync message, so there is at most one per instance.
+  int pending_sync_reply_id_;
+  int next_sync_reply_id_;
+  scoped_refptr<base::SingleThreadTaskRunner> task_runner_;
+  base::WeakPtr<XWalkExtensionAndroidInstance> weak_ptr_;
+
+  base::WeakPtrFactory<XWalkExtensionAndroidInstance> weak_ptr_factory_;
+
   DISALLOW_COPY_AND_ASSIGN(XWalkExtensionAndroidInstance);
 };
 
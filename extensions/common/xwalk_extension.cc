@@ -4,6 +4,8 @@
 
 #include "xwalk/extensions/common/xwalk_extension.h"
 
+#include <map>
+
 #include "base/logging.h"
 
 namespace xwalk {
@@ -41,7 +43,9 @@ bool XWalkExtension::RegisterPermissions(const char* perm_table) const {
   return permissions_delegate_->RegisterPermissions(name(), perm_table);
 }
 
-XWalkExtensionInstance::XWalkExtensionInstance() {}
+XWalkExtensionInstance::XWalkExtensionInstance()
+    : broadcast_channel_(NULL),
+      instance_id_(0) {}
 
 XWalkExtensionInstance::~XWalkExtensionInstance() {}
 
@@ -55,6 +59,52 @@ void XWalkExtensionInstance::SetSendSyncReplyCallback(
   send_sync_reply_ = callback;
 }
 
+void XWalkExtensionInstance::SetBroadcastMessageCallback(
+    const void* channel, int64_t instance_id,
+    const BroadcastMessageCallback& callback) {
+  broadcast_channel_ = channel;
+  instance_id_ = instance_id;
+  broadcast_message_ = callback;
+}
+
+// static
+void XWalkExtensionInstance::BroadcastMessageToJS(
+    const std::vector<XWalkExtensionInstance*>& instances,
+    scoped_ptr<base::Value> msg) {
+  if (instances.empty())
+    return;
+
+  typedef std::map<const void*, std::vector<XWalkExtensionInstance*> >
+      ChannelMap;
+  ChannelMap channels;
+  std::vector<XWalkExtensionInstance*> unicast_instances;
+  for (size_t i = 0; i < instances.size(); ++i) {
+    XWalkExtensionInstance* instance = instances[i];
+    if (instance->broadcast_channel_ && !instance->broadcast_message_.is_null())
+      channels[instance->broadcast_channel_].push_back(instance);
+    else
+      unicast_instances.push_back(instance);
+  }
+
+  for (size_t i = 0; i < unicast_instances.size(); ++i) {
+    unicast_instances[i]->PostMessageToJS(
+        make_scoped_ptr(msg->DeepCopy()));
+  }
+
+  if (channels.empty())
+    return;
+
+  base::ListValue wrapped_msg;
+  wrapped_msg.Append(msg.release());
+  for (ChannelMap::const_iterator it = channels.begin();
+       it != channels.end(); ++it) {
+    std::vector<int64_t> instance_ids;
+    for (size_t i = 0; i < it->second.size(); ++i)
+      instance_ids.push_back(it->second[i]->instance_id_);
+    it->second.front()->broadcast_message_.Run(instance_ids, wrapped_msg);
+  }
+}
+
 void XWalkExtensionInstance::HandleSyncMessage(
     scoped_ptr<base::Value> msg) {
   LOG(FATAL) << "Sending sync message to extension which doesn't support it!";
@@ -5,6 +5,7 @@
 #ifndef XWALK_EXTENSIONS_COMMON_XWALK_EXTENSION_H_
 #define XWALK_EXTENSIONS_COMMON_XWALK_EXTENSION_H_
 
+#include <stdint.h>
 #include <string>
 #include <vector>
 #include "base/callback.h"
@@ -116,10 +117,20 @@ class XWalkExtensionInstance {
   typedef base::Callback<void(scoped_ptr<base::Value> msg)> PostMessageCallback;
   typedef base::Callback<void(scoped_ptr<base::Value> msg)>
       SendSyncReplyCallback;
+  // Posts the same message to several instances served by the same channel,
+  // the message being serialized only once.
+  typedef base::Callback<void(const std::vector<int64_t>& instance_ids,
+                              const base::ListValue& msg)>
+      BroadcastMessageCallback;
 
   void SetPostMessageCallback(const PostMessageCallback& callback);
   void SetSendSyncReplyCallback(const SendSyncReplyCallback& callback);
 
+  // |channel| identifies the IPC channel (hence the renderer process) the
+  // instance is served by, and |instance_id| the instance on that channel.
+  void SetBroadcastMessageCallback(const void* channel, int64_t instance_id,
+                                   const BroadcastMessageCallback& callback);
+
   // Function to be used by extensions Instances to post messages back to
   // JavaScript in the renderer process. This function will take the ownership
   // of the message.
@@ -127,6 +138,14 @@ class XWalkExtensionInstance {
     post_message_.Run(msg.Pass());
   }
 
+  // Posts the same message to all the |instances|. Instead of copying and
+  // serializing it for each of them, the message is serialized once per
+  // channel they are served by. This function will take the ownership of the
+  // message.
+  static void BroadcastMessageToJS(
+      const std::vector<XWalkExtensionInstance*>& instances,
+      scoped_ptr<base::Value> msg);
+
  protected:
   XWalkExtensionInstance();
 
@@ -138,6 +157,9 @@ class XWalkExtensionInstance {
  private:
   PostMessageCallback post_message_;
   SendSyncReplyCallback send_sync_reply_;
+  BroadcastMessageCallback broadcast_message_;
+  const void* broadcast_channel_;
+  int64_t instance_id_;
 
   DISALLOW_COPY_AND_ASSIGN(XWalkExtensionInstance);
 };
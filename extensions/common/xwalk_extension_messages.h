@@ -76,6 +76,12 @@ IPC_MESSAGE_CONTROL2(XWalkExtensionClientMsg_PostMessageToJS,  // NOLINT(*)
                      int64_t /* instance id */,
                      base::ListValue /* contents */)
 
+// Posts the same contents to several instances, see
+// XWalkExtensionInstance::BroadcastMessageToJS().
+IPC_MESSAGE_CONTROL2(XWalkExtensionClientMsg_BroadcastMessageToJS,  // NOLINT(*)
+                     std::vector<int64_t> /* instance ids */,
+                     base::ListValue /* contents */)
+
 IPC_MESSAGE_CONTROL2(XWalkExtensionClientMsg_PostOutOfLineMessageToJS,  // NOLINT(*)
                      base::SharedMemoryHandle /* message buffer */,
                      size_t /* buffer size */)
@@ -84,6 +84,11 @@ void XWalkExtensionServer::OnCreateInstance(int64_t instance_id,
       base::Bind(&XWalkExtensionServer::SendSyncReplyToJSCallback,
                  base::Unretained(this), instance_id));
 
+  instance->SetBroadcastMessageCallback(
+      this, instance_id,
+      base::Bind(&XWalkExtensionServer::BroadcastMessageToJSCallback,
+                 base::Unretained(this)));
+
   InstanceExecutionData data;
   data.instance = instance;
   data.pending_reply = NULL;
@@ -201,8 +206,22 @@ void XWalkExtensionServer::PostMessageToJSCallback(
   base::ListValue wrapped_msg;
   wrapped_msg.Append(msg.release());
 
-  scoped_ptr<IPC::Message> message(
-      new XWalkExtensionClientMsg_PostMessageToJS(instance_id, wrapped_msg));
+  SendMessageToJS(make_scoped_ptr(
+      new XWalkExtensionClientMsg_PostMessageToJS(instance_id, wrapped_msg)));
+}
+
+void XWalkExtensionServer::BroadcastMessageToJSCallback(
+    const std::vector<int64_t>& instance_ids, const base::ListValue& msg) {
+  if (instance_ids.size() == 1) {
+    SendMessageToJS(make_scoped_ptr(
+        new XWalkExtensionClientMsg_PostMessageToJS(instance_ids[0], msg)));
+    return;
+  }
+  SendMessageToJS(make_scoped_ptr(
+      new XWalkExtensionClientMsg_BroadcastMessageToJS(instance_ids, msg)));
+}
+
+void XWalkExtensionServer::SendMessageToJS(scoped_ptr<IPC::Message> message) {
   if (message->size() <= kInlineMessageMaxSize) {
     Send(message.release());
     return;
@@ -96,6 +96,13 @@ class XWalkExtensionServer : public IPC::Listener,
   void PostMessageToJSCallback(int64_t instance_id,
                                scoped_ptr<base::Value> msg);
 
+  void BroadcastMessageToJSCallback(const std::vector<int64_t>& instance_ids,
+                                    const base::ListValue& msg);
+
+  // Sends |message| to the renderer, through shared memory if it is too big
+  // to be sent inline.
+  void SendMessageToJS(scoped_ptr<IPC::Message> message);
+
   void SendSyncReplyToJSCallback(int64_t instance_id,
                                  scoped_ptr<base::Value> reply);
 
@@ -45,6 +45,8 @@ bool XWalkExtensionClient::OnMessageReceived(const IPC::Message& message) {
   IPC_BEGIN_MESSAGE_MAP(XWalkExtensionClient, message)
     IPC_MESSAGE_HANDLER(XWalkExtensionClientMsg_PostMessageToJS,
         OnPostMessageToJS)
+    IPC_MESSAGE_HANDLER(XWalkExtensionClientMsg_BroadcastMessageToJS,
+        OnBroadcastMessageToJS)
     IPC_MESSAGE_HANDLER(XWalkExtensionClientMsg_PostOutOfLineMessageToJS,
         OnPostOutOfLineMessageToJS)
     IPC_MESSAGE_HANDLER(XWalkExtensionClientMsg_InstanceDestroyed,
@@ -80,6 +82,23 @@ void XWalkExtensionClient::OnPostMessageToJS(int64_t instance_id,
   it->second->HandleMessageFromNative(*value);
 }
 
+void XWalkExtensionClient::OnBroadcastMessageToJS(
+    const std::vector<int64_t>& instance_ids, const base::ListValue& msg) {
+  const base::Value* value;
+  if (!msg.Get(0, &value))
+    return;
+
+  // The message was deserialized once, each handler converts it to a V8 value
+  // in its own context.
+  for (size_t i = 0; i < instance_ids.size(); ++i) {
+    HandlerMap::const_iterator it = handlers_.find(instance_ids[i]);
+    // See comment in DestroyInstance() about two step destruction.
+    if (it == handlers_.end() || !it->second)
+      continue;
+    it->second->HandleMessageFromNative(*value);
+  }
+}
+
 void XWalkExtensionClient::OnPostOutOfLineMessageToJS(
     base::SharedMemoryHandle handle, size_t size) {
   CHECK(base::SharedMemory::IsHandleValid(handle));
@@ -30,6 +30,7 @@ import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Environment;
 import android.util.Log;
+import android.webkit.ValueCallback;
 
 import java.lang.Thread;
 import java.util.LinkedList;
@@ -622,8 +623,14 @@ public abstract class XWalkActivity extends Activity implements XWalkLibraryList
         protected Boolean doInBackground(Void... params) {
             boolean success = false;
             try {
-                success = XWalkCoreWrapper.decompressXWalkLibrary();
-                // TODO: use publishProgress to update percentage.
+                // Called on the decoding threads.
+                ValueCallback<Integer> progressCallback = new ValueCallback<Integer>() {
+                    @Override
+                    public void onReceiveValue(Integer percent) {
+                        publishProgress(percent);
+                    }
+                };
+                success = XWalkCoreWrapper.decompressXWalkLibrary(progressCallback);
             } catch (Exception e) {
                 Log.w(TAG, "Decompress library failed: " + e.getMessage());
             }
@@ -633,7 +640,8 @@ public abstract class XWalkActivity extends Activity implements XWalkLibraryList
 
         @Override
         protected void onProgressUpdate(Integer... progress) {
-            // TODO: update percentage.
+            mDialog.setMessage(mXWalkActivity.getString(R.string.decompress_library_message)
+                    + " " + progress[0] + "%");
         }
 
         @Override
@@ -10,12 +10,15 @@ import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.Signature;
+import android.os.Process;
 import android.util.Log;
+import android.webkit.ValueCallback;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.InvocationTargetException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 
 import junit.framework.Assert;
 
@@ -32,6 +35,24 @@ class XWalkCoreWrapper implements ReflectExceptionHandler {
 
     private static final String TAG = "XWalkActivity";
 
+    // The library can't be reached yet when the core is being looked for,
+    // the phases are handed to XWalkStartupTracer once it is found.
+    private static class StartupPhase {
+        final String mName;
+        final int mThreadId;
+        final long mStartNanos;
+        final long mEndNanos;
+
+        StartupPhase(String name, long startNanos) {
+            mName = name;
+            mThreadId = Process.myTid();
+            mStartNanos = startNanos;
+            mEndNanos = System.nanoTime();
+        }
+    }
+
+    private ArrayList<StartupPhase> mStartupPhases = new ArrayList<StartupPhase>();
+
     private int mSdkVersion;
     private int mMinSdkVersion;
 
@@ -48,7 +69,7 @@ class XWalkCoreWrapper implements ReflectExceptionHandler {
         if (sInstance != null || sProvisionalInstance != null || sListener != null) return;
 
         sProvisionalInstance = new XWalkCoreWrapper(-1);
-        if (!sProvisionalInstance.findEmbeddedCore()) {
+        if (!sProvisionalInstance.traceFindEmbeddedCore()) {
             Assert.fail("Must extend XWalkActivity on shared mode");
         }
 
@@ -63,8 +84,8 @@ class XWalkCoreWrapper implements ReflectExceptionHandler {
     public static void check(int minSdkVersion) {
         Assert.assertNull(sInstance);
         sProvisionalInstance = new XWalkCoreWrapper(minSdkVersion);
-        if (!sProvisionalInstance.findEmbeddedCore()) {
-            sProvisionalInstance.findSharedCore();
+        if (!sProvisionalInstance.traceFindEmbeddedCore()) {
+            sProvisionalInstance.traceFindSharedCore();
         }
         if (sListener == null) return;
 
@@ -120,6 +141,22 @@ class XWalkCoreWrapper implements ReflectExceptionHandler {
         } catch (RuntimeException e) {
             Assert.fail("initCore failed");
         }
+
+        reportStartupPhases();
+    }
+
+    private void reportStartupPhases() {
+        try {
+            ReflectMethod method = new ReflectMethod(null,
+                    getBridgeClass("XWalkStartupTracerInternal"), "addPhase",
+                    String.class, int.class, long.class, long.class);
+            for (StartupPhase phase : mStartupPhases) {
+                method.invoke(phase.mName, phase.mThreadId, phase.mStartNanos, phase.mEndNanos);
+            }
+        } catch (RuntimeException e) {
+            Log.d(TAG, "Startup tracer not found");
+        }
+        mStartupPhases.clear();
     }
 
     private void resetCore() {
@@ -138,6 +175,20 @@ class XWalkCoreWrapper implements ReflectExceptionHandler {
                 minSdkVersion : mSdkVersion;
     }
 
+    private boolean traceFindEmbeddedCore() {
+        long start = System.nanoTime();
+        boolean found = findEmbeddedCore();
+        mStartupPhases.add(new StartupPhase("findEmbeddedCore", start));
+        return found;
+    }
+
+    private boolean traceFindSharedCore() {
+        long start = System.nanoTime();
+        boolean found = findSharedCore();
+        mStartupPhases.add(new StartupPhase("findSharedCore", start));
+        return found;
+    }
+
     private boolean findEmbeddedCore() {
         mBridgeContext = null;
         mBridgeLoader = XWalkCoreWrapper.class.getClassLoader();
@@ -215,12 +266,22 @@ class XWalkCoreWrapper implements ReflectExceptionHandler {
     }
 
     public static boolean decompressXWalkLibrary() throws Exception {
+        return decompressXWalkLibrary(null);
+    }
+
+    /**
+     * Decompresses the embedded library, progressCallback receives the
+     * percentage done on the decoding threads. It may be null.
+     */
+    public static boolean decompressXWalkLibrary(ValueCallback<Integer> progressCallback)
+            throws Exception {
         XWalkApplication xwalkApp = XWalkApplication.getApplication();
         ClassLoader loader = XWalkCoreWrapper.class.getClassLoader();
 
         Class<?> clazz = loader.loadClass(BRIDGE_PACKAGE + ".XWalkViewDelegate");
-        Method method = clazz.getMethod("decompressXWalkLibrary", Context.class);
-        return (boolean) method.invoke(null, xwalkApp);
+        Method method = clazz.getMethod("decompressXWalkLibrary",
+                Context.class, ValueCallback.class);
+        return (boolean) method.invoke(null, xwalkApp, progressCallback);
     }
 
     public static int getLocalVersion(Context context) {
@@ -329,6 +390,13 @@ class XWalkCoreWrapper implements ReflectExceptionHandler {
         return mBridgeContext != null;
     }
 
+    // The interfaces used to call between wrappers and bridges without
+    // reflection are only packaged with the bridge, they can only be used
+    // when it is loaded by the class loader of the wrapper.
+    public boolean isDirectCallAvailable() {
+        return mBridgeLoader == XWalkCoreWrapper.class.getClassLoader();
+    }
+
     public Object getBridgeObject(Object object) {
         try {
             return new ReflectMethod(null, object, "getBridge").invoke();
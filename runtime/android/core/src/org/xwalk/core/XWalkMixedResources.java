@@ -9,6 +9,7 @@ import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
 import android.graphics.drawable.Drawable;
+import android.util.SparseIntArray;
 import android.util.TypedValue;
 
 /**
@@ -32,9 +33,19 @@ import android.util.TypedValue;
  * For R.attr and R.style, I have no confidence that it's covered.
  * But the only place use this R.attr and R.style is "select" tag
  * which is verified working well with this MixedResources.
+ *
+ * Both packages are built with the same package ID, so an ID alone can't
+ * tell them apart. Instead, the packages defining each ID are looked up
+ * once and cached. Only IDs defined in both packages need to know which
+ * side is calling, which is done by walking the stack.
  */
 class XWalkMixedResources extends Resources {
+    private static final int RESOURCE_IN_LIBRARY = 1;
+    private static final int RESOURCE_IN_APP = 2;
+    private static final int RESOURCE_IN_BOTH = RESOURCE_IN_LIBRARY | RESOURCE_IN_APP;
+
     private Resources mLibraryResource;
+    private final SparseIntArray mResourceOwners = new SparseIntArray();
 
     private boolean isCalledInLibrary() {
         StackTraceElement[] stacks = Thread.currentThread().getStackTrace();
@@ -51,6 +62,44 @@ class XWalkMixedResources extends Resources {
         return false;
     }
 
+    private static boolean hasResource(Resources resources, int id) {
+        try {
+            resources.getResourceName(id);
+            return true;
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
+
+    private int getResourceOwner(int id) {
+        synchronized (mResourceOwners) {
+            int owner = mResourceOwners.get(id);
+            if (owner != 0) return owner;
+        }
+
+        int owner = 0;
+        if (hasResource(mLibraryResource, id)) owner |= RESOURCE_IN_LIBRARY;
+        if (hasResource(this, id)) owner |= RESOURCE_IN_APP;
+        // Unknown IDs are not cached, looking them up fails either way.
+        if (owner == 0) return RESOURCE_IN_BOTH;
+
+        synchronized (mResourceOwners) {
+            mResourceOwners.put(id, owner);
+        }
+        return owner;
+    }
+
+    private boolean useLibraryResource(int id) {
+        switch (getResourceOwner(id)) {
+            case RESOURCE_IN_LIBRARY:
+                return true;
+            case RESOURCE_IN_APP:
+                return false;
+            default:
+                return isCalledInLibrary();
+        }
+    }
+
     XWalkMixedResources(Resources base, Resources libraryResources) {
         super(base.getAssets(), base.getDisplayMetrics(),
                 base.getConfiguration());
@@ -59,56 +108,56 @@ class XWalkMixedResources extends Resources {
 
     @Override
     public CharSequence getText(int id) throws NotFoundException {
-        boolean calledInLibrary = isCalledInLibrary();
+        boolean useLibrary = useLibraryResource(id);
         try {
-            if (calledInLibrary) return mLibraryResource.getText(id);
+            if (useLibrary) return mLibraryResource.getText(id);
             else return super.getText(id);
         } catch (NotFoundException e) {
-            if (calledInLibrary) return super.getText(id);
+            if (useLibrary) return super.getText(id);
             else return mLibraryResource.getText(id);
         }
     }
 
     @Override
     public XmlResourceParser getLayout(int id) throws NotFoundException {
-        boolean calledInLibrary = isCalledInLibrary();
+        boolean useLibrary = useLibraryResource(id);
         try {
-            if (calledInLibrary) return mLibraryResource.getLayout(id);
+            if (useLibrary) return mLibraryResource.getLayout(id);
             else return super.getLayout(id);
         } catch (NotFoundException e) {
-            if (calledInLibrary) return super.getLayout(id);
+            if (useLibrary) return super.getLayout(id);
             else return mLibraryResource.getLayout(id);
         }
     }
 
     @Override
     public void getValue(int id, TypedValue outValue, boolean resolveRefs) {
-        boolean calledInLibrary = isCalledInLibrary();
+        boolean useLibrary = useLibraryResource(id);
         try {
-            if (calledInLibrary) mLibraryResource.getValue(id, outValue, resolveRefs);
+            if (useLibrary) mLibraryResource.getValue(id, outValue, resolveRefs);
             else super.getValue(id, outValue, resolveRefs);
         } catch (NotFoundException e) {
-            if (calledInLibrary) super.getValue(id, outValue, resolveRefs);
+            if (useLibrary) super.getValue(id, outValue, resolveRefs);
             else mLibraryResource.getValue(id, outValue, resolveRefs);
         }
     }
 
     @Override
     public void getValueForDensity(int id, int density, TypedValue outValue, boolean resolveRefs) {
-        boolean calledInLibrary = isCalledInLibrary();
+        boolean useLibrary = useLibraryResource(id);
         try {
-            if (calledInLibrary) mLibraryResource.getValueForDensity(id, density, outValue, resolveRefs);
+            if (useLibrary) mLibraryResource.getValueForDensity(id, density, outValue, resolveRefs);
             else super.getValueForDensity(id, density, outValue, resolveRefs);
         } catch (NotFoundException e) {
-            if (calledInLibrary) super.getValueForDensity(id, density, outValue, resolveRefs);
+            if (useLibrary) super.getValueForDensity(id, density, outValue, resolveRefs);
             else mLibraryResource.getValueForDensity(id, density, outValue, resolveRefs);
         }
     }
 
     @Override
     public int getIdentifier(String name, String defType, String defPackage) {
-        boolean calledInLibrary = isCalledInLibrary();
-        if (calledInLibrary) {
+        boolean useLibrary = isCalledInLibrary();
+        if (useLibrary) {
             int id = mLibraryResource.getIdentifier(name, defType, defPackage);
             return id != 0 ? id : super.getIdentifier(name, defType, defPackage);
         } else {
@@ -119,12 +168,12 @@ class XWalkMixedResources extends Resources {
 
     @Override
     public Drawable getDrawable(int id) {
-        boolean calledInLibrary = isCalledInLibrary();
+        boolean useLibrary = useLibraryResource(id);
         try {
-            if (calledInLibrary) return mLibraryResource.getDrawable(id);
+            if (useLibrary) return mLibraryResource.getDrawable(id);
             else return super.getDrawable(id);
         } catch (NotFoundException e) {
-            if (calledInLibrary) return super.getDrawable(id);
+            if (useLibrary) return super.getDrawable(id);
             else return mLibraryResource.getDrawable(id);
         }
     }
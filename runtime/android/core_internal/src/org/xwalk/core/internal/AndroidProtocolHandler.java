@@ -5,17 +5,21 @@
 package org.xwalk.core.internal;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 import android.net.Uri;
 import android.util.Log;
 import android.util.TypedValue;
 
+import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLConnection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.chromium.base.CalledByNative;
 import org.chromium.base.JNINamespace;
@@ -35,6 +39,27 @@ class AndroidProtocolHandler {
     public static final String APP_SCHEME = "app";
     private static final String APP_SRC = "www";
     private static final String SCHEME_SEPARATOR = "//";
+    private static final int ASSET_PATH_CACHE_SIZE = 256;
+
+    // The normalized asset path of an app:// or file:///android_asset/ url.
+    private static class AssetPath {
+        final String mPath;
+        // Set once openFd() failed, the asset is then only opened as a stream.
+        volatile boolean mCompressed;
+
+        AssetPath(String path) {
+            mPath = path;
+        }
+    }
+
+    // Keyed by the scheme and the path of the url.
+    private static final Map<String, AssetPath> sAssetPaths =
+            new LinkedHashMap<String, AssetPath>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, AssetPath> eldest) {
+                    return size() > ASSET_PATH_CACHE_SIZE;
+                }
+            };
 
     /**
      * Open an InputStream for an Android resource.
@@ -52,21 +77,14 @@ class AndroidProtocolHandler {
             String path = uri.getPath();
             if (uri.getScheme().equals(FILE_SCHEME)) {
                 if (path.startsWith(nativeGetAndroidAssetPath())) {
-                    return openAsset(context, uri);
+                    return openAsset(context, getCachedAssetPath(context, uri));
                 } else if (path.startsWith(nativeGetAndroidResourcePath())) {
                     return openResource(context, uri);
                 }
             } else if (uri.getScheme().equals(CONTENT_SCHEME)) {
                 return openContent(context, uri);
             } else if (uri.getScheme().equals(APP_SCHEME)) {
-                // The host should be the same as the lower case of the package
-                // name, otherwise the resource request should be rejected.
-                if (!uri.getHost().equals(context.getPackageName().toLowerCase())) return null;
-
-                // path == "/" or path == ""
-                if (path.length() <= 1) return null;
-
-                return openAsset(context, appUriToFileUri(uri));
+                return openAsset(context, getCachedAssetPath(context, uri));
             }
         } catch (Exception ex) {
             Log.e(TAG, "Error opening inputstream: " + url);
@@ -75,6 +93,84 @@ class AndroidProtocolHandler {
         return null;
     }
 
+    /**
+     * Open a file descriptor for an asset stored uncompressed in the APK, so
+     * that it can be read natively without going through an InputStream.
+     * @param context The context manager.
+     * @param url The app:// or file:///android_asset/ url to load.
+     * @return The file descriptor, or null if the url is not an asset or the
+     *         asset is compressed.
+     */
+    @CalledByNative
+    public static AssetFileDescriptor openAssetFd(Context context, String url) {
+        if (url == null) return null;
+        AssetPath assetPath = null;
+        try {
+            assetPath = getCachedAssetPath(context, Uri.parse(url));
+            if (assetPath == null || assetPath.mCompressed) return null;
+            return context.getAssets().openFd(assetPath.mPath);
+        } catch (FileNotFoundException e) {
+            // The asset is compressed, or doesn't exist. Leave it to open().
+            assetPath.mCompressed = true;
+        } catch (Exception e) {
+            Log.e(TAG, "Unable to open asset fd: " + url);
+        }
+        return null;
+    }
+
+    // Takes over the file descriptor, the caller is responsible for closing it.
+    @CalledByNative
+    private static int detachFd(AssetFileDescriptor fd) {
+        return fd.getParcelFileDescriptor().detachFd();
+    }
+
+    @CalledByNative
+    private static long getStartOffset(AssetFileDescriptor fd) {
+        return fd.getStartOffset();
+    }
+
+    @CalledByNative
+    private static long getLength(AssetFileDescriptor fd) {
+        return fd.getLength();
+    }
+
+    // Returns the asset path of an app:// or file:///android_asset/ uri, or
+    // null if the uri doesn't point to an asset. The normalized paths are
+    // cached.
+    private static AssetPath getCachedAssetPath(Context context, Uri uri) {
+        String scheme = uri.getScheme();
+        String path = uri.getPath();
+        if (scheme == null || path == null) return null;
+
+        if (scheme.equals(APP_SCHEME)) {
+            // The host should be the same as the lower case of the package
+            // name, otherwise the resource request should be rejected.
+            if (uri.getHost() == null ||
+                    !uri.getHost().equals(context.getPackageName().toLowerCase())) {
+                return null;
+            }
+            // path == "/" or path == ""
+            if (path.length() <= 1) return null;
+        } else if (!scheme.equals(FILE_SCHEME) ||
+                !path.startsWith(nativeGetAndroidAssetPath())) {
+            return null;
+        }
+
+        String key = scheme + ":" + path;
+        synchronized (sAssetPaths) {
+            AssetPath assetPath = sAssetPaths.get(key);
+            if (assetPath != null) return assetPath;
+        }
+
+        Uri fileUri = scheme.equals(APP_SCHEME) ? appUriToFileUri(uri) : uri;
+        if (fileUri == null) return null;
+        AssetPath assetPath = new AssetPath(getAssetPath(fileUri));
+        synchronized (sAssetPaths) {
+            sAssetPaths.put(key, assetPath);
+        }
+        return assetPath;
+    }
+
     // Get the asset path of file:///android_asset/* url.
     public static String getAssetPath(Uri uri) {
         assert(uri.getScheme().equals(FILE_SCHEME));
@@ -102,23 +198,25 @@ class AndroidProtocolHandler {
     }
 
     static String getUrlContent(Context context, String url) throws IOException {
+        // Read assets directly, uncompressed ones are then mapped in place.
+        Uri uri = verifyUrl(url);
+        if (uri != null) {
+            AssetPath assetPath = getCachedAssetPath(context, uri);
+            if (assetPath != null) {
+                return XWalkAssetReader.readAsset(context.getAssets(), assetPath.mPath);
+            }
+        }
+
         InputStream stream = open(context, url);
         if (stream == null) {
             throw new RuntimeException("Failed to open the url: " + url);
         }
 
-        String content = "";
         try {
-            final int bufferSize = 1024;
-            byte[] buffer = new byte[bufferSize];
-            int actualSize = 0;
-            while ((actualSize = stream.read(buffer, 0, bufferSize)) > 0) {
-                content += new String(buffer, 0, actualSize);
-            }
+            return XWalkAssetReader.readStream(stream, stream.available());
         } finally {
             stream.close();
         }
-        return content;
     }
 
     private static int getFieldId(Context context, String assetType, String assetName)
@@ -184,15 +282,13 @@ class AndroidProtocolHandler {
         }
     }
 
-    private static InputStream openAsset(Context context, Uri uri) {
-        assert uri.getScheme().equals(FILE_SCHEME);
-        assert uri.getPath() != null;
-        assert uri.getPath().startsWith(nativeGetAndroidAssetPath());
+    private static InputStream openAsset(Context context, AssetPath assetPath) {
+        if (assetPath == null) return null;
         try {
             AssetManager assets = context.getAssets();
-            return assets.open(getAssetPath(uri), AssetManager.ACCESS_STREAMING);
+            return assets.open(assetPath.mPath, AssetManager.ACCESS_STREAMING);
         } catch (IOException e) {
-            Log.e(TAG, "Unable to open asset URL: " + uri);
+            Log.e(TAG, "Unable to open asset: " + assetPath.mPath);
             return null;
         }
     }
@@ -242,7 +338,9 @@ class AndroidProtocolHandler {
             Log.e(TAG, "Unable to get mime type" + url);
             return null;
         }
-        // Fall back to sniffing the type from the stream.
+        // Fall back to sniffing the type from the stream. There is none when
+        // the asset is read through openAssetFd().
+        if (stream == null) return null;
         try {
             return URLConnection.guessContentTypeFromStream(stream);
         } catch (IOException e) {
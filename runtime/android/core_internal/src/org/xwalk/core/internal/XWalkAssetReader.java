@@ -0,0 +1,103 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.content.res.Resources;
+import android.content.res.Resources.NotFoundException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Reads assets, raw resources and streams into UTF-8 decoded strings.
+ *
+ * Assets and resources stored uncompressed in the APK are mapped and decoded
+ * in place. Compressed ones and other streams are read into a buffer sized
+ * from the expected length, and decoded once at the end so that multibyte
+ * sequences are never split.
+ */
+public class XWalkAssetReader {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * Returns the content of an asset.
+     */
+    public static String readAsset(AssetManager assets, String path) throws IOException {
+        AssetFileDescriptor fd = null;
+        try {
+            fd = assets.openFd(path);
+        } catch (FileNotFoundException e) {
+            // The asset is compressed, or doesn't exist.
+        }
+        if (fd != null) return readFileDescriptor(fd);
+
+        InputStream stream = assets.open(path, AssetManager.ACCESS_BUFFER);
+        try {
+            return readStream(stream, stream.available());
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Returns the content of a raw resource.
+     */
+    public static String readRawResource(Resources resources, int id) throws IOException {
+        AssetFileDescriptor fd = null;
+        try {
+            fd = resources.openRawResourceFd(id);
+        } catch (NotFoundException e) {
+            // The resource is compressed.
+        }
+        if (fd != null) return readFileDescriptor(fd);
+
+        InputStream stream = resources.openRawResource(id);
+        try {
+            return readStream(stream, stream.available());
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Reads the stream to its end, it is not closed.
+     * @param sizeHint the expected size in bytes, or 0 if it is unknown.
+     */
+    public static String readStream(InputStream stream, int sizeHint) throws IOException {
+        ByteArrayOutputStream bytes =
+                new ByteArrayOutputStream(sizeHint > 0 ? sizeHint : DEFAULT_BUFFER_SIZE);
+        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+        int length;
+        while ((length = stream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, length);
+        }
+        return bytes.toString("UTF-8");
+    }
+
+    private static String readFileDescriptor(AssetFileDescriptor fd) throws IOException {
+        FileInputStream stream = fd.createInputStream();
+        try {
+            long length = fd.getLength();
+            if (length == AssetFileDescriptor.UNKNOWN_LENGTH) {
+                return readStream(stream, 0);
+            }
+            FileChannel channel = stream.getChannel();
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), length);
+            return UTF_8.decode(buffer).toString();
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -5,18 +5,53 @@ import SevenZip.Compression.LZMA.Decoder;
 import android.content.Context;
 import android.content.res.Resources;
 import android.util.Log;
+import android.webkit.ValueCallback;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Decompresses the libraries stored as raw resources when lzma is enabled.
+ *
+ * Libraries are either a single .lzma stream or, as written by
+ * build/android/lzma_compress_library.py, a header followed by independent
+ * .lzma blocks. Blocks are decoded on a thread pool, each one written at its
+ * own offset of the preallocated output file.
+ */
 public class XWalkCompressUtil {
     private static final String TAG = "XWalkCompressUtil";
 
+    private static final byte[] BLOCKS_MAGIC = { 'X', 'W', 'L', 'Z' };
+    private static final int BLOCKS_FORMAT_VERSION = 1;
+    // Size of the properties and the uncompressed size in a .lzma header.
+    private static final int LZMA_PROPERTIES_SIZE = 5;
+    private static final int LZMA_OUT_SIZE_LENGTH = 8;
+    // Size of the version, block count and total size, and of each block's
+    // entry in the header.
+    private static final int BLOCKS_HEADER_SIZE = 16;
+    private static final int BLOCK_ENTRY_SIZE = 8;
+    // Compressed blocks read ahead per decoding thread, bounds the memory used.
+    private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 2;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
     public static boolean XWalkLibraryCompressed(Context context, String[] libraries) {
         if (context == null) return false;
 
@@ -29,13 +64,24 @@ public class XWalkCompressUtil {
     }
 
     public static boolean decompressXWalkLibrary(Context context, String[] libraries, String libDir) throws Exception {
+        return decompressXWalkLibrary(context, libraries, libDir, null);
+    }
+
+    /**
+     * Decompresses the libraries into libDir. If progressCallback is not
+     * null, it receives the overall percentage from the decoding threads.
+     */
+    public static boolean decompressXWalkLibrary(Context context, String[] libraries, String libDir,
+            ValueCallback<Integer> progressCallback) throws Exception {
         if (context == null) return false;
 
         File f = new File(libDir);
         if (f.exists() && f.isFile()) f.delete();
         if (!f.exists() && !f.mkdirs()) return false;
 
-        for (String library : libraries) {
+        Progress progress = new Progress(libraries.length, progressCallback);
+        for (int i = 0; i < libraries.length; ++i) {
+            String library = libraries[i];
             File tmpfile = null;
             InputStream input = null;
             OutputStream output = null;
@@ -44,11 +90,21 @@ public class XWalkCompressUtil {
                 File outfile = new File(libDir, library);
                 tmpfile = new File(libDir, library + ".tmp");
                 input = new BufferedInputStream(openRawResource(context, library));
-                output = new BufferedOutputStream(new FileOutputStream(tmpfile));
-                if (!decodeLzma(input, output)) {
-                    Log.d(TAG, "Decompress failed");
-                    return false;
+                progress.startLibrary(i);
+                if (hasBlocksMagic(input)) {
+                    if (!decodeLzmaBlocks(input, tmpfile, progress)) {
+                        Log.d(TAG, "Decompress failed");
+                        return false;
+                    }
+                } else {
+                    output = new BufferedOutputStream(new FileOutputStream(tmpfile));
+                    if (!decodeLzma(input, output)) {
+                        Log.d(TAG, "Decompress failed");
+                        return false;
+                    }
+                    output.flush();
                 }
+                progress.finishLibrary();
                 tmpfile.renameTo(outfile);
             } catch (Exception e) {
                 Log.d(TAG, "Decompress failed: " + e.getMessage());
@@ -77,6 +133,151 @@ public class XWalkCompressUtil {
         return true;
     }
 
+    // Consumes the magic if present, otherwise leaves the stream untouched.
+    private static boolean hasBlocksMagic(InputStream input) throws IOException {
+        input.mark(BLOCKS_MAGIC.length);
+        byte[] magic = new byte[BLOCKS_MAGIC.length];
+        int read = 0;
+        while (read < magic.length) {
+            int n = input.read(magic, read, magic.length - read);
+            if (n < 0) break;
+            read += n;
+        }
+        for (int i = 0; i < magic.length; ++i) {
+            if (i >= read || magic[i] != BLOCKS_MAGIC[i]) {
+                input.reset();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the blocks following the magic. The header is checked against
+     * the length left in the resource, which its stream reports through
+     * available(), and against the space left for the output before
+     * anything is allocated. Returns false for a corrupt header.
+     */
+    private static boolean decodeLzmaBlocks(InputStream input, File outfile, final Progress progress)
+            throws Exception {
+        long remaining = input.available();
+        int version = readIntLE(input);
+        if (version != BLOCKS_FORMAT_VERSION) {
+            Log.w(TAG, "Unsupported block format version: " + version);
+            return false;
+        }
+        int blockCount = readIntLE(input);
+        long totalSize = readLongLE(input);
+        remaining -= BLOCKS_HEADER_SIZE;
+        if (blockCount <= 0 || blockCount > remaining / BLOCK_ENTRY_SIZE || totalSize <= 0) {
+            Log.w(TAG, "Invalid block header: " + blockCount + " blocks, " + totalSize + " bytes");
+            return false;
+        }
+        remaining -= (long) blockCount * BLOCK_ENTRY_SIZE;
+
+        int[] rawSizes = new int[blockCount];
+        int[] compressedSizes = new int[blockCount];
+        long rawTotal = 0;
+        for (int i = 0; i < blockCount; ++i) {
+            rawSizes[i] = readIntLE(input);
+            compressedSizes[i] = readIntLE(input);
+            if (rawSizes[i] < 0 || compressedSizes[i] < LZMA_PROPERTIES_SIZE + LZMA_OUT_SIZE_LENGTH
+                    || compressedSizes[i] > remaining) {
+                Log.w(TAG, "Invalid size of block " + i);
+                return false;
+            }
+            remaining -= compressedSizes[i];
+            rawTotal += rawSizes[i];
+        }
+        if (rawTotal != totalSize) {
+            Log.w(TAG, "Block sizes don't add up to " + totalSize + " bytes");
+            return false;
+        }
+        File dir = outfile.getAbsoluteFile().getParentFile();
+        if (dir != null && totalSize > dir.getUsableSpace()) {
+            Log.w(TAG, "Not enough space for " + totalSize + " bytes");
+            return false;
+        }
+        progress.setLibrarySize(totalSize);
+
+        int threads = Math.max(1,
+                Math.min(Runtime.getRuntime().availableProcessors(), blockCount));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final Semaphore inFlight = new Semaphore(threads * BLOCKS_IN_FLIGHT_PER_THREAD);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        RandomAccessFile file = new RandomAccessFile(outfile, "rw");
+        try {
+            file.setLength(totalSize);
+            final FileChannel channel = file.getChannel();
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(blockCount);
+            long offset = 0;
+            for (int i = 0; i < blockCount && !failed.get(); ++i) {
+                inFlight.acquire();
+                final byte[] data = new byte[compressedSizes[i]];
+                try {
+                    readFully(input, data);
+                } catch (IOException e) {
+                    inFlight.release();
+                    throw e;
+                }
+                final long blockOffset = offset;
+                final int rawSize = rawSizes[i];
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws IOException {
+                        try {
+                            boolean success = decodeLzmaBlock(data, channel, blockOffset, rawSize);
+                            if (!success) failed.set(true);
+                            progress.add(rawSize);
+                            return success;
+                        } finally {
+                            inFlight.release();
+                        }
+                    }
+                }));
+                offset += rawSize;
+            }
+
+            boolean success = offset == totalSize;
+            for (Future<Boolean> result : results) {
+                if (!result.get()) success = false;
+            }
+            if (success) channel.force(false);
+            return success && !failed.get();
+        } finally {
+            executor.shutdownNow();
+            file.close();
+        }
+    }
+
+    private static boolean decodeLzmaBlock(byte[] data, FileChannel channel, long offset, int rawSize)
+            throws IOException {
+        if (data.length < LZMA_PROPERTIES_SIZE + LZMA_OUT_SIZE_LENGTH) {
+            Log.w(TAG, "Compressed block is too short");
+            return false;
+        }
+
+        byte[] properties = new byte[LZMA_PROPERTIES_SIZE];
+        System.arraycopy(data, 0, properties, 0, LZMA_PROPERTIES_SIZE);
+        Decoder decoder = new Decoder();
+        if (!decoder.SetDecoderProperties(properties)) {
+            Log.w(TAG, "Incorrect stream properties");
+            return false;
+        }
+
+        // The block's own size field is ignored, the header of the container
+        // is authoritative.
+        int start = LZMA_PROPERTIES_SIZE + LZMA_OUT_SIZE_LENGTH;
+        InputStream input = new ByteArrayInputStream(data, start, data.length - start);
+        ChannelOutputStream output = new ChannelOutputStream(channel, offset);
+        if (!decoder.Code(input, output, rawSize)) {
+            Log.w(TAG, "Error in data stream");
+            return false;
+        }
+        output.flush();
+        return output.getWritten() == rawSize;
+    }
+
     private static boolean decodeLzma(InputStream input, OutputStream output) throws IOException {
         final int propSize = 5;
         final int outSizeLength = 8;
@@ -108,6 +309,28 @@ public class XWalkCompressUtil {
         return true;
     }
 
+    private static void readFully(InputStream input, byte[] buffer) throws IOException {
+        int read = 0;
+        while (read < buffer.length) {
+            int n = input.read(buffer, read, buffer.length - read);
+            if (n < 0) throw new EOFException("Compressed library is truncated");
+            read += n;
+        }
+    }
+
+    private static int readIntLE(InputStream input) throws IOException {
+        byte[] bytes = new byte[4];
+        readFully(input, bytes);
+        return (bytes[0] & 0xff) | (bytes[1] & 0xff) << 8
+                | (bytes[2] & 0xff) << 16 | (bytes[3] & 0xff) << 24;
+    }
+
+    private static long readLongLE(InputStream input) throws IOException {
+        long low = readIntLE(input) & 0xffffffffL;
+        long high = readIntLE(input) & 0xffffffffL;
+        return low | high << 32;
+    }
+
     private static InputStream openRawResource(Context context, String library) {
         Resources res = context.getResources();
         String libraryName = library.split("\\.")[0];
@@ -124,4 +347,99 @@ public class XWalkCompressUtil {
 
         return is;
     }
+
+    /**
+     * Writes through a buffer to a fixed region of a FileChannel, so that
+     * several blocks can be written to the same file concurrently.
+     */
+    private static class ChannelOutputStream extends OutputStream {
+        private final FileChannel mChannel;
+        private final ByteBuffer mBuffer = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+        private long mPosition;
+        private long mWritten = 0;
+
+        ChannelOutputStream(FileChannel channel, long position) {
+            mChannel = channel;
+            mPosition = position;
+        }
+
+        long getWritten() {
+            return mWritten;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!mBuffer.hasRemaining()) flush();
+            mBuffer.put((byte) b);
+            ++mWritten;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!mBuffer.hasRemaining()) flush();
+                int n = Math.min(len, mBuffer.remaining());
+                mBuffer.put(b, off, n);
+                off += n;
+                len -= n;
+                mWritten += n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            mBuffer.flip();
+            while (mBuffer.hasRemaining()) {
+                mPosition += mChannel.write(mBuffer, mPosition);
+            }
+            mBuffer.clear();
+        }
+    }
+
+    /**
+     * Turns the bytes decoded so far into an overall percentage. Each
+     * library counts for the same share, whatever its size.
+     */
+    private static class Progress {
+        private final int mLibraryCount;
+        private final ValueCallback<Integer> mCallback;
+        private int mLibrary = 0;
+        private long mLibrarySize = 1;
+        private long mDecoded = 0;
+        private int mLastPercent = -1;
+
+        Progress(int libraryCount, ValueCallback<Integer> callback) {
+            mLibraryCount = Math.max(1, libraryCount);
+            mCallback = callback;
+        }
+
+        synchronized void startLibrary(int library) {
+            mLibrary = library;
+            mLibrarySize = 1;
+            mDecoded = 0;
+            report();
+        }
+
+        synchronized void setLibrarySize(long size) {
+            mLibrarySize = Math.max(1, size);
+        }
+
+        synchronized void add(long decoded) {
+            mDecoded = Math.min(mLibrarySize, mDecoded + decoded);
+            report();
+        }
+
+        synchronized void finishLibrary() {
+            mDecoded = mLibrarySize;
+            report();
+        }
+
+        private void report() {
+            if (mCallback == null) return;
+            int percent = (int) ((mLibrary * 100L + mDecoded * 100L / mLibrarySize) / mLibraryCount);
+            if (percent == mLastPercent) return;
+            mLastPercent = percent;
+            mCallback.onReceiveValue(percent);
+        }
+    }
 }
@@ -12,7 +12,9 @@ import android.content.SharedPreferences;
 import android.graphics.Rect;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.view.View;
 import android.view.WindowManager;
 import android.text.TextUtils;
@@ -27,6 +29,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import org.chromium.base.CalledByNative;
 import org.chromium.base.JNINamespace;
 import org.chromium.base.ThreadUtils;
@@ -71,6 +76,10 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
     private NavigationController mNavigationController;
     private WebContents mWebContents;
     private boolean mIsLoaded = false;
+    // Kept to be applied again when the native contents are replaced.
+    private String[] mInterceptUrlPrefixes;
+    private String[] mInterceptHosts;
+    private String[] mInterceptUrlPatterns;
 
     long mNativeContent;
     long mNativeWebContents;
@@ -98,6 +107,7 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
 
     public XWalkContent(Context context, AttributeSet attrs, XWalkViewInternal xwView) {
         super(context, attrs);
+        int trace = XWalkStartupTracerInternal.begin("XWalkContent");
 
         // Initialize the WebContensDelegate.
         mXWalkView = xwView;
@@ -115,12 +125,16 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
         MediaPlayerBridge.setResourceLoadingFilter(
                 new XWalkMediaPlayerResourceLoadingFilter());
 
-        setNativeContent(nativeInit());
+        long nativeContent = XWalkViewPoolInternal.take();
+        setNativeContent(nativeContent != 0 ? nativeContent : nativeInit());
 
         XWalkPreferencesInternal.load(this);
+        XWalkViewPoolInternal.onContentCreated(context);
+        XWalkStartupTracerInternal.end(trace);
     }
 
     private void setNativeContent(long newNativeContent) {
+        int trace = XWalkStartupTracerInternal.begin("XWalkContent.setNativeContent");
         if (mNativeContent != 0) {
             destroy();
             mContentViewCore = null;
@@ -184,6 +198,25 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
 
         nativeSetJavaPeers(mNativeContent, this, mXWalkContentsDelegateAdapter, mContentsClientBridge,
                 mIoThreadClient, mContentsClientBridge.getInterceptNavigationDelegate());
+        if (mInterceptUrlPrefixes != null || mInterceptHosts != null ||
+                mInterceptUrlPatterns != null) {
+            nativeSetInterceptUrlPatterns(mNativeContent, mInterceptUrlPrefixes,
+                    mInterceptHosts, mInterceptUrlPatterns);
+        }
+        XWalkStartupTracerInternal.end(trace);
+    }
+
+    /**
+     * Creates native contents not bound to any XWalkContent yet, and starts
+     * their renderer process. They're released with destroyNativeContent()
+     * unless an XWalkContent takes them.
+     */
+    static long createDetachedNativeContent() {
+        return nativeInitDetached();
+    }
+
+    static void destroyNativeContent(long nativeXWalkContent) {
+        nativeDestroy(nativeXWalkContent);
     }
 
     public void supplyContentsForPopup(XWalkContent newContents) {
@@ -489,9 +522,114 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
             }
         }
 
-        // Calculate the base url of manifestUrl. Used by native side.
-        // TODO(yongsheng): It's from runtime side. Need to find a better way
-        // to get base url.
+        if (!nativeSetManifest(mNativeContent, getManifestBaseUrl(url), content)) {
+            throw new RuntimeException("Failed to parse the manifest file: " + url);
+        }
+        mIsLoaded = true;
+    }
+
+    /**
+     * Like loadAppFromManifest(), but the manifest is read and parsed by
+     * native on a background thread while the renderer process starts. The
+     * parsed manifest is then set, and the navigation started, on the UI
+     * thread.
+     *
+     * The callback is called on the UI thread with a JSON report of the
+     * timings in milliseconds: "readTime" and "parseTime" on the background
+     * thread, "setManifestTime" on the UI thread and "navigationStartTime"
+     * since the call. It has an "error" instead when the manifest can't be
+     * loaded.
+     */
+    public void loadAppFromManifestAsync(final String url, final String data,
+            final ValueCallback<String> callback) {
+        if (mNativeContent == 0 ||
+                ((url == null || url.isEmpty()) &&
+                        (data == null || data.isEmpty()))) {
+            reportManifestLoad(callback, "Nothing to load", null);
+            return;
+        }
+
+        final long startTime = SystemClock.elapsedRealtime();
+        nativeWarmUpRenderer(mNativeContent);
+        final Context context = mXWalkView.getActivity();
+
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final JSONObject timings = new JSONObject();
+                String content = data;
+                long parsed = 0;
+                String error = null;
+                try {
+                    long time = SystemClock.elapsedRealtime();
+                    if (data == null || data.isEmpty()) {
+                        content = AndroidProtocolHandler.getUrlContent(context, url);
+                    }
+                    timings.put("readTime", SystemClock.elapsedRealtime() - time);
+
+                    // Parsed once, by native, the UI thread only applies it.
+                    time = SystemClock.elapsedRealtime();
+                    parsed = nativeParseManifest(content);
+                    if (parsed == 0) error = "Failed to parse the manifest file: " + url;
+                    timings.put("parseTime", SystemClock.elapsedRealtime() - time);
+                } catch (IOException e) {
+                    error = "Failed to read the manifest: " + url;
+                } catch (RuntimeException e) {
+                    error = "Failed to read the manifest: " + url;
+                } catch (JSONException e) {
+                }
+
+                final long parsedManifest = parsed;
+                final String readError = error;
+                ThreadUtils.postOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (readError != null || mNativeContent == 0) {
+                            if (parsedManifest != 0) nativeReleaseParsedManifest(parsedManifest);
+                            reportManifestLoad(callback,
+                                    readError != null ? readError : "The view is destroyed",
+                                    null);
+                            return;
+                        }
+
+                        long time = SystemClock.elapsedRealtime();
+                        if (!nativeSetParsedManifest(mNativeContent, getManifestBaseUrl(url),
+                                parsedManifest)) {
+                            reportManifestLoad(callback,
+                                    "Failed to parse the manifest file: " + url, null);
+                            return;
+                        }
+                        mIsLoaded = true;
+                        long now = SystemClock.elapsedRealtime();
+                        try {
+                            timings.put("setManifestTime", now - time);
+                            timings.put("navigationStartTime", now - startTime);
+                        } catch (JSONException e) {
+                        }
+                        reportManifestLoad(callback, null, timings);
+                    }
+                });
+            }
+        });
+    }
+
+    private void reportManifestLoad(ValueCallback<String> callback, String error,
+            JSONObject timings) {
+        if (error != null) {
+            Log.e(TAG, error);
+            timings = new JSONObject();
+            try {
+                timings.put("error", error);
+            } catch (JSONException e) {
+            }
+        }
+        if (callback != null) callback.onReceiveValue(timings.toString());
+    }
+
+    // Calculate the base url of manifestUrl. Used by native side.
+    // TODO(yongsheng): It's from runtime side. Need to find a better way
+    // to get base url.
+    private static String getManifestBaseUrl(String url) {
         String baseUrl = url;
         int position = url.lastIndexOf("/");
         if (position != -1) {
@@ -499,11 +637,7 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
         } else {
             Log.w(TAG, "The url of manifest.json is probably not set correctly.");
         }
-
-        if (!nativeSetManifest(mNativeContent, baseUrl, content)) {
-            throw new RuntimeException("Failed to parse the manifest file: " + url);
-        }
-        mIsLoaded = true;
+        return baseUrl;
     }
 
     public XWalkNavigationHistoryInternal getNavigationHistory() {
@@ -627,6 +761,10 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
             // but it's a workable way.
             mContentsClientBridge.getCallbackHelper().postOnResourceLoadStarted(url);
 
+            InterceptedRequestData cachedRequestData =
+                    mContentsClientBridge.getCachedInterceptedRequest(url);
+            if (cachedRequestData != null) return cachedRequestData;
+
             WebResourceResponse webResourceResponse = mContentsClientBridge.shouldInterceptRequest(url);
             InterceptedRequestData interceptedRequestData = null;
 
@@ -637,9 +775,11 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
                     mContentsClientBridge.getCallbackHelper().postOnReceivedError(
                             XWalkResourceClientInternal.ERROR_UNKNOWN, null, url);
                 }
-                interceptedRequestData = new InterceptedRequestData(webResourceResponse.getMimeType(),
-                                                                    webResourceResponse.getEncoding(),
-                                                                    webResourceResponse.getData());
+                String mimeType = webResourceResponse.getMimeType();
+                String encoding = webResourceResponse.getEncoding();
+                interceptedRequestData = new InterceptedRequestData(mimeType, encoding,
+                        mContentsClientBridge.cacheInterceptedRequest(url, mimeType, encoding,
+                                webResourceResponse.getData()));
             }
             return interceptedRequestData;
         }
@@ -767,9 +907,21 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
             if (mSettings != null) {
                 mSettings.setSupportMultipleWindows(value.getBooleanValue());
             }
+        } else if (key.equals(XWalkPreferencesInternal.COALESCE_RESOURCE_CALLBACKS)) {
+            mContentsClientBridge.getCallbackHelper().setCoalesceResourceCallbacks(
+                    value.getBooleanValue());
         }
     }
 
+    public void setInterceptLoadRequestFilter(String[] urlPrefixes, String[] hosts,
+            String[] urlPatterns) {
+        mInterceptUrlPrefixes = urlPrefixes;
+        mInterceptHosts = hosts;
+        mInterceptUrlPatterns = urlPatterns;
+        if (mNativeContent == 0) return;
+        nativeSetInterceptUrlPatterns(mNativeContent, urlPrefixes, hosts, urlPatterns);
+    }
+
     public void setOverlayVideoMode(boolean enabled) {
         if (mContentViewRenderView != null) {
             mContentViewRenderView.setOverlayVideoMode(enabled);
@@ -782,6 +934,7 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
     }
 
     private native long nativeInit();
+    private static native long nativeInitDetached();
     private static native void nativeDestroy(long nativeXWalkContent);
     private native WebContents nativeGetWebContents(long nativeXWalkContent);
     private native long nativeReleasePopupXWalkContent(long nativeXWalkContent);
@@ -797,6 +950,13 @@ class XWalkContent extends FrameLayout implements XWalkPreferencesInternal.KeyVa
     private native String nativeGetVersion(long nativeXWalkContent);
     private native void nativeSetJsOnlineProperty(long nativeXWalkContent, boolean networkUp);
     private native boolean nativeSetManifest(long nativeXWalkContent, String path, String manifest);
+    private static native long nativeParseManifest(String manifest);
+    private static native void nativeReleaseParsedManifest(long parsedManifest);
+    private native boolean nativeSetParsedManifest(long nativeXWalkContent, String path,
+            long parsedManifest);
+    private native void nativeWarmUpRenderer(long nativeXWalkContent);
+    private native void nativeSetInterceptUrlPatterns(long nativeXWalkContent,
+            String[] urlPrefixes, String[] hosts, String[] urlPatterns);
     private native int nativeGetRoutingID(long nativeXWalkContent);
     private native void nativeInvokeGeolocationCallback(
             long nativeXWalkContent, boolean value, String requestingFrame);
@@ -24,6 +24,8 @@ import android.webkit.ConsoleMessage;
 import android.webkit.ValueCallback;
 import android.webkit.WebResourceResponse;
 
+import java.io.InputStream;
+
 import org.chromium.base.CalledByNative;
 import org.chromium.base.JNINamespace;
 import org.chromium.base.ThreadUtils;
@@ -237,6 +239,21 @@ class XWalkContentsClientBridge extends XWalkContentsClient
         return null;
     }
 
+    // The intercepted responses are cached per resource client, see
+    // XWalkInterceptCacheInternal. Called on the IO thread.
+    public InterceptedRequestData getCachedInterceptedRequest(String url) {
+        if (isOwnerActivityRunning()) {
+            return XWalkInterceptCacheInternal.get(mXWalkResourceClient, url);
+        }
+        return null;
+    }
+
+    public InputStream cacheInterceptedRequest(String url, String mimeType, String encoding,
+            InputStream data) {
+        return XWalkInterceptCacheInternal.put(mXWalkResourceClient, url, mimeType, encoding,
+                data);
+    }
+
     @Override
     public void onResourceLoadStarted(String url) {
         if (isOwnerActivityRunning()) {
@@ -244,6 +261,13 @@ class XWalkContentsClientBridge extends XWalkContentsClient
         }
     }
 
+    @Override
+    public void onResourceLoadsStarted(String[] urls) {
+        if (isOwnerActivityRunning()) {
+            mXWalkResourceClient.onLoadsStarted(mXWalkView, urls);
+        }
+    }
+
     @Override
     public void onResourceLoadFinished(String url) {
         if (isOwnerActivityRunning()) {
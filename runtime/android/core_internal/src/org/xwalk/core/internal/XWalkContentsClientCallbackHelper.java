@@ -9,6 +9,8 @@ import android.os.Looper;
 import android.os.Message;
 import android.util.Log;
 
+import java.util.ArrayList;
+
 import org.chromium.content.browser.ContentViewCore;
 
 /**
@@ -66,18 +68,41 @@ class XWalkContentsClientCallbackHelper {
         }
     }
 
+    private static class ResourceEvent {
+        final boolean mIsStart;
+        final String mUrl;
+
+        ResourceEvent(boolean isStart, String url) {
+            mIsStart = isStart;
+            mUrl = url;
+        }
+    }
+
     private final static int MSG_ON_LOAD_RESOURCE = 1;
     private final static int MSG_ON_PAGE_STARTED = 2;
     private final static int MSG_ON_DOWNLOAD_START = 3;
     private final static int MSG_ON_RECEIVED_LOGIN_REQUEST = 4;
     private final static int MSG_ON_RECEIVED_ERROR = 5;
     private final static int MSG_ON_RESOURCE_LOAD_STARTED = 6;
+    private final static int MSG_ON_RESOURCES_BATCH = 7;
+
+    // Resource callbacks are delivered at most once per frame when coalesced.
+    private final static long RESOURCES_BATCH_DELAY_MS = 16;
 
     private final XWalkContentsClient mContentsClient;
 
+    // Guarded by mResourcesBatchLock, the requests come from the IO thread.
+    private final Object mResourcesBatchLock = new Object();
+    private ArrayList<ResourceEvent> mResourceEvents = new ArrayList<ResourceEvent>();
+    private boolean mResourcesBatchPosted = false;
+    private volatile boolean mCoalesceResourceCallbacks = false;
+
     private final Handler mHandler = new Handler(Looper.getMainLooper()) {
         @Override
         public void handleMessage(Message msg) {
+            // Keep the order of the resources batched so far with the other callbacks.
+            if (msg.what != MSG_ON_RESOURCES_BATCH) deliverResourcesBatch();
+
             switch(msg.what) {
                 case MSG_ON_LOAD_RESOURCE: {
                     final String url = (String) msg.obj;
@@ -111,6 +136,10 @@ class XWalkContentsClientCallbackHelper {
                     mContentsClient.onResourceLoadStarted(url);
                     break;
                 }
+                case MSG_ON_RESOURCES_BATCH: {
+                    deliverResourcesBatch();
+                    break;
+                }
                 default:
                     throw new IllegalStateException(
                             "XWalkContentsClientCallbackHelper: unhandled message " + msg.what);
@@ -122,7 +151,19 @@ class XWalkContentsClientCallbackHelper {
         mContentsClient = contentsClient;
     }
 
+    /**
+     * When enabled, the resource load callbacks posted within a frame interval
+     * are delivered together in one message.
+     */
+    public void setCoalesceResourceCallbacks(boolean enabled) {
+        mCoalesceResourceCallbacks = enabled;
+    }
+
     public void postOnLoadResource(String url) {
+        if (mCoalesceResourceCallbacks) {
+            addToResourcesBatch(new ResourceEvent(false, url));
+            return;
+        }
         mHandler.sendMessage(mHandler.obtainMessage(MSG_ON_LOAD_RESOURCE, url));
     }
 
@@ -148,6 +189,51 @@ class XWalkContentsClientCallbackHelper {
     }
 
     public void postOnResourceLoadStarted(String url) {
+        if (mCoalesceResourceCallbacks) {
+            addToResourcesBatch(new ResourceEvent(true, url));
+            return;
+        }
         mHandler.sendMessage(mHandler.obtainMessage(MSG_ON_RESOURCE_LOAD_STARTED, url));
     }
+
+    private void addToResourcesBatch(ResourceEvent event) {
+        synchronized (mResourcesBatchLock) {
+            mResourceEvents.add(event);
+            if (mResourcesBatchPosted) return;
+            mResourcesBatchPosted = true;
+        }
+        mHandler.sendMessageDelayed(mHandler.obtainMessage(MSG_ON_RESOURCES_BATCH),
+                RESOURCES_BATCH_DELAY_MS);
+    }
+
+    private void deliverResourcesBatch() {
+        ArrayList<ResourceEvent> events;
+        synchronized (mResourcesBatchLock) {
+            if (mResourceEvents.isEmpty()) return;
+            events = mResourceEvents;
+            mResourceEvents = new ArrayList<ResourceEvent>();
+            // The next resource posts a new batch.
+            mResourcesBatchPosted = false;
+        }
+
+        // Consecutive starts are delivered together, onLoadResource() has no
+        // batched form and is delivered between them as it was posted.
+        ArrayList<String> started = new ArrayList<String>();
+        for (ResourceEvent event : events) {
+            if (event.mIsStart) {
+                started.add(event.mUrl);
+                continue;
+            }
+            deliverResourcesStarted(started);
+            mContentsClient.onLoadResource(event.mUrl);
+        }
+        deliverResourcesStarted(started);
+    }
+
+    private void deliverResourcesStarted(ArrayList<String> started) {
+        if (started.isEmpty()) return;
+
+        mContentsClient.onResourceLoadsStarted(started.toArray(new String[started.size()]));
+        started.clear();
+    }
 }
@@ -4,6 +4,8 @@
 
 package org.xwalk.core.internal;
 
+import java.nio.ByteBuffer;
+
 import org.xwalk.core.internal.extensions.XWalkExtensionAndroid;
 
 /**
@@ -11,6 +13,37 @@ import org.xwalk.core.internal.extensions.XWalkExtensionAndroid;
  */
 @XWalkAPI
 public abstract class XWalkExtensionInternal extends XWalkExtensionAndroid {
+    /**
+     * onMessage() is called on the extension thread shared by all extensions.
+     * This is the default.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static final int DISPATCH_SHARED_THREAD = 0;
+
+    /**
+     * onMessage() is called, in order, on a thread of the extension's own.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static final int DISPATCH_SERIAL = 1;
+
+    /**
+     * onMessage() is called concurrently by a bounded pool of threads of the
+     * extension's own, so messages may be handled out of order.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static final int DISPATCH_CONCURRENT = 2;
+
+    /**
+     * The time in milliseconds after which a sync message not replied to
+     * gets an empty reply.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static final int DEFAULT_SYNC_REPLY_TIMEOUT = 10000;
+
     /**
      * Constructor with name and javascript API.
      * @param name  the exposed namespace.
@@ -54,6 +87,19 @@ public abstract class XWalkExtensionInternal extends XWalkExtensionAndroid {
         super.postMessage(instanceID, message);
     }
 
+    /**
+     * Send binary message to an instance, it is received by JavaScript as an
+     * ArrayBuffer. The bytes between the position and the limit of the buffer
+     * are sent, the position is not changed. Direct buffers avoid a copy.
+     * @param instanceID the id of instance.
+     * @param message the message.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public void postBinaryMessage(int instanceID, ByteBuffer message) {
+        super.postBinaryMessage(instanceID, message);
+    }
+
     /**
      * Broadcast message to all extension instances.
      * @param message the message.
@@ -64,6 +110,76 @@ public abstract class XWalkExtensionInternal extends XWalkExtensionAndroid {
         super.broadcastMessage(message);
     }
 
+    /**
+     * Reply to a sync message received by onDeferredSyncMessage(). It can be
+     * called on any thread. Replies coming after the timeout are dropped.
+     * @param instanceID the id of instance.
+     * @param replyID the id of the sync message.
+     * @param reply the reply.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public void sendSyncReply(int instanceID, int replyID, String reply) {
+        super.sendSyncReply(instanceID, replyID, reply);
+    }
+
+    /**
+     * Set the time the page waits for the reply to a sync message before it
+     * gets an empty one. Default value is DEFAULT_SYNC_REPLY_TIMEOUT.
+     * @param timeout the time in milliseconds.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public void setSyncReplyTimeout(int timeout) {
+        super.setSyncReplyTimeout(timeout);
+    }
+
+    /**
+     * Get the time the page waits for the reply to a sync message.
+     * @return the time in milliseconds.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public int getSyncReplyTimeout() {
+        return super.getSyncReplyTimeout();
+    }
+
+    /**
+     * Set the thread onMessage() is called on, so that a slow extension
+     * doesn't hold back the messages of the others.
+     * @param policy one of DISPATCH_SHARED_THREAD, DISPATCH_SERIAL and
+     *               DISPATCH_CONCURRENT.
+     * @param poolSize the number of threads for DISPATCH_CONCURRENT.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public void setMessageDispatchPolicy(int policy, int poolSize) {
+        super.setMessageDispatchPolicy(policy, poolSize);
+    }
+
+    /**
+     * Get the message dispatch policy.
+     * @return the message dispatch policy.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public int getMessageDispatchPolicy() {
+        return super.getMessageDispatchPolicy();
+    }
+
+    /**
+     * Get the message metrics of this extension as a JSON object, with the
+     * current and maximum "queueDepth", the "messageCount", and the average
+     * and maximum times in microseconds messages waited before being handled
+     * and were handled for.
+     * @return the JSON message metrics.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public String getMessageStats() {
+        return super.getMessageStats();
+    }
+
     /**
      * Notify the extension that the async message is received.
      * @param instanceID the id of instance.
@@ -73,6 +189,19 @@ public abstract class XWalkExtensionInternal extends XWalkExtensionAndroid {
     @XWalkAPI
     public abstract void onMessage(int instanceID, String message);
 
+    /**
+     * Notify the extension that a binary message, an ArrayBuffer or a typed
+     * array posted by JavaScript, is received. The message is a direct buffer
+     * that is only valid until this method returns. It is ignored by default.
+     * @param instanceID the id of instance.
+     * @param message the received message.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public void onBinaryMessage(int instanceID, ByteBuffer message) {
+        super.onBinaryMessage(instanceID, message);
+    }
+
     /**
      * Notify the extension that the sync message is received.
      * @param instanceID the id of instance.
@@ -81,4 +210,20 @@ public abstract class XWalkExtensionInternal extends XWalkExtensionAndroid {
      */
     @XWalkAPI
     public abstract String onSyncMessage(int instanceID, String message);
+
+    /**
+     * Notify the extension that the sync message is received, the page being
+     * blocked until sendSyncReply() is called with replyID. It is called
+     * according to the dispatch policy, and replies with the value returned
+     * by onSyncMessage() by default. Override it to reply later, without
+     * holding back the messages of the other extensions.
+     * @param instanceID the id of instance.
+     * @param replyID the id of the sync message.
+     * @param message the received message.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public void onDeferredSyncMessage(int instanceID, int replyID, String message) {
+        super.onDeferredSyncMessage(instanceID, replyID, message);
+    }
 }
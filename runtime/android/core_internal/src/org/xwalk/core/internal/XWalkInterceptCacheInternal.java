@@ -0,0 +1,352 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal;
+
+import android.util.JsonWriter;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class keeps the responses returned by
+ * XWalkResourceClientInternal.shouldInterceptLoadRequest() in memory, so that
+ * repeated requests for the same url are served without asking the client
+ * again. It is meant for packaged resources whose content doesn't change.
+ *
+ * The responses are kept per resource client: the XWalkViewInternal
+ * instances sharing a client share its responses, the others never see
+ * them. A response is cached while it is read by the network stack, once it
+ * has been read to its end. The cache is disabled by default, and the least
+ * recently used responses are evicted when it is full.
+ */
+@XWalkAPI(noInstance = true)
+public class XWalkInterceptCacheInternal {
+    private static final String TAG = "XWalkInterceptCache";
+    private static final int BUFFER_SIZE = 8192;
+
+    private static class Entry {
+        final String mMimeType;
+        final String mEncoding;
+        final ByteBuffer mData;
+
+        Entry(String mimeType, String encoding, ByteBuffer data) {
+            mMimeType = mimeType;
+            mEncoding = encoding;
+            mData = data;
+        }
+    }
+
+    // Identifies a response by its url and the client that returned it,
+    // without keeping the client alive.
+    private static class Key {
+        final WeakReference<Object> mClient;
+        final int mClientHash;
+        final String mUrl;
+
+        Key(Object client, String url) {
+            mClient = new WeakReference<Object>(client);
+            mClientHash = System.identityHashCode(client);
+            mUrl = url;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof Key)) return false;
+            Key key = (Key) other;
+            Object client = mClient.get();
+            return client != null && client == key.mClient.get() && mUrl.equals(key.mUrl);
+        }
+
+        @Override
+        public int hashCode() {
+            return mClientHash * 31 + mUrl.hashCode();
+        }
+    }
+
+    // Copies the response as it is read, and caches it once it has been
+    // read to its end. Responses which are skipped, closed early or bigger
+    // than the cache are not kept.
+    private static class CachingInputStream extends FilterInputStream {
+        private final Key mKey;
+        private final String mMimeType;
+        private final String mEncoding;
+        private final int mMaxSize;
+        private ByteArrayOutputStream mCopy = new ByteArrayOutputStream(BUFFER_SIZE);
+
+        CachingInputStream(Key key, String mimeType, String encoding, int maxSize,
+                InputStream data) {
+            super(data);
+            mKey = key;
+            mMimeType = mimeType;
+            mEncoding = encoding;
+            mMaxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value == -1) {
+                onEnd();
+            } else if (mCopy != null) {
+                mCopy.write(value);
+                checkSize();
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count == -1) {
+                onEnd();
+            } else if (mCopy != null && count > 0) {
+                mCopy.write(buffer, offset, count);
+                checkSize();
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            mCopy = null;
+            return super.skip(count);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void mark(int readLimit) {
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+
+        @Override
+        public void close() throws IOException {
+            mCopy = null;
+            super.close();
+        }
+
+        private void checkSize() {
+            if (mCopy.size() > mMaxSize) mCopy = null;
+        }
+
+        private void onEnd() {
+            if (mCopy == null) return;
+            store(mKey, mMimeType, mEncoding, mCopy.toByteArray());
+            mCopy = null;
+        }
+    }
+
+    // Reads a shared buffer without changing its position.
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer.duplicate();
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? (mBuffer.get() & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) return 0;
+            if (!mBuffer.hasRemaining()) return -1;
+            length = Math.min(length, mBuffer.remaining());
+            mBuffer.get(buffer, offset, length);
+            return length;
+        }
+    }
+
+    private static final LinkedHashMap<Key, Entry> sEntries =
+            new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private static int sMaxSize = 0;
+    private static int sSize = 0;
+    private static boolean sUseDirectBuffers = false;
+    private static long sHitCount = 0;
+    private static long sMissCount = 0;
+    private static long sEvictionCount = 0;
+
+    /**
+     * Set the maximum number of bytes kept by the cache. Setting 0, the
+     * default, disables the cache and releases what it holds.
+     * @param maxSize the maximum size in bytes.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static synchronized void setMaxSize(int maxSize) {
+        sMaxSize = Math.max(maxSize, 0);
+        trimToSize(sMaxSize);
+    }
+
+    /**
+     * Get the maximum number of bytes kept by the cache.
+     * @return the maximum size in bytes.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static synchronized int getMaxSize() {
+        return sMaxSize;
+    }
+
+    /**
+     * Set whether the responses cached from now on are kept out of the Java
+     * heap, in direct byte buffers. Default value is false.
+     * @param enabled true to use direct byte buffers.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static synchronized void setUseDirectBuffers(boolean enabled) {
+        sUseDirectBuffers = enabled;
+    }
+
+    /**
+     * Remove the cached responses of a url, e.g. after its content changed.
+     * @param url the url of the responses.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static synchronized void remove(String url) {
+        Iterator<Map.Entry<Key, Entry>> iterator = sEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+            if (!entry.getKey().mUrl.equals(url)) continue;
+            sSize -= entry.getValue().mData.capacity();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Remove all the cached responses. The statistics are kept.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static synchronized void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * Get the cache statistics as a JSON object with the "hitCount",
+     * "missCount" and "evictionCount" since the process started, and the
+     * current "entryCount", "size" and "maxSize" in bytes.
+     * @return the JSON statistics.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static synchronized String getStats() {
+        StringWriter output = new StringWriter();
+        JsonWriter writer = new JsonWriter(output);
+        try {
+            writer.beginObject();
+            writer.name("hitCount").value(sHitCount);
+            writer.name("missCount").value(sMissCount);
+            writer.name("evictionCount").value(sEvictionCount);
+            writer.name("entryCount").value(sEntries.size());
+            writer.name("size").value(sSize);
+            writer.name("maxSize").value(sMaxSize);
+            writer.endObject();
+            writer.close();
+        } catch (IOException e) {
+            Log.e(TAG, "getStats: " + e.toString());
+            return "{}";
+        }
+        return output.toString();
+    }
+
+    /**
+     * Returns the response cached for the url and the resource client, or
+     * null if there is none.
+     * Called on the IO thread.
+     */
+    static InterceptedRequestData get(Object client, String url) {
+        Entry entry;
+        synchronized (XWalkInterceptCacheInternal.class) {
+            if (sMaxSize == 0) return null;
+            entry = sEntries.get(new Key(client, url));
+            if (entry == null) {
+                ++sMissCount;
+                return null;
+            }
+            ++sHitCount;
+        }
+        return new InterceptedRequestData(entry.mMimeType, entry.mEncoding,
+                new ByteBufferInputStream(entry.mData));
+    }
+
+    /**
+     * Returns the data to be served for the response returned by the
+     * resource client for the url. The response is cached once the returned
+     * stream has been read to its end, if it fits.
+     * Called on the IO thread.
+     */
+    static InputStream put(Object client, String url, String mimeType, String encoding,
+            InputStream data) {
+        int maxSize;
+        synchronized (XWalkInterceptCacheInternal.class) {
+            maxSize = sMaxSize;
+        }
+        if (maxSize == 0 || data == null) return data;
+
+        return new CachingInputStream(new Key(client, url), mimeType, encoding, maxSize, data);
+    }
+
+    private static void store(Key key, String mimeType, String encoding, byte[] data) {
+        boolean useDirectBuffers;
+        synchronized (XWalkInterceptCacheInternal.class) {
+            if (sMaxSize == 0 || data.length > sMaxSize) return;
+            useDirectBuffers = sUseDirectBuffers;
+        }
+
+        ByteBuffer content;
+        if (useDirectBuffers) {
+            content = ByteBuffer.allocateDirect(data.length);
+            content.put(data);
+            content.flip();
+        } else {
+            content = ByteBuffer.wrap(data);
+        }
+        content = content.asReadOnlyBuffer();
+
+        synchronized (XWalkInterceptCacheInternal.class) {
+            if (sMaxSize == 0) return;
+            Entry previous = sEntries.put(key, new Entry(mimeType, encoding, content));
+            if (previous != null) sSize -= previous.mData.capacity();
+            sSize += content.capacity();
+            trimToSize(sMaxSize);
+        }
+    }
+
+    private static void trimToSize(int size) {
+        Iterator<Map.Entry<Key, Entry>> iterator = sEntries.entrySet().iterator();
+        while (sSize > size && iterator.hasNext()) {
+            sSize -= iterator.next().getValue().mData.capacity();
+            iterator.remove();
+            ++sEvictionCount;
+        }
+    }
+}
@@ -140,6 +140,26 @@ public class XWalkPreferencesInternal {
     @XWalkAPI
     public static final String PROFILE_NAME = "profile-name";
 
+    /**
+     * The key string to set how many contacts the contacts extension keeps
+     * in memory between two searches. Cached contacts are dropped as soon
+     * as they change. 0, the default, disables the cache.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static final String CONTACTS_CACHE_SIZE = "contacts-cache-size";
+
+    /**
+     * The key string to enable/disable coalescing the resource load callbacks.
+     * When enabled, the resources started within a frame interval are notified
+     * together through XWalkResourceClientInternal.onLoadsStarted(), instead of
+     * posting one message to the UI thread for each of them. Default value is
+     * false.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static final String COALESCE_RESOURCE_CALLBACKS = "coalesce-resource-callbacks";
+
     /**
      * The key string to enable/disable javascript.
      * TODO(wang16): Remove this after cordova removes its dependency.
@@ -162,6 +182,8 @@ public class XWalkPreferencesInternal {
         sPrefMap.put(SUPPORT_MULTIPLE_WINDOWS, new PreferenceValue(false));
         sPrefMap.put(ENABLE_EXTENSIONS, new PreferenceValue(true));
         sPrefMap.put(PROFILE_NAME, new PreferenceValue("Default"));
+        sPrefMap.put(CONTACTS_CACHE_SIZE, new PreferenceValue(0));
+        sPrefMap.put(COALESCE_RESOURCE_CALLBACKS, new PreferenceValue(false));
     }
 
     /**
@@ -286,6 +308,21 @@ public class XWalkPreferencesInternal {
         return sPrefMap.get(key).getStringValue();
     }
 
+    /**
+     * Get the statistics of the contacts cache enabled by CONTACTS_CACHE_SIZE
+     * as a JSON object, with the "hitCount" and "missCount" since the process
+     * started, and the current "entryCount" and "maxSize" in contacts. The
+     * size set by CONTACTS_CACHE_SIZE is applied by the next contacts search.
+     * The object is empty until the contacts extension has been loaded.
+     * @return the JSON statistics.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static String getContactsCacheStats() {
+        String stats = XWalkStatsRegistry.getStats(XWalkStatsRegistry.CONTACTS_CACHE);
+        return stats == null ? "{}" : stats;
+    }
+
     static synchronized void load(KeyValueChangeListener listener) {
         // Load current settings for initialization of a listener implementor.
         for (Map.Entry<String, PreferenceValue> entry : sPrefMap.entrySet()) {
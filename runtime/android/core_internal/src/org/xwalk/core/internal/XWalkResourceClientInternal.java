@@ -146,6 +146,25 @@ public class XWalkResourceClientInternal {
     public void onLoadFinished(XWalkViewInternal view, String url) {
     }
 
+    /**
+     * Notify the client that the XWalkViewInternal will load the resources
+     * specified by the given urls. This is only called when
+     * XWalkPreferencesInternal.COALESCE_RESOURCE_CALLBACKS is enabled, with
+     * the resources started within a frame interval. By default, it calls
+     * onLoadStarted() for each of them. Only the starts are batched: the
+     * other resource callbacks are still delivered one by one, and a batch
+     * never spans one of them, so the order of the callbacks is unchanged.
+     * @param view the owner XWalkViewInternal instance.
+     * @param urls the urls for the resources to be loaded, in order.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public void onLoadsStarted(XWalkViewInternal view, String[] urls) {
+        for (String url : urls) {
+            onLoadStarted(view, url);
+        }
+    }
+
     /**
      * Notify the client the progress info of loading a specific url.
      * @param view the owner XWalkViewInternal instance.
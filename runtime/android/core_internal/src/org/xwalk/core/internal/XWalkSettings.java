@@ -12,6 +12,8 @@ import android.os.Message;
 import android.os.Process;
 import android.webkit.WebSettings;
 
+import java.util.ArrayList;
+
 import org.chromium.base.CalledByNative;
 import org.chromium.base.JNINamespace;
 import org.chromium.base.ThreadUtils;
@@ -70,6 +72,10 @@ public class XWalkSettings {
 
     // A flag to avoid sending superfluous synchronization messages.
     private boolean mIsUpdateWebkitPrefsMessagePending = false;
+    // Set while an Editor applies its changes, they are synced to native
+    // once at the end instead of once per change.
+    private boolean mIsApplyingEditor = false;
+    private boolean mEditorNeedsWebkitPrefsUpdate = false;
     // Custom handler that queues messages to call native code on the UI thread.
     private final EventHandler mEventHandler;
 
@@ -115,18 +121,28 @@ public class XWalkSettings {
         }
 
         private void updateWebkitPreferencesLocked() {
+            updateWebkitPreferencesLocked(true);
+        }
+
+        private void updateWebkitPreferencesLocked(boolean waitForSync) {
             assert Thread.holdsLock(mXWalkSettingsLock);
+            if (mIsApplyingEditor) {
+                mEditorNeedsWebkitPrefsUpdate = true;
+                return;
+            }
             if (mNativeXWalkSettings == 0) return;
             if (mHandler == null) return;
             if (ThreadUtils.runningOnUiThread()) {
                 updateWebkitPreferencesOnUiThread();
             } else {
                 // We're being called on a background thread, so post a message.
-                if (mIsUpdateWebkitPrefsMessagePending) {
-                    return;
+                // A message already pending reads the settings when it runs,
+                // so it carries this change too.
+                if (!mIsUpdateWebkitPrefsMessagePending) {
+                    mIsUpdateWebkitPrefsMessagePending = true;
+                    mHandler.sendMessage(Message.obtain(null, UPDATE_WEBKIT_PREFERENCES));
                 }
-                mIsUpdateWebkitPrefsMessagePending = true;
-                mHandler.sendMessage(Message.obtain(null, UPDATE_WEBKIT_PREFERENCES));
+                if (!waitForSync) return;
                 // We must block until the settings have been sync'd to native to
                 // ensure that they have taken effect.
                 try {
@@ -179,6 +195,241 @@ public class XWalkSettings {
         mNativeXWalkSettings = 0;
     }
 
+    /**
+     * Starts a batch of changes. The changes are made together by
+     * {@link Editor#commit} or {@link Editor#apply}, and synced to native
+     * once instead of once per setter.
+     */
+    public Editor edit() {
+        return new Editor();
+    }
+
+    /**
+     * Collects changes to the settings. Each setter has the same effect as
+     * the XWalkSettings setter of the same name. An Editor is meant to be
+     * used by a single thread.
+     */
+    public class Editor {
+        private final ArrayList<Runnable> mChanges = new ArrayList<Runnable>();
+
+        private Editor() {
+        }
+
+        public Editor setAllowScriptsToCloseWindows(final boolean allow) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setAllowScriptsToCloseWindows(allow);
+                }
+            });
+            return this;
+        }
+
+        public Editor setCacheMode(final int mode) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setCacheMode(mode);
+                }
+            });
+            return this;
+        }
+
+        public Editor setAllowFileAccess(final boolean allow) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setAllowFileAccess(allow);
+                }
+            });
+            return this;
+        }
+
+        public Editor setAllowContentAccess(final boolean allow) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setAllowContentAccess(allow);
+                }
+            });
+            return this;
+        }
+
+        public Editor setGeolocationEnabled(final boolean flag) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setGeolocationEnabled(flag);
+                }
+            });
+            return this;
+        }
+
+        public Editor setJavaScriptEnabled(final boolean flag) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setJavaScriptEnabled(flag);
+                }
+            });
+            return this;
+        }
+
+        public Editor setAllowUniversalAccessFromFileURLs(final boolean flag) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setAllowUniversalAccessFromFileURLs(flag);
+                }
+            });
+            return this;
+        }
+
+        public Editor setAllowFileAccessFromFileURLs(final boolean flag) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setAllowFileAccessFromFileURLs(flag);
+                }
+            });
+            return this;
+        }
+
+        public Editor setLoadsImagesAutomatically(final boolean flag) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setLoadsImagesAutomatically(flag);
+                }
+            });
+            return this;
+        }
+
+        public Editor setImagesEnabled(final boolean flag) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setImagesEnabled(flag);
+                }
+            });
+            return this;
+        }
+
+        public Editor setJavaScriptCanOpenWindowsAutomatically(final boolean flag) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setJavaScriptCanOpenWindowsAutomatically(flag);
+                }
+            });
+            return this;
+        }
+
+        public Editor setSupportMultipleWindows(final boolean support) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setSupportMultipleWindows(support);
+                }
+            });
+            return this;
+        }
+
+        public Editor setUseWideViewPort(final boolean use) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setUseWideViewPort(use);
+                }
+            });
+            return this;
+        }
+
+        public Editor setAppCacheEnabled(final boolean flag) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setAppCacheEnabled(flag);
+                }
+            });
+            return this;
+        }
+
+        public Editor setDomStorageEnabled(final boolean flag) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setDomStorageEnabled(flag);
+                }
+            });
+            return this;
+        }
+
+        public Editor setDatabaseEnabled(final boolean flag) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setDatabaseEnabled(flag);
+                }
+            });
+            return this;
+        }
+
+        public Editor setMediaPlaybackRequiresUserGesture(final boolean require) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setMediaPlaybackRequiresUserGesture(require);
+                }
+            });
+            return this;
+        }
+
+        public Editor setDefaultVideoPosterURL(final String url) {
+            mChanges.add(new Runnable() {
+                @Override
+                public void run() {
+                    XWalkSettings.this.setDefaultVideoPosterURL(url);
+                }
+            });
+            return this;
+        }
+
+        /**
+         * Makes the changes and waits until they have taken effect in
+         * native, as the XWalkSettings setters do.
+         */
+        public void commit() {
+            applyChanges(true);
+        }
+
+        /**
+         * Makes the changes without waiting for them to take effect in
+         * native when called off the UI thread.
+         */
+        public void apply() {
+            applyChanges(false);
+        }
+
+        private void applyChanges(boolean waitForSync) {
+            synchronized (mXWalkSettingsLock) {
+                mIsApplyingEditor = true;
+                try {
+                    for (Runnable change : mChanges) {
+                        change.run();
+                    }
+                } finally {
+                    mIsApplyingEditor = false;
+                    mChanges.clear();
+                }
+                if (mEditorNeedsWebkitPrefsUpdate) {
+                    mEditorNeedsWebkitPrefsUpdate = false;
+                    mEventHandler.updateWebkitPreferencesLocked(waitForSync);
+                }
+            }
+        }
+    }
+
     public void setAllowScriptsToCloseWindows(boolean allow) {
         synchronized (mXWalkSettingsLock) {
             if (mAllowScriptsToCloseWindows != allow) {
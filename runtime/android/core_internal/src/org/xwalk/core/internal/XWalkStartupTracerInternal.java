@@ -0,0 +1,202 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal;
+
+import android.os.Process;
+import android.util.JsonWriter;
+import android.util.Log;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/**
+ * This class records how long the steps of bringing up Crosswalk take,
+ * e.g. loading the library, starting the browser process and creating
+ * the first XWalkView, so that startup regressions can be caught.
+ */
+@XWalkAPI(noInstance = true)
+public class XWalkStartupTracerInternal {
+    private static final String TAG = "XWalkStartupTracer";
+
+    // Startup only happens once, this bounds what later views add.
+    private static final int MAX_PHASES = 256;
+
+    private static class Phase {
+        final String mName;
+        final String mThreadName;
+        final int mThreadId;
+        final long mStartNanos;
+        long mEndNanos = -1;
+
+        Phase(String name, String threadName, int threadId, long startNanos) {
+            mName = name;
+            mThreadName = threadName;
+            mThreadId = threadId;
+            mStartNanos = startNanos;
+        }
+
+        boolean contains(Phase other) {
+            return mThreadId == other.mThreadId && this != other &&
+                    mStartNanos <= other.mStartNanos && other.mEndNanos <= mEndNanos;
+        }
+    }
+
+    private static final ArrayList<Phase> sPhases = new ArrayList<Phase>();
+
+    /**
+     * Starts a phase on the current thread.
+     * @return the id to pass to end(), or -1 if the phase isn't recorded.
+     */
+    public static int begin(String name) {
+        return add(name, Thread.currentThread().getName(), Process.myTid(), System.nanoTime());
+    }
+
+    /**
+     * Ends the phase returned by begin().
+     */
+    public static void end(int id) {
+        long now = System.nanoTime();
+        synchronized (sPhases) {
+            if (id < 0 || id >= sPhases.size()) return;
+            sPhases.get(id).mEndNanos = now;
+        }
+    }
+
+    /**
+     * Adds a phase measured elsewhere, e.g. by XWalkCoreWrapper before the
+     * library could be reached. The times come from System.nanoTime().
+     */
+    public static void addPhase(String name, int threadId, long startNanos, long endNanos) {
+        int id = add(name, "", threadId, startNanos);
+        synchronized (sPhases) {
+            if (id >= 0) sPhases.get(id).mEndNanos = endNanos;
+        }
+    }
+
+    private static int add(String name, String threadName, int threadId, long startNanos) {
+        synchronized (sPhases) {
+            if (sPhases.size() >= MAX_PHASES) return -1;
+            sPhases.add(new Phase(name, threadName, threadId, startNanos));
+            return sPhases.size() - 1;
+        }
+    }
+
+    private static ArrayList<Phase> getEndedPhases() {
+        ArrayList<Phase> phases = new ArrayList<Phase>();
+        synchronized (sPhases) {
+            for (Phase phase : sPhases) {
+                if (phase.mEndNanos >= 0) phases.add(phase);
+            }
+        }
+        return phases;
+    }
+
+    private static long getOrigin(ArrayList<Phase> phases) {
+        long origin = Long.MAX_VALUE;
+        for (Phase phase : phases) {
+            origin = Math.min(origin, phase.mStartNanos);
+        }
+        return origin;
+    }
+
+    /**
+     * Get the recorded startup phases as a JSON object. Its "phases" array
+     * holds, for each phase, its "name", the "thread" it ran on, its
+     * "depth" within the phases of that thread, and its "start" and
+     * "duration" in microseconds, starting from the first phase.
+     * @return the JSON report.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static String getReport() {
+        ArrayList<Phase> phases = getEndedPhases();
+        long origin = getOrigin(phases);
+        StringWriter output = new StringWriter();
+        JsonWriter writer = new JsonWriter(output);
+        try {
+            writer.beginObject();
+            writer.name("phases").beginArray();
+            for (Phase phase : phases) {
+                int depth = 0;
+                for (Phase other : phases) {
+                    if (other.contains(phase)) ++depth;
+                }
+                writer.beginObject();
+                writer.name("name").value(phase.mName);
+                writer.name("thread").value(phase.mThreadId);
+                writer.name("depth").value(depth);
+                writer.name("start").value((phase.mStartNanos - origin) / 1000);
+                writer.name("duration").value((phase.mEndNanos - phase.mStartNanos) / 1000);
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+            writer.close();
+        } catch (IOException e) {
+            Log.e(TAG, "getReport: " + e.toString());
+            return "{}";
+        }
+        return output.toString();
+    }
+
+    /**
+     * Write the recorded startup phases to a file in the Chrome trace event
+     * format, which can be loaded in chrome://tracing.
+     * @param path the path of the file to write.
+     * @return true if the file was written.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static boolean writeTraceFile(String path) {
+        ArrayList<Phase> phases = getEndedPhases();
+        long origin = getOrigin(phases);
+        int pid = Process.myPid();
+        Writer output = null;
+        try {
+            output = new OutputStreamWriter(new FileOutputStream(path), "UTF-8");
+            JsonWriter writer = new JsonWriter(output);
+            writer.beginObject();
+            writer.name("traceEvents").beginArray();
+            for (Phase phase : phases) {
+                writer.beginObject();
+                writer.name("name").value(phase.mName);
+                writer.name("cat").value("startup");
+                writer.name("ph").value("X");
+                writer.name("pid").value(pid);
+                writer.name("tid").value(phase.mThreadId);
+                writer.name("ts").value((phase.mStartNanos - origin) / 1000);
+                writer.name("dur").value((phase.mEndNanos - phase.mStartNanos) / 1000);
+                writer.endObject();
+            }
+            for (Phase phase : phases) {
+                if (phase.mThreadName.isEmpty()) continue;
+                // Names the threads in the viewer.
+                writer.beginObject();
+                writer.name("name").value("thread_name");
+                writer.name("ph").value("M");
+                writer.name("pid").value(pid);
+                writer.name("tid").value(phase.mThreadId);
+                writer.name("args").beginObject().name("name").value(phase.mThreadName).endObject();
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+            writer.flush();
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "writeTraceFile: " + e.toString());
+            return false;
+        } finally {
+            try {
+                if (output != null) output.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+}
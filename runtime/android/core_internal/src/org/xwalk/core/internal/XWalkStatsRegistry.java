@@ -0,0 +1,45 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statistics published by components the core doesn't depend on, e.g. the
+ * built-in extensions, so that the public API can return them. Components
+ * register a provider under a well-known name when they are created.
+ */
+public class XWalkStatsRegistry {
+    /**
+     * Name of the contacts cache statistics.
+     */
+    public static final String CONTACTS_CACHE = "contactsCache";
+
+    public interface Provider {
+        /**
+         * Returns the statistics as a JSON object.
+         */
+        String getStats();
+    }
+
+    private static final Map<String, Provider> sProviders = new HashMap<String, Provider>();
+
+    public static synchronized void register(String name, Provider provider) {
+        sProviders.put(name, provider);
+    }
+
+    /**
+     * Returns the statistics registered under name, or null if nothing was
+     * registered yet.
+     */
+    public static String getStats(String name) {
+        Provider provider;
+        synchronized (XWalkStatsRegistry.class) {
+            provider = sProviders.get(name);
+        }
+        return provider == null ? null : provider.getStats();
+    }
+}
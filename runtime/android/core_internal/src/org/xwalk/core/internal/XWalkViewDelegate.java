@@ -5,10 +5,13 @@
 package org.xwalk.core.internal;
 
 import java.io.BufferedReader;
+import java.io.FileReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.lang.StringBuilder;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -17,6 +20,7 @@ import android.content.res.AssetManager;
 import android.content.res.Resources.NotFoundException;
 import android.os.Build;
 import android.util.Log;
+import android.webkit.ValueCallback;
 
 import org.chromium.base.ApplicationStatusManager;
 import org.chromium.base.CommandLine;
@@ -36,7 +40,7 @@ import org.chromium.net.NetworkChangeNotifier;
 class XWalkViewDelegate {
     private static boolean sInitialized = false;
     private static boolean sLibraryLoaded = false;
-    private static boolean sRunningOnIA = true;
+    private static Boolean sRunningOnIA;
     private static final String PRIVATE_DATA_DIRECTORY_SUFFIX = "xwalkcore";
     private static final String[] MANDATORY_PAKS = {
             "xwalk.pak",
@@ -91,11 +95,23 @@ class XWalkViewDelegate {
     }
 
     public static boolean decompressXWalkLibrary(Context context) throws Exception {
+        return decompressXWalkLibrary(context, null);
+    }
+
+    public static boolean decompressXWalkLibrary(Context context,
+            ValueCallback<Integer> progressCallback) throws Exception {
         if (context == null) return false;
 
         String lib = PathUtils.getDataDirectory(context.getApplicationContext());
+        int trace = XWalkStartupTracerInternal.begin("decompressXWalkLibrary");
         long start = System.currentTimeMillis();
-        boolean success = XWalkCompressUtil.decompressXWalkLibrary(context, MANDATORY_LIBRARIES, lib);
+        boolean success;
+        try {
+            success = XWalkCompressUtil.decompressXWalkLibrary(
+                    context, MANDATORY_LIBRARIES, lib, progressCallback);
+        } finally {
+            XWalkStartupTracerInternal.end(trace);
+        }
         long end = System.currentTimeMillis();
         Log.d(TAG, "decompress library cost: " + (end - start) + " milliseconds.");
         return success;
@@ -104,6 +120,15 @@ class XWalkViewDelegate {
     public static void loadXWalkLibrary(Context context) throws UnsatisfiedLinkError {
         if (sLibraryLoaded || (context == null)) return;
 
+        int trace = XWalkStartupTracerInternal.begin("loadXWalkLibrary");
+        try {
+            doLoadXWalkLibrary(context);
+        } finally {
+            XWalkStartupTracerInternal.end(trace);
+        }
+    }
+
+    private static void doLoadXWalkLibrary(Context context) throws UnsatisfiedLinkError {
         if (XWalkLibraryCompressed(context)) {
             String lib = PathUtils.getDataDirectory(context.getApplicationContext());
             if (lib != null) {
@@ -124,7 +149,7 @@ class XWalkViewDelegate {
             loadLibrary(context);
         }
 
-        if (sRunningOnIA != nativeIsLibraryBuiltForIA()) {
+        if (isRunningOnIA() != nativeIsLibraryBuiltForIA()) {
             throw new UnsatisfiedLinkError();
         }
         sLibraryLoaded = true;
@@ -135,16 +160,30 @@ class XWalkViewDelegate {
             return;
         }
 
+        int trace = XWalkStartupTracerInternal.begin("XWalkViewDelegate.init");
+        try {
+            doInit(xwalkView);
+        } finally {
+            XWalkStartupTracerInternal.end(trace);
+        }
+        sInitialized = true;
+    }
+
+    private static void doInit(XWalkViewInternal xwalkView) throws UnsatisfiedLinkError {
         loadXWalkLibrary(xwalkView.getContext());
 
         // Initialize the ActivityStatus. This is needed and used by many internal
         // features such as location provider to listen to activity status.
+        int trace = XWalkStartupTracerInternal.begin("ApplicationStatusManager.init");
         ApplicationStatusManager.init(xwalkView.getActivity().getApplication());
+        XWalkStartupTracerInternal.end(trace);
 
         // Auto detect network connectivity state.
         // setAutoDetectConnectivityState() need to be called before activity started.
+        trace = XWalkStartupTracerInternal.begin("NetworkChangeNotifier.init");
         NetworkChangeNotifier.init(xwalkView.getActivity());
         NetworkChangeNotifier.setAutoDetectConnectivityState(true);
+        XWalkStartupTracerInternal.end(trace);
 
         // We will miss activity onCreate() status in ApplicationStatusManager,
         // informActivityStarted() will simulate these callbacks.
@@ -160,6 +199,7 @@ class XWalkViewDelegate {
             CommandLine.init(readCommandLine(context.getApplicationContext()));
         }
 
+        trace = XWalkStartupTracerInternal.begin("ResourceExtractor");
         ResourceExtractor.setMandatoryPaksToExtract(MANDATORY_PAKS);
         final int resourcesListResId = context.getResources().getIdentifier(
                 XWALK_RESOURCES_LIST_RES_NAME, "array", context.getPackageName());
@@ -225,9 +265,9 @@ class XWalkViewDelegate {
         // Use MixedContext to initialize the ResourceExtractor, as the pak file
         // is in the library apk if in shared apk mode.
         ResourceExtractor.get(context);
+        XWalkStartupTracerInternal.end(trace);
 
         startBrowserProcess(context);
-        sInitialized = true;
     }
 
     private static void loadLibrary(Context context) {
@@ -243,50 +283,98 @@ class XWalkViewDelegate {
         ThreadUtils.runOnUiThreadBlocking(new Runnable() {
             @Override
             public void run() {
+                int trace = XWalkStartupTracerInternal.begin("startBrowserProcess");
                 try {
-                    LibraryLoader.get(LibraryProcessType.PROCESS_BROWSER).ensureInitialized();
-                } catch (ProcessInitException e) {
-                    throw new RuntimeException("Cannot initialize Crosswalk Core", e);
-                }
-                DeviceUtils.addDeviceSpecificUserAgentSwitch(context);
-                CommandLine.getInstance().appendSwitchWithValue(
-                        XWalkSwitches.PROFILE_NAME,
-                        XWalkPreferencesInternal.getStringValue(XWalkPreferencesInternal.PROFILE_NAME));
-                try {
-                    BrowserStartupController.get(context, LibraryProcessType.PROCESS_BROWSER).
-                        startBrowserProcessesSync(true);
-                } catch (ProcessInitException e) {
-                    throw new RuntimeException("Cannot initialize Crosswalk Core", e);
+                    startBrowserProcessOnUiThread(context);
+                } finally {
+                    XWalkStartupTracerInternal.end(trace);
                 }
             }
         });
     }
 
-    public static boolean isRunningOnIA() {
+    private static void startBrowserProcessOnUiThread(Context context) {
+        try {
+            LibraryLoader.get(LibraryProcessType.PROCESS_BROWSER).ensureInitialized();
+        } catch (ProcessInitException e) {
+            throw new RuntimeException("Cannot initialize Crosswalk Core", e);
+        }
+        DeviceUtils.addDeviceSpecificUserAgentSwitch(context);
+        CommandLine.getInstance().appendSwitchWithValue(
+                XWalkSwitches.PROFILE_NAME,
+                XWalkPreferencesInternal.getStringValue(XWalkPreferencesInternal.PROFILE_NAME));
+        try {
+            BrowserStartupController.get(context, LibraryProcessType.PROCESS_BROWSER).
+                startBrowserProcessesSync(true);
+        } catch (ProcessInitException e) {
+            throw new RuntimeException("Cannot initialize Crosswalk Core", e);
+        }
+    }
+
+    // The result is kept for the life of the process only, it is cheap to
+    // compute again and a fallback result must not outlive the process.
+    public static synchronized boolean isRunningOnIA() {
+        if (sRunningOnIA != null) return sRunningOnIA;
+
+        int trace = XWalkStartupTracerInternal.begin("isRunningOnIA");
+        try {
+            sRunningOnIA = detectRunningOnIA();
+        } finally {
+            XWalkStartupTracerInternal.end(trace);
+        }
         return sRunningOnIA;
     }
 
-    private static native boolean nativeIsLibraryBuiltForIA();
+    private static boolean detectRunningOnIA() {
+        if (Build.CPU_ABI.equalsIgnoreCase("x86") || Build.CPU_ABI.equalsIgnoreCase("x86_64")) {
+            return true;
+        }
 
-    static {
-        sRunningOnIA = Build.CPU_ABI.equalsIgnoreCase("x86") || Build.CPU_ABI.equalsIgnoreCase("x86_64");
-        if (!sRunningOnIA) {
-            // This is not the final decision yet.
-            // With latest Houdini, an app with ARM binary will see system abi as if it's running on
-            // arm device. Here needs some further check for real system abi.
+        // This is not the final decision yet.
+        // With latest Houdini, an app with ARM binary will see system abi as if it's running on
+        // arm device. Here needs some further check for real system abi.
+        int trace = XWalkStartupTracerInternal.begin("probeSystemAbi");
+        try {
+            return probeSystemAbi();
+        } finally {
+            XWalkStartupTracerInternal.end(trace);
+        }
+    }
+
+    // Reads ro.product.cpu.abi in process instead of forking getprop, and
+    // falls back to the CPU vendor if the property can't be read.
+    private static boolean probeSystemAbi() {
+        try {
+            Class<?> clazz = Class.forName("android.os.SystemProperties");
+            Method method = clazz.getMethod("get", String.class);
+            String abi = (String) method.invoke(null, "ro.product.cpu.abi");
+            if (abi != null && !abi.isEmpty()) return abi.contains("x86");
+        } catch (ClassNotFoundException | NoSuchMethodException |
+                IllegalAccessException | InvocationTargetException e) {
+            Log.w(TAG, "Unable to read the system abi: " + e.toString());
+        }
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader("/proc/cpuinfo"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("vendor_id")) return line.contains("GenuineIntel");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, Log.getStackTraceString(e));
+        } finally {
             try {
-                Process process = Runtime.getRuntime().exec("getprop ro.product.cpu.abi");
-                InputStreamReader ir = new InputStreamReader(process.getInputStream());
-                BufferedReader input = new BufferedReader(ir);
-                String abi = input.readLine();
-                sRunningOnIA = abi.contains("x86");
-                input.close();
-                ir.close();
+                if (reader != null) reader.close();
             } catch (IOException e) {
-                Log.w(TAG, Log.getStackTraceString(e));
             }
         }
+        return false;
+    }
 
+    private static native boolean nativeIsLibraryBuiltForIA();
+
+    static {
         PathUtils.setPrivateDataDirectorySuffix(PRIVATE_DATA_DIRECTORY_SUFFIX);
     }
 }
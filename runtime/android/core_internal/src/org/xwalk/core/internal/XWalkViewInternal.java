@@ -437,6 +437,29 @@ public class XWalkViewInternal extends android.widget.FrameLayout {
         mContent.loadAppFromManifest(url, content);
     }
 
+    /**
+     * Load a web app from a given manifest.json file without blocking the
+     * UI thread. The manifest is read and checked on a background thread
+     * while the renderer process starts, then the app is loaded as with
+     * {@link #loadAppFromManifest(String, String)}.
+     *
+     * The callback is called on the UI thread with a JSON report. It holds
+     * the time in milliseconds spent reading ("readTime") and checking
+     * ("parseTime") the manifest, setting it ("setManifestTime"), and from
+     * this call until the navigation starts ("navigationStartTime"). If the
+     * manifest can't be loaded, it holds an "error" instead.
+     * @param url the url for manifest.json.
+     * @param content the content for manifest.json.
+     * @param callback the callback receiving the report. Could be null.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public void loadAppFromManifest(String url, String content, ValueCallback<String> callback) {
+        if (mContent == null) return;
+        checkThreadSafety();
+        mContent.loadAppFromManifestAsync(url, content, callback);
+    }
+
     /**
      * Reload a web app with a given mode.
      * @param mode the reload mode.
@@ -802,6 +825,28 @@ public class XWalkViewInternal extends android.widget.FrameLayout {
         }
     }
 
+    /**
+     * Limit the requests passed to XWalkResourceClientInternal.shouldInterceptLoadRequest()
+     * to the urls matching one of the given patterns. The other requests are
+     * decided without calling into Java, so they are not reported to
+     * XWalkResourceClientInternal.onLoadStarted() either.
+     * When all the patterns are null or empty, every request is passed to the
+     * client, which is the default.
+     * @param urlPrefixes the urls starting with one of these strings match.
+     * @param hosts the urls whose host is one of these hosts, or a subdomain
+     *              of them, match.
+     * @param urlPatterns the urls fully matching one of these regular
+     *                    expressions, in RE2 syntax, match.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public void setInterceptLoadRequestFilter(String[] urlPrefixes, String[] hosts,
+            String[] urlPatterns) {
+        if (mContent == null) return;
+        checkThreadSafety();
+        mContent.setInterceptLoadRequestFilter(urlPrefixes, hosts, urlPatterns);
+    }
+
      /**
      * Set the user agent of web page/app.
      * @param userAgent the user agent string passed from client.
@@ -0,0 +1,208 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import java.util.ArrayDeque;
+
+import org.chromium.base.ApplicationState;
+import org.chromium.base.ApplicationStatus;
+
+/**
+ * This class keeps web contents created ahead of time, so that new
+ * XWalkView instances, e.g. for tabs or popups, don't have to create them
+ * and start their renderer when they are constructed.
+ *
+ * The pool is disabled by default. Once its capacity is set, it is filled
+ * while the UI thread is idle, after the first XWalkView has started
+ * Crosswalk. It is trimmed when the system is low on memory, and it isn't
+ * filled again until the application returns to the foreground.
+ */
+@XWalkAPI(noInstance = true)
+public class XWalkViewPoolInternal {
+    private static final ArrayDeque<Long> sPool = new ArrayDeque<Long>();
+    private static int sCapacity = 0;
+    private static boolean sStarted = false;
+    private static boolean sFillScheduled = false;
+    private static boolean sFillPaused = false;
+    private static ComponentCallbacks2 sMemoryCallbacks;
+    private static ApplicationStatus.ApplicationStateListener sStateListener;
+
+    private static final MessageQueue.IdleHandler sFillHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            // Only one is created each time, the queue may not be idle anymore.
+            if (sPool.size() < sCapacity) {
+                sPool.add(XWalkContent.createDetachedNativeContent());
+            }
+            sFillScheduled = sPool.size() < sCapacity;
+            return sFillScheduled;
+        }
+    };
+
+    /**
+     * Set how many web contents are kept ready for new XWalkView instances.
+     * The pool is filled while the UI thread is idle. Setting the capacity
+     * also resumes filling if it was paused because of memory pressure,
+     * which otherwise lasts until the application returns to the foreground.
+     * Setting 0 disables the pool and releases what it holds.
+     * This method must be called on the UI thread.
+     * @param capacity the maximum number of web contents to keep.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static void setCapacity(int capacity) {
+        checkThreadSafety();
+        sCapacity = Math.max(capacity, 0);
+        trim(sCapacity);
+        sFillPaused = false;
+        scheduleFill();
+    }
+
+    /**
+     * Get how many web contents are kept ready for new XWalkView instances.
+     * @return the capacity set by setCapacity().
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static int getCapacity() {
+        return sCapacity;
+    }
+
+    /**
+     * Get how many web contents are ready to be used now.
+     * This method must be called on the UI thread.
+     * @return the number of web contents in the pool.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static int getSize() {
+        checkThreadSafety();
+        return sPool.size();
+    }
+
+    /**
+     * Release the web contents in the pool according to the memory pressure.
+     * It is called with the levels of ComponentCallbacks2.onTrimMemory(),
+     * which the pool also listens to by itself.
+     * This method must be called on the UI thread.
+     * @param level the memory trim level.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static void onTrimMemory(int level) {
+        checkThreadSafety();
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            // In the background, the process is killed as a whole when the
+            // memory is needed. Keep the pool for when the application
+            // returns, without filling it meanwhile.
+            pauseFill();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            pauseFill();
+            trim(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            pauseFill();
+            trim(sPool.size() / 2);
+        }
+    }
+
+    /**
+     * Release all the web contents in the pool. It is filled again later
+     * unless the capacity is set to 0.
+     * This method must be called on the UI thread.
+     * @since 5.0
+     */
+    @XWalkAPI
+    public static void clear() {
+        checkThreadSafety();
+        trim(0);
+        scheduleFill();
+    }
+
+    /**
+     * Returns web contents from the pool, or 0 if it is empty.
+     */
+    static long take() {
+        if (sPool.isEmpty()) return 0;
+
+        long nativeContent = sPool.poll();
+        scheduleFill();
+        return nativeContent;
+    }
+
+    /**
+     * Called when an XWalkContent is created, Crosswalk is running from now on.
+     */
+    static void onContentCreated(Context context) {
+        if (sStarted) return;
+
+        sStarted = true;
+        sMemoryCallbacks = new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                XWalkViewPoolInternal.onTrimMemory(level);
+            }
+
+            @Override
+            public void onLowMemory() {
+                pauseFill();
+                trim(0);
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+        };
+        context.getApplicationContext().registerComponentCallbacks(sMemoryCallbacks);
+
+        sStateListener = new ApplicationStatus.ApplicationStateListener() {
+            @Override
+            public void onApplicationStateChange(int newState) {
+                if (newState != ApplicationState.HAS_RUNNING_ACTIVITIES) return;
+                sFillPaused = false;
+                scheduleFill();
+            }
+        };
+        ApplicationStatus.registerApplicationStateListener(sStateListener);
+        scheduleFill();
+    }
+
+    private static void trim(int size) {
+        while (sPool.size() > size) {
+            XWalkContent.destroyNativeContent(sPool.poll());
+        }
+    }
+
+    // Stops filling the pool until the application returns to the foreground.
+    private static void pauseFill() {
+        sFillPaused = true;
+        if (!sFillScheduled) return;
+
+        sFillScheduled = false;
+        Looper.myQueue().removeIdleHandler(sFillHandler);
+    }
+
+    private static void scheduleFill() {
+        if (!sStarted || sFillPaused || sFillScheduled || sPool.size() >= sCapacity) return;
+
+        sFillScheduled = true;
+        Looper.myQueue().addIdleHandler(sFillHandler);
+    }
+
+    private static void checkThreadSafety() {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            Throwable throwable = new Throwable(
+                "Warning: A XWalkViewPoolInternal method was called on thread '" +
+                Thread.currentThread().getName() + "'. " +
+                "All XWalkViewPoolInternal methods must be called on the UI thread. ");
+            throw new RuntimeException(throwable);
+        }
+    }
+}
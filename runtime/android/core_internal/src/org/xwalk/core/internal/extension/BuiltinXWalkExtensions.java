@@ -6,9 +6,14 @@ package org.xwalk.core.internal.extension;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.chromium.base.ActivityState;
+import org.chromium.base.ApplicationStatus;
+import org.chromium.base.ThreadUtils;
+import org.xwalk.core.internal.XWalkAssetReader;
 import org.xwalk.core.internal.XWalkExtensionInternal;
 import org.xwalk.core.internal.extension.api.contacts.Contacts;
 import org.xwalk.core.internal.extension.api.device_capabilities.DeviceCapabilities;
@@ -18,113 +23,193 @@ import org.xwalk.core.internal.extension.api.presentation.PresentationExtension;
 
 import android.app.Activity;
 import android.content.Context;
-import android.content.res.AssetManager;
 import android.content.res.Resources;
 import android.content.res.Resources.NotFoundException;
 import android.util.Log;
 
+/**
+ * Process wide registry of the builtin extensions.
+ *
+ * Each JS API file is read once per process. The extensions are registered
+ * with their name and JS API only, their Java objects, with the observers
+ * and receivers they set up, are created when the first message is sent to
+ * their namespace.
+ */
 public class BuiltinXWalkExtensions {
     private static final String TAG = "BuiltinXWalkExtension";
     private static HashMap<String, XWalkExtensionInternal> sBuiltinExtensions =
             new HashMap<String, XWalkExtensionInternal>();
+    private static HashMap<String, String> sJsApiContents = new HashMap<String, String>();
+    private static WeakReference<Activity> sActivity;
 
-    public static void load(Context context, Activity activity) {
-        // Create all built-in extension instances here.
-        {
-            String jsApiContent = "";
-            try {
-                jsApiContent = getExtensionJSFileContent(
-                        context, PresentationExtension.JS_API_PATH, true);
-                sBuiltinExtensions.put(PresentationExtension.JS_API_PATH,
-                        new PresentationExtension(jsApiContent, activity));
-            } catch (IOException e) {
-                Log.w(TAG, "Failed to read JS API file: " + PresentationExtension.JS_API_PATH);
-            }
+    private interface ExtensionFactory {
+        XWalkExtensionInternal create(String jsApi, Activity activity);
+    }
+
+    /**
+     * Stands for a builtin extension until its first message. Creating the
+     * real extension binds the native extension to it, so only instances
+     * created before that are still routed through here. Their messages are
+     * held until the real extension is created, then handed to it.
+     *
+     * The real extension is created after its activity started, so it is
+     * given the state changes it would have seen if it had been created
+     * with the activity.
+     */
+    private static class LazyExtension extends XWalkExtensionInternal {
+        private final String mJsApi;
+        private final ExtensionFactory mFactory;
+        private final WeakReference<Activity> mActivity;
+        private final AtomicBoolean mCreating = new AtomicBoolean();
+        private volatile XWalkExtensionInternal mExtension;
+
+        LazyExtension(String name, String jsApi, String[] entryPoints,
+                Activity activity, ExtensionFactory factory) {
+            super(name, jsApi, entryPoints);
+            mJsApi = jsApi;
+            mFactory = factory;
+            mActivity = new WeakReference<Activity>(activity);
+            holdMessages();
         }
 
-        {
-            String jsApiContent = "";
-            try {
-                jsApiContent = getExtensionJSFileContent(
-                        context, LaunchScreenExtension.JS_API_PATH, true);
-                sBuiltinExtensions.put(LaunchScreenExtension.JS_API_PATH,
-                        new LaunchScreenExtension(jsApiContent, activity));
-            } catch (IOException e) {
-                Log.w(TAG, "Failed to read JS API file: " + LaunchScreenExtension.JS_API_PATH);
-            }
+        @Override
+        protected void onMessageHeld() {
+            if (mCreating.getAndSet(true)) return;
+
+            // The extensions used to be created on the UI thread, keep it
+            // that way without blocking the extension thread.
+            ThreadUtils.postOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    Activity activity = mActivity.get();
+                    if (activity == null) {
+                        Log.w(TAG, "The activity is gone, can't create the extension");
+                        forwardMessagesTo(LazyExtension.this);
+                        return;
+                    }
+                    mExtension = mFactory.create(mJsApi, activity);
+                    replayActivityState(mExtension, activity);
+                    forwardMessagesTo(mExtension);
+                }
+            });
         }
 
-        {
-            String jsApiContent = "";
-            try {
-                jsApiContent = getExtensionJSFileContent(
-                        context, Contacts.JS_API_PATH, true);
-                sBuiltinExtensions.put(Contacts.JS_API_PATH,
-                        new Contacts(jsApiContent, activity));
-            } catch(IOException e) {
-                Log.w(TAG, "Failed to read JS API file: " + Contacts.JS_API_PATH);
+        private static void replayActivityState(
+                XWalkExtensionInternal extension, Activity activity) {
+            if (!(extension instanceof XWalkExtensionWithActivityStateListener)) return;
+            XWalkExtensionWithActivityStateListener listener =
+                    (XWalkExtensionWithActivityStateListener) extension;
+            int state = ApplicationStatus.getStateForActivity(activity);
+            if (state == ActivityState.STARTED || state == ActivityState.RESUMED
+                    || state == ActivityState.PAUSED) {
+                listener.onActivityStateChange(activity, ActivityState.STARTED);
+            }
+            if (state == ActivityState.RESUMED) {
+                listener.onActivityStateChange(activity, ActivityState.RESUMED);
             }
         }
 
-        {
-            String jsApiContent = "";
-            try {
-                jsApiContent = getExtensionJSFileContent(
-                        context, DeviceCapabilities.JS_API_PATH, true);
-                sBuiltinExtensions.put(DeviceCapabilities.JS_API_PATH,
-                        new DeviceCapabilities(jsApiContent, activity));
-            } catch(IOException e) {
-                Log.w(TAG, "Failed to read JS API file: " + DeviceCapabilities.JS_API_PATH);
-            }
+        @Override
+        public String getMessageStats() {
+            XWalkExtensionInternal extension = mExtension;
+            return extension != null ? extension.getMessageStats() : super.getMessageStats();
+        }
+
+        // Only called when the real extension couldn't be created.
+        @Override
+        public void onMessage(int instanceID, String message) {
+        }
+
+        @Override
+        public String onSyncMessage(int instanceID, String message) {
+            return "";
         }
+    }
+
+    /**
+     * Registers the builtin extensions for the given activity. It does
+     * nothing when they are already registered for it, e.g. for the second
+     * XWalkView of an activity.
+     */
+    public static synchronized void load(Context context, Activity activity) {
+        if (sActivity != null && sActivity.get() == activity) return;
+        sActivity = new WeakReference<Activity>(activity);
+
+        register(context, activity, PresentationExtension.JS_API_PATH,
+                PresentationExtension.NAME, null, new ExtensionFactory() {
+            @Override
+            public XWalkExtensionInternal create(String jsApi, Activity activity) {
+                return new PresentationExtension(jsApi, activity);
+            }
+        });
 
-        {
-            String jsApiContent = "";
+        register(context, activity, LaunchScreenExtension.JS_API_PATH,
+                LaunchScreenExtension.NAME, LaunchScreenExtension.JS_ENTRY_POINTS,
+                new ExtensionFactory() {
+            @Override
+            public XWalkExtensionInternal create(String jsApi, Activity activity) {
+                return new LaunchScreenExtension(jsApi, activity);
+            }
+        });
+
+        register(context, activity, Contacts.JS_API_PATH,
+                Contacts.NAME, null, new ExtensionFactory() {
+            @Override
+            public XWalkExtensionInternal create(String jsApi, Activity activity) {
+                return new Contacts(jsApi, activity);
+            }
+        });
+
+        register(context, activity, DeviceCapabilities.JS_API_PATH,
+                DeviceCapabilities.NAME, null, new ExtensionFactory() {
+            @Override
+            public XWalkExtensionInternal create(String jsApi, Activity activity) {
+                return new DeviceCapabilities(jsApi, activity);
+            }
+        });
+
+        register(context, activity, Messaging.JS_API_PATH,
+                Messaging.NAME, null, new ExtensionFactory() {
+            @Override
+            public XWalkExtensionInternal create(String jsApi, Activity activity) {
+                return new Messaging(jsApi, activity);
+            }
+        });
+    }
+
+    private static void register(Context context, Activity activity, String jsApiPath,
+            String name, String[] entryPoints, ExtensionFactory factory) {
+        String jsApiContent = sJsApiContents.get(jsApiPath);
+        if (jsApiContent == null) {
             try {
-                jsApiContent = getExtensionJSFileContent(
-                        context, Messaging.JS_API_PATH, true);
-                sBuiltinExtensions.put(Messaging.JS_API_PATH,
-                        new Messaging(jsApiContent, activity));
-            } catch(IOException e) {
-                Log.w(TAG, "Failed to read JS API file: " + Messaging.JS_API_PATH);
+                jsApiContent = getExtensionJSFileContent(context, jsApiPath, true);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to read JS API file: " + jsApiPath);
+                return;
             }
+            sJsApiContents.put(jsApiPath, jsApiContent);
         }
+        sBuiltinExtensions.put(jsApiPath,
+                new LazyExtension(name, jsApiContent, entryPoints, activity, factory));
     }
 
-
     private static String getExtensionJSFileContent(Context context, String fileName, boolean fromRaw)
             throws IOException {
-        String result = "";
-        InputStream inputStream = null;
-        try {
-            if (fromRaw) {
-                // If fromRaw is true, Try to find js file in res/raw first.
-                // And then try to get it from assets if failed.
-                Resources resource = context.getResources();
-                String resName = (new File(fileName).getName().split("\\."))[0];
-                int resId = resource.getIdentifier(resName, "raw", context.getPackageName());
-                if (resId > 0) {
-                    try {
-                        inputStream = resource.openRawResource(resId);
-                    } catch (NotFoundException e) {
-                        Log.w(TAG, "Inputstream failed to open for R.raw." + resName +
-                                   ", try to find it in assets");
-                    }
+        if (fromRaw) {
+            // If fromRaw is true, Try to find js file in res/raw first.
+            // And then try to get it from assets if failed.
+            Resources resource = context.getResources();
+            String resName = (new File(fileName).getName().split("\\."))[0];
+            int resId = resource.getIdentifier(resName, "raw", context.getPackageName());
+            if (resId > 0) {
+                try {
+                    return XWalkAssetReader.readRawResource(resource, resId);
+                } catch (NotFoundException e) {
+                    Log.w(TAG, "Inputstream failed to open for R.raw." + resName +
+                               ", try to find it in assets");
                 }
             }
-            if (inputStream == null) {
-                AssetManager assetManager = context.getAssets();
-                inputStream = assetManager.open(fileName);
-            }
-            int size = inputStream.available();
-            byte[] buffer = new byte[size];
-            inputStream.read(buffer);
-            result = new String(buffer);
-        } finally {
-            if (inputStream != null) {
-                inputStream.close();
-            }
         }
-        return result;
+        return XWalkAssetReader.readAsset(context.getAssets(), fileName);
     }
 }
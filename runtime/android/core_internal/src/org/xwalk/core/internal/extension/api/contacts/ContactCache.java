@@ -0,0 +1,176 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.extension.api.contacts;
+
+import android.util.JsonWriter;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collection;
+
+import org.xwalk.core.internal.XWalkStatsRegistry;
+
+/**
+ * Process wide LRU cache of contacts already written to JSON, keyed by
+ * contact ID.
+ *
+ * The cache is disabled until a positive size is set with setMaxSize(). Each
+ * entry keeps the version of the contact it was written from, made of its
+ * raw contacts' VERSION, and is only returned for that version. Entries are
+ * also dropped by ContactEventListener for every contact that
+ * ContactChangeTracker reports as modified or removed, but that only
+ * happens once a burst of changes has settled, so the version is what keeps
+ * a stale contact from being returned in between.
+ *
+ * Its statistics are registered as XWalkStatsRegistry.CONTACTS_CACHE.
+ */
+public class ContactCache {
+    private static final String TAG = "ContactCache";
+
+    private static ContactCache sInstance;
+
+    private static class Entry {
+        final String mVersion;
+        final String mContact;
+
+        Entry(String version, String contact) {
+            mVersion = version;
+            mContact = contact;
+        }
+    }
+
+    private LruCache<Long, Entry> mCache;
+    private int mMaxSize = 0;
+    private long mHitCount = 0;
+    private long mMissCount = 0;
+
+    private ContactCache() {
+    }
+
+    public static synchronized ContactCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new ContactCache();
+            XWalkStatsRegistry.register(XWalkStatsRegistry.CONTACTS_CACHE,
+                    new XWalkStatsRegistry.Provider() {
+                        @Override
+                        public String getStats() {
+                            return sInstance.getStats();
+                        }
+                    });
+        }
+        return sInstance;
+    }
+
+    /**
+     * Sets the maximum number of contacts to keep. 0 disables the cache and
+     * drops its content, the hit and miss counters are kept.
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) maxSize = 0;
+        if (maxSize == mMaxSize) return;
+        mMaxSize = maxSize;
+        if (maxSize == 0) {
+            mCache = null;
+        } else if (mCache == null) {
+            mCache = new LruCache<Long, Entry>(maxSize);
+        } else {
+            mCache.resize(maxSize);
+        }
+    }
+
+    public synchronized int getMaxSize() {
+        return mMaxSize;
+    }
+
+    public synchronized boolean isEnabled() {
+        return mCache != null;
+    }
+
+    /**
+     * Returns the JSON of the contact, or null if it is not cached for the
+     * given version. An entry of another version is dropped.
+     */
+    public synchronized String get(long contactId, String version) {
+        if (mCache == null) return null;
+        Entry entry = mCache.get(contactId);
+        if (entry != null && !entry.mVersion.equals(version)) {
+            mCache.remove(contactId);
+            entry = null;
+        }
+        if (entry == null) {
+            ++mMissCount;
+            return null;
+        }
+        ++mHitCount;
+        return entry.mContact;
+    }
+
+    public synchronized void put(long contactId, String version, String contact) {
+        if (mCache == null || version == null) return;
+        mCache.put(contactId, new Entry(version, contact));
+    }
+
+    public synchronized void invalidate(long contactId) {
+        if (mCache == null) return;
+        mCache.remove(contactId);
+    }
+
+    public synchronized void invalidate(Collection<Long> contactIds) {
+        if (mCache == null) return;
+        for (Long id : contactIds) {
+            mCache.remove(id);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        if (mCache == null) return;
+        mCache.evictAll();
+    }
+
+    /**
+     * Returns the number of contacts currently cached.
+     */
+    public synchronized int size() {
+        return mCache == null ? 0 : mCache.size();
+    }
+
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Returns the statistics as a JSON object with the "hitCount" and
+     * "missCount" since the process started or resetStatistics(), and the
+     * current "entryCount" and "maxSize" in contacts.
+     */
+    public synchronized String getStats() {
+        StringWriter output = new StringWriter();
+        JsonWriter writer = new JsonWriter(output);
+        try {
+            writer.beginObject();
+            writer.name("hitCount").value(mHitCount);
+            writer.name("missCount").value(mMissCount);
+            writer.name("entryCount").value(size());
+            writer.name("maxSize").value(mMaxSize);
+            writer.endObject();
+            writer.close();
+        } catch (IOException e) {
+            Log.e(TAG, "getStats: " + e.toString());
+            return "{}";
+        }
+        return output.toString();
+    }
+
+    public synchronized void resetStatistics() {
+        mHitCount = 0;
+        mMissCount = 0;
+    }
+}
@@ -0,0 +1,298 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.extension.api.contacts;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.os.Build;
+import android.provider.ContactsContract;
+import android.provider.ContactsContract.RawContacts;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+
+/**
+ * Keeps a snapshot of the contacts table and computes which contacts were
+ * added, removed or modified since the previous snapshot.
+ *
+ * From Jellybean MR2 on only the contacts updated or deleted after the last
+ * seen timestamp are queried. On older versions a single scan of the raw
+ * contacts' ids and versions is diffed against the previous one. Snapshots
+ * are held in sorted primitive arrays to keep large address books cheap.
+ */
+class ContactChangeTracker {
+    private static final String TAG = "ContactChangeTracker";
+
+    private static final String[] RAW_CONTACT_PROJECTION = {
+        RawContacts._ID, RawContacts.CONTACT_ID, RawContacts.VERSION
+    };
+
+    static class Changes {
+        final HashSet<Long> mAdded = new HashSet<Long>();
+        final HashSet<Long> mRemoved = new HashSet<Long>();
+        final HashSet<Long> mModified = new HashSet<Long>();
+
+        boolean isEmpty() {
+            return mAdded.isEmpty() && mRemoved.isEmpty() && mModified.isEmpty();
+        }
+    }
+
+    private final ContentResolver mResolver;
+    private final boolean mUseTimestamps =
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+    // Sorted ids of all known contacts.
+    private long[] mContactIds = new long[0];
+
+    // Used with timestamps: the newest update/deletion seen so far, and the
+    // contacts updated at exactly mLastUpdated which were already reported.
+    private long mLastUpdated = 0;
+    private long mLastDeleted = 0;
+    private HashSet<Long> mUpdatedAtLast = new HashSet<Long>();
+
+    // Used without timestamps: raw contact ids sorted ascending, and the
+    // contact id and version of each. Only the first mRawCount are valid.
+    private long[] mRawIds = new long[0];
+    private long[] mRawContactIds = new long[0];
+    private int[] mRawVersions = new int[0];
+    private int mRawCount = 0;
+
+    ContactChangeTracker(ContentResolver resolver) {
+        mResolver = resolver;
+    }
+
+    /**
+     * Replaces the snapshot with the current state of the contacts table.
+     */
+    void takeSnapshot() {
+        if (mUseTimestamps) {
+            mContactIds = new long[0];
+            mLastUpdated = 0;
+            mLastDeleted = System.currentTimeMillis();
+            mUpdatedAtLast.clear();
+            Changes changes = new Changes();
+            queryUpdatedContacts(changes);
+            mContactIds = mergeChanges(mContactIds, changes);
+        } else {
+            scanRawContacts(null);
+        }
+    }
+
+    /**
+     * Returns what changed since the previous call or snapshot, and moves
+     * the snapshot forward. Returns null when the contacts can't be read.
+     */
+    Changes computeChanges() {
+        Changes changes = new Changes();
+        if (mUseTimestamps) {
+            if (!queryUpdatedContacts(changes) || !queryDeletedContacts(changes)) return null;
+            mContactIds = mergeChanges(mContactIds, changes);
+        } else {
+            if (!scanRawContacts(changes)) return null;
+        }
+        changes.mModified.removeAll(changes.mAdded);
+        changes.mModified.removeAll(changes.mRemoved);
+        return changes;
+    }
+
+    private boolean queryUpdatedContacts(Changes changes) {
+        Cursor c = null;
+        try {
+            c = mResolver.query(ContactsContract.Contacts.CONTENT_URI,
+                    new String[] {
+                        ContactsContract.Contacts._ID,
+                        ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP
+                    },
+                    ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP + ">=?",
+                    new String[] { String.valueOf(mLastUpdated) }, null);
+            if (c == null) return false;
+
+            long lastUpdated = mLastUpdated;
+            HashSet<Long> updatedAtLast = new HashSet<Long>();
+            while (c.moveToNext()) {
+                long contactID = c.getLong(0);
+                long timestamp = c.getLong(1);
+                if (timestamp == mLastUpdated && mUpdatedAtLast.contains(contactID)) continue;
+
+                if (Arrays.binarySearch(mContactIds, contactID) >= 0) {
+                    changes.mModified.add(contactID);
+                } else {
+                    changes.mAdded.add(contactID);
+                }
+
+                if (timestamp > lastUpdated) {
+                    lastUpdated = timestamp;
+                    updatedAtLast.clear();
+                }
+                if (timestamp == lastUpdated) updatedAtLast.add(contactID);
+            }
+            if (lastUpdated == mLastUpdated) {
+                mUpdatedAtLast.addAll(updatedAtLast);
+            } else {
+                mLastUpdated = lastUpdated;
+                mUpdatedAtLast = updatedAtLast;
+            }
+            return true;
+        } catch (SecurityException e) {
+            Log.e(TAG, "queryUpdatedContacts: " + e.toString());
+            return false;
+        } finally {
+            if (c != null) c.close();
+        }
+    }
+
+    private boolean queryDeletedContacts(Changes changes) {
+        Cursor c = null;
+        try {
+            c = mResolver.query(ContactsContract.DeletedContacts.CONTENT_URI,
+                    new String[] {
+                        ContactsContract.DeletedContacts.CONTACT_ID,
+                        ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP
+                    },
+                    ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP + ">=?",
+                    new String[] { String.valueOf(mLastDeleted) }, null);
+            if (c == null) return false;
+
+            while (c.moveToNext()) {
+                long contactID = c.getLong(0);
+                // Contacts deleted again after being reported are no longer known.
+                if (Arrays.binarySearch(mContactIds, contactID) >= 0) {
+                    changes.mRemoved.add(contactID);
+                }
+                mLastDeleted = Math.max(mLastDeleted, c.getLong(1));
+            }
+            return true;
+        } catch (SecurityException e) {
+            Log.e(TAG, "queryDeletedContacts: " + e.toString());
+            return false;
+        } finally {
+            if (c != null) c.close();
+        }
+    }
+
+    /**
+     * Reads the id, contact id and version of every raw contact in one pass.
+     * When changes is not null the result is diffed against the previous
+     * scan. The snapshot is replaced either way.
+     */
+    private boolean scanRawContacts(Changes changes) {
+        Cursor c = null;
+        long[] rawIds;
+        long[] rawContactIds;
+        int[] rawVersions;
+        int count = 0;
+        try {
+            c = mResolver.query(RawContacts.CONTENT_URI, RAW_CONTACT_PROJECTION,
+                    RawContacts.DELETED + "=0", null, RawContacts._ID + " ASC");
+            if (c == null) return false;
+
+            int capacity = c.getCount();
+            rawIds = new long[capacity];
+            rawContactIds = new long[capacity];
+            rawVersions = new int[capacity];
+            while (c.moveToNext() && count < capacity) {
+                rawIds[count] = c.getLong(0);
+                rawContactIds[count] = c.getLong(1);
+                rawVersions[count] = c.getInt(2);
+                ++count;
+            }
+        } catch (SecurityException e) {
+            Log.e(TAG, "scanRawContacts: " + e.toString());
+            return false;
+        } finally {
+            if (c != null) c.close();
+        }
+
+        long[] contactIds = sortedUnique(rawContactIds, count);
+        if (changes != null) {
+            diffRawContacts(rawIds, rawContactIds, rawVersions, count, contactIds, changes);
+        }
+
+        mRawIds = rawIds;
+        mRawContactIds = rawContactIds;
+        mRawVersions = rawVersions;
+        mContactIds = contactIds;
+        mRawCount = count;
+        return true;
+    }
+
+    private void diffRawContacts(long[] rawIds, long[] rawContactIds, int[] rawVersions,
+            int count, long[] contactIds, Changes changes) {
+        int i = 0;
+        int j = 0;
+        while (i < mRawCount || j < count) {
+            if (j >= count || (i < mRawCount && mRawIds[i] < rawIds[j])) {
+                // The raw contact is gone.
+                long contactID = mRawContactIds[i++];
+                if (Arrays.binarySearch(contactIds, contactID) < 0) {
+                    changes.mRemoved.add(contactID);
+                } else {
+                    changes.mModified.add(contactID);
+                }
+            } else if (i >= mRawCount || rawIds[j] < mRawIds[i]) {
+                // The raw contact is new.
+                addChangedContact(rawContactIds[j++], changes);
+            } else {
+                if (mRawVersions[i] != rawVersions[j] || mRawContactIds[i] != rawContactIds[j]) {
+                    addChangedContact(rawContactIds[j], changes);
+                    if (mRawContactIds[i] != rawContactIds[j]
+                            && Arrays.binarySearch(contactIds, mRawContactIds[i]) < 0) {
+                        changes.mRemoved.add(mRawContactIds[i]);
+                    }
+                }
+                ++i;
+                ++j;
+            }
+        }
+    }
+
+    private void addChangedContact(long contactID, Changes changes) {
+        if (Arrays.binarySearch(mContactIds, contactID) < 0) {
+            changes.mAdded.add(contactID);
+        } else {
+            changes.mModified.add(contactID);
+        }
+    }
+
+    private static long[] sortedUnique(long[] values, int count) {
+        long[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; ++i) {
+            if (n == 0 || sorted[n - 1] != sorted[i]) sorted[n++] = sorted[i];
+        }
+        return Arrays.copyOf(sorted, n);
+    }
+
+    // Returns the sorted ids with the added ones merged in and the removed ones dropped.
+    private static long[] mergeChanges(long[] sorted, Changes changes) {
+        long[] added = new long[changes.mAdded.size()];
+        Iterator<Long> iterator = changes.mAdded.iterator();
+        for (int k = 0; iterator.hasNext(); ++k) {
+            added[k] = iterator.next();
+        }
+        Arrays.sort(added);
+
+        long[] result = new long[sorted.length + added.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < sorted.length || j < added.length) {
+            long next;
+            if (j >= added.length || (i < sorted.length && sorted[i] < added[j])) {
+                next = sorted[i++];
+            } else if (i >= sorted.length || added[j] < sorted[i]) {
+                next = added[j++];
+            } else {
+                next = sorted[i++];
+                ++j;
+            }
+            if (!changes.mRemoved.contains(next)) result[n++] = next;
+        }
+        return Arrays.copyOf(result, n);
+    }
+}
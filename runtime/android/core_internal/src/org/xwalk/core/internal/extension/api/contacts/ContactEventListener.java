@@ -6,13 +6,9 @@ package org.xwalk.core.internal.extension.api.contacts;
 
 import android.content.ContentResolver;
 import android.database.ContentObserver;
-import android.database.Cursor;
 import android.os.Handler;
-import android.provider.ContactsContract;
-import android.provider.ContactsContract.RawContacts;
 import android.util.Log;
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 
@@ -22,72 +18,110 @@ import org.json.JSONObject;
 
 /**
  * This class observes changes of the contacts data table and fire events when necessary.
+ *
+ * Bursts of onChange() calls, e.g. during a sync, are coalesced into one
+ * check after the burst has been quiet for NOTIFY_DELAY_MS. Changes are
+ * computed incrementally by ContactChangeTracker.
+ *
+ * Changes are also tracked while the ContactCache is enabled, even when JS
+ * doesn't listen, to drop the modified and removed contacts from the cache.
  */
 public class ContactEventListener extends ContentObserver {
     private static final String TAG = "ContactsEventListener";
+    private static final long NOTIFY_DELAY_MS = 500;
 
     private final Contacts mContacts;
-    private final ContentResolver mResolver;
+    private final Handler mHandler;
+    private final ContactChangeTracker mTracker;
 
     private boolean mIsListening = false;
-    private HashMap<String, String> mRawID2ContactIDMaps;
-    private HashMap<String, String> mRawID2VersionMaps;
-    private HashSet<String> mContactIDs;
+    private boolean mIsTracking = false;
+    // Set by onChange() until the changes have been computed.
+    private boolean mHasPendingChanges = false;
+
+    private final Runnable mNotifyTask = new Runnable() {
+        @Override
+        public void run() {
+            notifyChanges();
+        }
+    };
 
     public ContactEventListener(Handler handler, Contacts instance, ContentResolver resolver) {
         super(handler);
+        mHandler = handler;
         mContacts = instance;
-        mResolver = resolver;
+        mTracker = new ContactChangeTracker(resolver);
     }
 
     @Override
-    public void onChange(boolean selfChange) {
+    public synchronized void onChange(boolean selfChange) {
         super.onChange(selfChange);
-        if (!mIsListening) return;
-        notifyChanges(false);
+        if (!mIsTracking) return;
+        mHasPendingChanges = true;
+        mHandler.removeCallbacks(mNotifyTask);
+        mHandler.postDelayed(mNotifyTask, NOTIFY_DELAY_MS);
     }
 
-    protected void startListening() {
-        if (mIsListening) return;
+    protected synchronized void startListening() {
         mIsListening = true;
-        mContactIDs = getAllContactIDs();
-        readAllRawContactInfo();
+        startTracking();
     }
 
-    protected void onResume() {
-        if (!mIsListening) return;
-        notifyChanges(true);
+    protected synchronized void startTracking() {
+        if (mIsTracking) return;
+        mIsTracking = true;
+        mTracker.takeSnapshot();
+    }
+
+    /**
+     * Handles the changes still waiting for the end of a burst right away,
+     * so that the cache doesn't serve contacts which were already changed.
+     */
+    protected synchronized void flushPendingChanges() {
+        if (!mHasPendingChanges) return;
+        mHandler.removeCallbacks(mNotifyTask);
+        notifyChanges();
     }
 
-    private void notifyChanges(boolean bResume) {
+    protected synchronized void onPause() {
+        // Changes made while paused are not observed, assume there are some.
+        if (mIsTracking) mHasPendingChanges = true;
+    }
+
+    protected synchronized void onResume() {
+        if (!mIsTracking) return;
+        // Changes made while paused were not observed, check right away.
+        mHandler.removeCallbacks(mNotifyTask);
+        notifyChanges();
+    }
+
+    private synchronized void notifyChanges() {
+        mHasPendingChanges = false;
+        ContactChangeTracker.Changes changes = mTracker.computeChanges();
+        if (changes == null) {
+            // Nothing is known about what changed.
+            ContactCache.getInstance().invalidateAll();
+            return;
+        }
+        if (changes.isEmpty()) return;
+
+        ContactCache cache = ContactCache.getInstance();
+        cache.invalidate(changes.mModified);
+        cache.invalidate(changes.mRemoved);
+        if (!mIsListening) return;
+
         try {
             JSONObject jsonOutput = new JSONObject();
-            HashSet<String> contactIDs = getAllContactIDs();
-
-            if (bResume || contactIDs.size() > mContactIDs.size()) {
-                // Calculate the added ids.
-                HashSet<String> addedIDs = getDiffSet(contactIDs, mContactIDs);
-                if (!bResume || addedIDs.size() > 0) {
-                    jsonOutput.put("added", convertSet2JSONArray(addedIDs));
-                }
-            } else if (bResume || contactIDs.size() < mContactIDs.size()) {
-                // Calculate the removed ids.
-                HashSet<String> removedIDs = getDiffSet(mContactIDs, contactIDs);
-                if (!bResume || contactIDs.size() < 0) {
-                    jsonOutput.put("removed", convertSet2JSONArray(removedIDs));
-                }
-            } else {
-                // Calculate the modified ids.
-                HashSet<String> commonIDs = bResume ? getIntersectSet(mContactIDs, contactIDs) : contactIDs;
-                HashSet<String> modifiedIDs = compareAllRawContactInfo(commonIDs);
-                if (modifiedIDs.size() != 0) {
-                    jsonOutput.put("modified", convertSet2JSONArray(modifiedIDs));
-                }
+            if (!changes.mAdded.isEmpty()) {
+                jsonOutput.put("added", convertSet2JSONArray(changes.mAdded));
+            }
+            if (!changes.mRemoved.isEmpty()) {
+                jsonOutput.put("removed", convertSet2JSONArray(changes.mRemoved));
+            }
+            if (!changes.mModified.isEmpty()) {
+                jsonOutput.put("modified", convertSet2JSONArray(changes.mModified));
             }
-
             notifyContactChanged(jsonOutput);
-            mContactIDs = contactIDs;
-            readAllRawContactInfo();
         } catch (JSONException e) {
             Log.e(TAG, "notifyChanges: " + e.toString());
         }
@@ -105,100 +139,13 @@ public class ContactEventListener extends ContentObserver {
         }
     }
 
-    private JSONArray convertSet2JSONArray(HashSet<String> set) {
+    // Contact IDs are sent to JS as strings.
+    private JSONArray convertSet2JSONArray(HashSet<Long> set) {
         JSONArray jsonArray = new JSONArray();
-        Iterator<String> iterator = set.iterator();
+        Iterator<Long> iterator = set.iterator();
         while (iterator.hasNext()) {
-            jsonArray.put(iterator.next());
+            jsonArray.put(String.valueOf(iterator.next()));
         }
         return jsonArray;
     }
-
-    private HashSet<String> getAllContactIDs() {
-        Cursor c = null;
-        try {
-            c = mResolver.query(ContactsContract.Contacts.CONTENT_URI, null, null, null, null);
-            HashSet<String> contactIDs = new HashSet<String>();
-            while (c.moveToNext()) {
-                String contactID = c.getString(c.getColumnIndex(ContactsContract.Contacts._ID));
-                contactIDs.add(contactID);
-            }
-            return contactIDs;
-        } catch (SecurityException e) {
-            Log.e(TAG, "getAllContactIDs: " + e.toString());
-            return null;
-        } finally {
-            if (c != null) c.close();
-        }
-    }
-
-    private HashSet<String> getIntersectSet(HashSet<String> setA, HashSet<String> setB) {
-        HashSet<String> resultSet = new HashSet<String>();
-        resultSet.addAll(setA);
-        resultSet.retainAll(setB);
-        return resultSet;
-    }
-
-    private HashSet<String> getDiffSet(HashSet<String> setA, HashSet<String> setB) {
-        HashSet<String> resultSet = new HashSet<String>();
-        resultSet.addAll(setA);
-        resultSet.removeAll(setB);
-        return resultSet;
-    }
-
-    private void readAllRawContactInfo() {
-        Cursor c = null;
-        try {
-            c = mResolver.query(RawContacts.CONTENT_URI, null, null, null, null);
-            mRawID2ContactIDMaps = new HashMap<String, String>();
-            mRawID2VersionMaps = new HashMap<String, String>();
-            while (c.moveToNext()) {
-                String contactID = c.getString(c.getColumnIndex(RawContacts.CONTACT_ID));
-                String rawContactID = c.getString(c.getColumnIndex(RawContacts._ID));
-                String version = c.getString(c.getColumnIndex(RawContacts.VERSION));
-                mRawID2ContactIDMaps.put(rawContactID, contactID);
-                mRawID2VersionMaps.put(rawContactID, version);
-            }
-        } catch (SecurityException e) {
-            Log.e(TAG, "readAllRawContactInfo: " + e.toString());
-        } finally {
-            if (c != null) c.close();
-        }
-    }
-
-    private HashSet<String> compareAllRawContactInfo(HashSet<String> commonSet) {
-        HashSet<String> contactIDs = null;
-        HashMap<String, String> compareMaps = null;
-        Cursor c = null;
-        try {
-            c = mResolver.query(RawContacts.CONTENT_URI, null, null, null, null);
-            contactIDs = new HashSet<String>();
-            compareMaps = new HashMap<String, String>();
-            while (c.moveToNext()) {
-                String rawContactID = c.getString(c.getColumnIndex(RawContacts._ID));
-                String version = c.getString(c.getColumnIndex(RawContacts.VERSION));
-                compareMaps.put(rawContactID, version);
-            }
-        } catch (SecurityException e) {
-            Log.e(TAG, "compareAllRawContactInfo: " + e.toString());
-            return null;
-        } finally {
-            if (c != null) c.close();
-        }
-
-        Iterator<String> iterator = compareMaps.keySet().iterator();
-        while (iterator.hasNext()) {
-            String rawContactID = iterator.next();
-            String newVersion = compareMaps.get(rawContactID);
-            String oldVersion = mRawID2VersionMaps.get(rawContactID);
-            if (oldVersion == null || !newVersion.equals(oldVersion)) {
-                String contactID = mRawID2ContactIDMaps.get(rawContactID);
-                if (contactID != null && commonSet.contains(contactID)) {
-                    contactIDs.add(contactID);
-                }
-            }
-        }
-
-        return contactIDs;
-    }
 }
@@ -9,6 +9,8 @@ import android.database.Cursor;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
 import android.provider.ContactsContract.Data;
+import android.provider.ContactsContract.Groups;
+import android.provider.ContactsContract.RawContacts;
 import android.provider.ContactsContract.CommonDataKinds.Email;
 import android.provider.ContactsContract.CommonDataKinds.Event;
 import android.provider.ContactsContract.CommonDataKinds.GroupMembership;
@@ -21,29 +23,65 @@ import android.provider.ContactsContract.CommonDataKinds.Photo;
 import android.provider.ContactsContract.CommonDataKinds.StructuredName;
 import android.provider.ContactsContract.CommonDataKinds.StructuredPostal;
 import android.provider.ContactsContract.CommonDataKinds.Website;
+import android.util.JsonWriter;
 import android.util.Log;
 import android.util.Pair;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
 /**
  * This class searches contacts by given options.
+ *
+ * Matching contact IDs are collected, ordered and cut to resultsLimit first,
+ * then only those contacts are read from the data table, with an explicit
+ * projection and in chunks that stay below SQLite's variable limit. Each
+ * contact is written straight to JSON with a JsonWriter.
+ *
+ * When a ContactCache is given, the versions of the contacts' raw contacts
+ * are read first, cached contacts of the same version are not read again and
+ * the ones read are added to it.
  */
 public class ContactFinder {
     private ContactUtils mUtils;
     private static final String TAG = "ContactFinder";
 
+    // SQLite allows at most 999 host parameters per statement.
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private static final String[] DATA_PROJECTION = {
+        Data.CONTACT_ID,
+        Data.MIMETYPE,
+        Data.IS_SUPER_PRIMARY,
+        Data.DATA1,
+        Data.DATA2,
+        Data.DATA3,
+        Data.DATA4,
+        Data.DATA5,
+        Data.DATA6,
+        Data.DATA15
+    };
+
+    // Group titles by group ID, read once per find() when needed.
+    private Map<String, String> mGroupTitles;
+    private final StringWriter mContactContents = new StringWriter();
+    private final ContactCache mCache;
+
     public ContactFinder(ContentResolver resolver) {
+        this(resolver, null);
+    }
+
+    public ContactFinder(ContentResolver resolver, ContactCache cache) {
         mUtils = new ContactUtils(resolver);
+        mCache = cache;
     }
 
     public static class FindOption {
@@ -58,134 +96,179 @@ public class ContactFinder {
         }
     }
 
-    private class ContactData {
+    private static class TypedValue {
+        public boolean preferred;
+        public String type;
+        public String value;
+    }
+
+    private static class ContactData {
         public String lastUpdated;
-        public JSONObject oName;
-        public JSONArray aEmails;
-        public JSONArray aPhotos;
-        public JSONArray aUrls;
-        public JSONArray aCategories;
-        public JSONArray aAddresses;
-        public JSONArray aNumbers;
-        public JSONArray aOrganizations;
-        public JSONArray aJobTitles;
+        public boolean hasName;
+        public String displayName;
+        public String honorificPrefix;
+        public String givenName;
+        public String additionalName;
+        public String familyName;
+        public String honorificSuffix;
+        public String nickname;
+        public List<TypedValue> emails;
+        public List<String> photos;
+        public List<TypedValue> urls;
+        public List<String> categories;
+        public List<TypedValue> addresses;
+        public List<TypedValue> numbers;
+        public List<String> organizations;
+        public List<String> jobTitles;
         public String birthday;
-        public JSONArray aNotes;
-        public JSONArray aImpp;
+        public List<String> notes;
+        public List<TypedValue> impp;
         public String anniversary;
         public String gender;
-        public JSONObject ensurePut(long id) {
-            JSONObject o = new JSONObject();
-            try {
-                o.put("id", id);
-            } catch (JSONException e) {
-                Log.e(TAG, "ensurePut - Failed to build json data: " + e.toString());
+
+        public void write(JsonWriter writer, long id) throws IOException {
+            writer.beginObject();
+            writer.name("id").value(id);
+            if (hasName) {
+                writer.name("name").beginObject();
+                writeString(writer, "displayName", displayName);
+                writeArrayTop(writer, "honorificPrefixes", honorificPrefix);
+                writeArrayTop(writer, "givenNames", givenName);
+                writeArrayTop(writer, "additionalNames", additionalName);
+                writeArrayTop(writer, "familyNames", familyName);
+                writeArrayTop(writer, "honorificSuffixes", honorificSuffix);
+                writeArrayTop(writer, "nicknames", nickname);
+                writer.endObject();
             }
-            ensurePut(o, "name", oName);
-            ensurePut(o, "lastUpdated", lastUpdated);
-            ensurePut(o, "emails", aEmails);
-            ensurePut(o, "photos", aPhotos);
-            ensurePut(o, "urls", aUrls);
-            ensurePut(o, "categories", aCategories);
-            ensurePut(o, "addresses", aAddresses);
-            ensurePut(o, "phoneNumbers", aNumbers);
-            ensurePut(o, "organizations", aOrganizations);
-            ensurePut(o, "jobTitles", aJobTitles);
-            ensurePut(o, "birthday", birthday);
-            ensurePut(o, "notes", aNotes);
-            ensurePut(o, "impp", aImpp);
-            ensurePut(o, "anniversary", anniversary);
-            ensurePut(o, "gender", gender);
-            return o;
+            writeString(writer, "lastUpdated", lastUpdated);
+            writeTypeArray(writer, "emails", emails);
+            writeStringArray(writer, "photos", photos);
+            writeTypeArray(writer, "urls", urls);
+            writeStringArray(writer, "categories", categories);
+            writeTypeArray(writer, "addresses", addresses);
+            writeTypeArray(writer, "phoneNumbers", numbers);
+            writeStringArray(writer, "organizations", organizations);
+            writeStringArray(writer, "jobTitles", jobTitles);
+            writeString(writer, "birthday", birthday);
+            writeStringArray(writer, "notes", notes);
+            writeTypeArray(writer, "impp", impp);
+            writeString(writer, "anniversary", anniversary);
+            writeString(writer, "gender", gender);
+            writer.endObject();
         }
-        private <T> void ensurePut(JSONObject o, String jsonName, T t) {
-            try {
-                if (t != null) o.put(jsonName, t);
-            } catch (JSONException e) {
-                Log.e(TAG, "ensurePut - Failed to add json data: " + e.toString());
-            }
+
+        private static void writeString(JsonWriter writer, String name, String value)
+                throws IOException {
+            if (value != null) writer.name(name).value(value);
         }
-    }
 
-    private JSONObject addString(JSONObject o, Cursor c, String jsonName, String dataName) {
-        try {
-            final String value = c.getString(c.getColumnIndex(dataName));
-            if (o == null) o = new JSONObject();
-            if (value != null) o.put(jsonName, value);
-        } catch (JSONException e) {
-            Log.e(TAG, "addString - Failed to build json data: " + e.toString());
+        private static void writeArrayTop(JsonWriter writer, String name, String value)
+                throws IOException {
+            if (value == null) return;
+            writer.name(name).beginArray().value(value).endArray();
         }
-        return o;
-    }
 
-    private JSONArray addString(JSONArray array, Cursor c, String dataName) {
-        if (array == null) array = new JSONArray();
-        final String value = c.getString(c.getColumnIndex(dataName));
-        if (value != null) array.put(value);
-        return array;
-    }
+        private static void writeStringArray(JsonWriter writer, String name, List<String> values)
+                throws IOException {
+            if (values == null) return;
+            writer.name(name).beginArray();
+            for (String value : values) writer.value(value);
+            writer.endArray();
+        }
 
-    private JSONObject addArrayTop(JSONObject o, Cursor c,
-            String jsonName, String dataName, Map<String, Integer> typeValuesMap) {
-        final String nameString = ContactUtils.getKeyFromValue(
-                typeValuesMap, Integer.valueOf(c.getString(c.getColumnIndex(dataName))));
-        return ensureAddArrayTop(o, c, jsonName, nameString);
+        private static void writeTypeArray(JsonWriter writer, String name, List<TypedValue> values)
+                throws IOException {
+            if (values == null) return;
+            writer.name(name).beginArray();
+            for (TypedValue v : values) {
+                writer.beginObject();
+                writer.name("preferred").value(v.preferred ? "true" : "false");
+                writeArrayTop(writer, "types", v.type);
+                writer.name("value").value(v.value);
+                writer.endObject();
+            }
+            writer.endArray();
+        }
     }
 
-    private JSONObject addArrayTop(JSONObject o, Cursor c,
-            String jsonName, String dataName) {
-        final String nameString = c.getString(c.getColumnIndex(dataName));
-        return ensureAddArrayTop(o, c, jsonName, nameString);
-    }
+    /**
+     * Column indices of DATA_PROJECTION, resolved once per cursor.
+     */
+    private static class DataColumns {
+        public final int contactId;
+        public final int mimeType;
+        public final int isSuperPrimary;
+        public final int data1;
+        public final int type;
+        public final int lastUpdated;
+        public final int displayName;
+        public final int prefix;
+        public final int givenName;
+        public final int middleName;
+        public final int familyName;
+        public final int suffix;
+        public final int nickname;
+        public final int photo;
+        public final int groupRowId;
+        public final int company;
+        public final int title;
+        public final int startDate;
+        public final int note;
+        public final int imProtocol;
 
-    private JSONObject ensureAddArrayTop(JSONObject o, Cursor c,
-            String jsonName, String nameString) {
-        try {
-            if (o == null) o = new JSONObject();
-            if (nameString != null) {
-                JSONArray nameArray = new JSONArray();
-                nameArray.put(nameString);
-                o.put(jsonName, nameArray);
-            }
-        } catch (JSONException e) {
-            Log.e(TAG, "ensureAddArrayTop - Failed to build json data: " + e.toString());
+        public DataColumns(Cursor c) {
+            contactId = c.getColumnIndex(Data.CONTACT_ID);
+            mimeType = c.getColumnIndex(Data.MIMETYPE);
+            isSuperPrimary = c.getColumnIndex(Data.IS_SUPER_PRIMARY);
+            data1 = c.getColumnIndex(Data.DATA1);
+            // Email, Website, StructuredPostal, Phone, Im and Event all keep their type in DATA2.
+            type = c.getColumnIndex(Email.TYPE);
+            lastUpdated = c.getColumnIndex(Data.CONTACT_LAST_UPDATED_TIMESTAMP);
+            displayName = c.getColumnIndex(StructuredName.DISPLAY_NAME);
+            prefix = c.getColumnIndex(StructuredName.PREFIX);
+            givenName = c.getColumnIndex(StructuredName.GIVEN_NAME);
+            middleName = c.getColumnIndex(StructuredName.MIDDLE_NAME);
+            familyName = c.getColumnIndex(StructuredName.FAMILY_NAME);
+            suffix = c.getColumnIndex(StructuredName.SUFFIX);
+            nickname = c.getColumnIndex(Nickname.NAME);
+            photo = c.getColumnIndex(Photo.PHOTO);
+            groupRowId = c.getColumnIndex(GroupMembership.GROUP_ROW_ID);
+            company = c.getColumnIndex(Organization.COMPANY);
+            title = c.getColumnIndex(Organization.TITLE);
+            startDate = c.getColumnIndex(Event.START_DATE);
+            note = c.getColumnIndex(Note.NOTE);
+            imProtocol = c.getColumnIndex(Im.PROTOCOL);
         }
-        return o;
     }
 
-    private JSONArray addTypeArray(JSONArray array, Cursor c, String data,
-            Map<String, String> typeMap, Map<String, Integer> typeValuesMap) {
-        try {
-            if (array == null) array = new JSONArray();
-            final String primary = typeMap.get("isSuperPrimary");
-            final String preferred =
-                    (c.getString(c.getColumnIndex(primary)).equals("1")) ? "true" : "false";
-            JSONObject o = new JSONObject();
-            o.put("preferred", preferred);
-            addArrayTop(o, c, "types", typeMap.get("type"), typeValuesMap);
-            String value = c.getString(c.getColumnIndex(data));
-            if (c.getString(c.getColumnIndex(Data.MIMETYPE)).equals(Im.CONTENT_ITEM_TYPE)) {
-                int protocol = c.getInt(c.getColumnIndex(Im.PROTOCOL));
-                String prefix = ContactUtils.getKeyFromValue(ContactConstants.imProtocolMap, protocol);
-                value = prefix + ':' + value;
-            }
-            o.put("value", value);
-            array.put(o);
-        } catch (JSONException e) {
-            Log.e(TAG, "addTypeArray - Failed to build json data: " + e.toString());
+    private static List<String> addString(List<String> list, String value) {
+        if (list == null) list = new ArrayList<String>();
+        if (value != null) list.add(value);
+        return list;
+    }
+
+    private static List<TypedValue> addTypeValue(List<TypedValue> list, Cursor c,
+            DataColumns columns, Map<String, Integer> typeValuesMap) {
+        if (list == null) list = new ArrayList<TypedValue>();
+        TypedValue v = new TypedValue();
+        v.preferred = c.getInt(columns.isSuperPrimary) == 1;
+        if (!c.isNull(columns.type)) {
+            v.type = ContactUtils.getKeyFromValue(typeValuesMap, c.getInt(columns.type));
         }
-        return array;
+        v.value = c.getString(columns.data1);
+        list.add(v);
+        return list;
     }
 
-    private Set<String> getContactIds(FindOption findOption) {
-        Set<String> ids = null;
+    private Set<Long> getContactIds(FindOption findOption) {
+        Set<Long> ids = null;
         Cursor c = null;
         try {
-            c = mUtils.mResolver.query(Data.CONTENT_URI, null, findOption.mWhere,
-                                       findOption.mWhereArgs, findOption.mSortOrder);
-            ids = new HashSet<String>();
+            c = mUtils.mResolver.query(Data.CONTENT_URI, new String[] { Data.CONTACT_ID },
+                    findOption.mWhere, findOption.mWhereArgs, findOption.mSortOrder);
+            ids = new LinkedHashSet<Long>();
             while (c.moveToNext()) {
-                ids.add(String.valueOf(c.getLong(c.getColumnIndex(Data.CONTACT_ID))));
+                ids.add(c.getLong(0));
             }
             return ids;
         } catch (SecurityException e) {
@@ -221,127 +304,329 @@ public class ContactFinder {
         return (order != "") ? order.substring(0, order.length()-1) : null;
     }
 
+    // Returns "contact_id in (?,...)" for the IDs, whose values are added to
+    // |args|.
+    private static String makeIdSelection(List<Long> contactIds, List<String> args) {
+        StringBuilder where = new StringBuilder(Data.CONTACT_ID + " in (");
+        for (int i = 0; i < contactIds.size(); ++i) {
+            where.append(i == 0 ? "?" : ",?");
+            args.add(String.valueOf(contactIds.get(i)));
+        }
+        return where.append(')').toString();
+    }
+
+    // Compares the sorting values of two rows the way the query orders them,
+    // to merge the rows of several queries.
+    private static class SortRowComparator implements Comparator<String[]> {
+        private final boolean[] mDescending;
+
+        SortRowComparator(String[] orderTerms) {
+            mDescending = new boolean[orderTerms.length];
+            for (int i = 0; i < orderTerms.length; ++i) {
+                mDescending[i] = orderTerms[i].endsWith(" DESC");
+            }
+        }
+
+        @Override
+        public int compare(String[] a, String[] b) {
+            // Column 0 is the contact ID, SQLite puts NULL first.
+            for (int i = 1; i < a.length; ++i) {
+                int result;
+                if (a[i] == null || b[i] == null) {
+                    result = (a[i] == null ? 0 : 1) - (b[i] == null ? 0 : 1);
+                } else {
+                    result = a[i].compareTo(b[i]);
+                }
+                if (result != 0) return mDescending[i - 1] ? -result : result;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Orders the IDs by the rows of the sorting field, contacts without that
+     * field follow in their original order. At most resultsLimit IDs are kept.
+     * Only the rows of the given contacts are read, MAX_IDS_PER_QUERY
+     * contacts per query.
+     */
     //TODO(hdq): Currently this function doesn't support multi-column sorting.
-    private JSONArray getContacts(
-            Set<String> contactIds, String sortOrder, String sortByMimeType, Long resultsLimit) {
-        // Get all records of given contactIds.
-        // For example, sort by ascending:
-        // -----------------------------
-        // id  data           mimetype
-        // -----------------------------
-        // 60  +34600000000   phone_v2
-        // 59  +34698765432   phone_v2
-        // 59  David1 Smith   name
-        // 60  David2 Smith   name
-        String where = null;
-        String[] whereArgs = null;
-        JSONArray returnArray = new JSONArray();
-        if (contactIds.size() != 0) {
-            where = Data.CONTACT_ID + " in (" + ContactUtils.makeQuestionMarkList(contactIds) + ")";
-            whereArgs = contactIds.toArray(new String[contactIds.size()]);
+    private List<Long> orderContactIds(
+            Set<Long> contactIds, String sortOrder, String sortByMimeType, Long resultsLimit) {
+        long limit = (resultsLimit == null) ? Long.MAX_VALUE : resultsLimit;
+        LinkedHashSet<Long> ordered = new LinkedHashSet<Long>();
+
+        if (sortOrder != null) {
+            String[] orderTerms = sortOrder.split(",");
+            String[] projection = new String[orderTerms.length + 1];
+            projection[0] = Data.CONTACT_ID;
+            for (int i = 0; i < orderTerms.length; ++i) {
+                projection[i + 1] = orderTerms[i].split(" ")[0];
+            }
+
+            List<Long> ids = new ArrayList<Long>(contactIds);
+            List<String[]> rows = new ArrayList<String[]>();
+            for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+                List<Long> chunk = ids.subList(
+                        start, Math.min(start + MAX_IDS_PER_QUERY, ids.size()));
+                List<String> args = new ArrayList<String>();
+                String where = makeIdSelection(chunk, args) + " AND " + Data.MIMETYPE + "=?";
+                args.add(sortByMimeType);
+
+                Cursor c = null;
+                try {
+                    c = mUtils.mResolver.query(Data.CONTENT_URI, projection, where,
+                            args.toArray(new String[args.size()]), sortOrder);
+                    while (c.moveToNext()) {
+                        String[] row = new String[projection.length];
+                        for (int i = 0; i < row.length; ++i) {
+                            row[i] = c.getString(i);
+                        }
+                        rows.add(row);
+                    }
+                } catch (SecurityException e) {
+                    Log.e(TAG, "orderContactIds: " + e.toString());
+                } finally {
+                    if (c != null) c.close();
+                }
+            }
+
+            // A single query is already in order. The sort is stable, so the
+            // rows of each query keep their order among equal values.
+            if (ids.size() > MAX_IDS_PER_QUERY) {
+                Collections.sort(rows, new SortRowComparator(orderTerms));
+            }
+            for (String[] row : rows) {
+                if (ordered.size() >= limit) break;
+                ordered.add(Long.valueOf(row[0]));
+            }
         }
-        else
-            return returnArray;
-        Cursor c = null;
-        Map<Long, ContactData> dataMap = null;
-        try {
-            c = mUtils.mResolver.query(Data.CONTENT_URI, null, where, whereArgs, sortOrder);
-            dataMap = new LinkedHashMap<Long, ContactData>();
 
-            // Read contact IDs to build the array by sortOrder.
-            if (sortOrder != null) {
+        for (Long id : contactIds) {
+            if (ordered.size() >= limit) break;
+            ordered.add(id);
+        }
+        return new ArrayList<Long>(ordered);
+    }
+
+    /**
+     * Reads the data rows of the given contacts, MAX_IDS_PER_QUERY contacts
+     * per query, and writes them as a JSON array in the order of contactIds.
+     */
+    private String getContacts(List<Long> contactIds) {
+        String[] contacts = new String[contactIds.size()];
+        List<Long> missing = new ArrayList<Long>();
+        Map<Long, String> versions = (mCache != null) ? readVersions(contactIds) : null;
+        for (int i = 0; i < contacts.length; ++i) {
+            Long id = contactIds.get(i);
+            if (versions != null) contacts[i] = mCache.get(id, versions.get(id));
+            if (contacts[i] == null) missing.add(id);
+        }
+
+        Map<Long, String> read = new HashMap<Long, String>();
+        for (int start = 0; start < missing.size(); start += MAX_IDS_PER_QUERY) {
+            List<Long> chunk = missing.subList(
+                    start, Math.min(start + MAX_IDS_PER_QUERY, missing.size()));
+            Map<Long, ContactData> dataMap = readContactData(chunk);
+            if (dataMap == null) return "[]";
+
+            for (Map.Entry<Long, ContactData> entry : dataMap.entrySet()) {
+                Long id = entry.getKey();
+                String contact = writeContact(id, entry.getValue());
+                read.put(id, contact);
+                if (versions != null) mCache.put(id, versions.get(id), contact);
+            }
+        }
+
+        StringBuilder out = new StringBuilder();
+        out.append('[');
+        boolean first = true;
+        for (int i = 0; i < contacts.length; ++i) {
+            String contact = contacts[i] != null ? contacts[i] : read.get(contactIds.get(i));
+            // Contacts without any data row are left out.
+            if (contact == null) continue;
+            if (!first) out.append(',');
+            out.append(contact);
+            first = false;
+        }
+        out.append(']');
+        return out.toString();
+    }
+
+    /**
+     * Returns the version of each contact, made of the IDs and VERSION of its
+     * raw contacts, MAX_IDS_PER_QUERY contacts per query. Returns null when
+     * the raw contacts can't be read.
+     */
+    private Map<Long, String> readVersions(List<Long> contactIds) {
+        Map<Long, StringBuilder> builders = new HashMap<Long, StringBuilder>();
+        for (int start = 0; start < contactIds.size(); start += MAX_IDS_PER_QUERY) {
+            List<Long> chunk = contactIds.subList(
+                    start, Math.min(start + MAX_IDS_PER_QUERY, contactIds.size()));
+            List<String> args = new ArrayList<String>();
+            // RawContacts.CONTACT_ID is the same column as Data.CONTACT_ID.
+            String where = makeIdSelection(chunk, args) + " AND " + RawContacts.DELETED + "=0";
+
+            Cursor c = null;
+            try {
+                c = mUtils.mResolver.query(RawContacts.CONTENT_URI, new String[] {
+                            RawContacts.CONTACT_ID, RawContacts._ID, RawContacts.VERSION
+                        }, where, args.toArray(new String[args.size()]), RawContacts._ID + " ASC");
+                if (c == null) return null;
                 while (c.moveToNext()) {
-                    // We should only check for mimetype of sorting field.
-                    // As e.g. above, sort by phone number: [60, 59], by name: [59, 60]
-                    String mime = c.getString(c.getColumnIndex(Data.MIMETYPE));
-                    if (!mime.equals(sortByMimeType)) continue;
-                    long id = c.getLong(c.getColumnIndex(Data.CONTACT_ID));
-                    if (!dataMap.containsKey(id)) dataMap.put(id, new ContactData());
+                    long id = c.getLong(0);
+                    StringBuilder version = builders.get(id);
+                    if (version == null) {
+                        version = new StringBuilder();
+                        builders.put(id, version);
+                    }
+                    version.append(c.getLong(1)).append(':').append(c.getInt(2)).append(';');
                 }
-                c.moveToFirst();
+            } catch (SecurityException e) {
+                Log.e(TAG, "readVersions: " + e.toString());
+                return null;
+            } finally {
+                if (c != null) c.close();
             }
+        }
+
+        Map<Long, String> versions = new HashMap<Long, String>();
+        for (Map.Entry<Long, StringBuilder> entry : builders.entrySet()) {
+            versions.put(entry.getKey(), entry.getValue().toString());
+        }
+        return versions;
+    }
+
+    private String writeContact(long id, ContactData d) {
+        mContactContents.getBuffer().setLength(0);
+        JsonWriter writer = new JsonWriter(mContactContents);
+        try {
+            d.write(writer, id);
+            writer.close();
+        } catch (IOException e) {
+            Log.e(TAG, "writeContact - Failed to build json data: " + e.toString());
+            return "{}";
+        }
+        return mContactContents.toString();
+    }
 
-            // Read details of each contacts
+    private Map<Long, ContactData> readContactData(List<Long> contactIds) {
+        List<String> args = new ArrayList<String>();
+        String where = makeIdSelection(contactIds, args);
+        String[] whereArgs = args.toArray(new String[args.size()]);
+
+        String[] projection = DATA_PROJECTION;
+        if (VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN_MR2) {
+            projection = new String[DATA_PROJECTION.length + 1];
+            System.arraycopy(DATA_PROJECTION, 0, projection, 0, DATA_PROJECTION.length);
+            projection[DATA_PROJECTION.length] = Data.CONTACT_LAST_UPDATED_TIMESTAMP;
+        }
+
+        Cursor c = null;
+        Map<Long, ContactData> dataMap = new HashMap<Long, ContactData>();
+        try {
+            c = mUtils.mResolver.query(
+                    Data.CONTENT_URI, projection, where, whereArgs, null);
+            DataColumns columns = new DataColumns(c);
             while (c.moveToNext()) {
-                long id = c.getLong(c.getColumnIndex(Data.CONTACT_ID));
-                if (!dataMap.containsKey(id)) dataMap.put(id, new ContactData());
+                long id = c.getLong(columns.contactId);
                 ContactData d = dataMap.get(id);
-                if (d.lastUpdated == null && VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN_MR2) {
-                    d.lastUpdated = mUtils.getLastUpdated(id);
-                }
-                String mime = c.getString(c.getColumnIndex(Data.MIMETYPE));
-                if (mime.equals(StructuredName.CONTENT_ITEM_TYPE)) {
-                    d.oName = addString(d.oName, c, "displayName", StructuredName.DISPLAY_NAME);
-                    d.oName = addArrayTop(d.oName, c, "honorificPrefixes", StructuredName.PREFIX);
-                    d.oName = addArrayTop(d.oName, c, "givenNames", StructuredName.GIVEN_NAME);
-                    d.oName = addArrayTop(d.oName, c, "additionalNames", StructuredName.MIDDLE_NAME);
-                    d.oName = addArrayTop(d.oName, c, "familyNames", StructuredName.FAMILY_NAME);
-                    d.oName = addArrayTop(d.oName, c, "honorificSuffixes", StructuredName.SUFFIX);
-                } else if (mime.equals(Nickname.CONTENT_ITEM_TYPE)) {
-                    d.oName = addArrayTop(d.oName, c, "nicknames", Nickname.NAME);
-                } else if (mime.equals(Email.CONTENT_ITEM_TYPE)) {
-                    d.aEmails = addTypeArray(d.aEmails, c, Email.DATA,
-                                             ContactConstants.emailTypeMap,
-                                             ContactConstants.emailTypeValuesMap);
-                } else if (mime.equals(Photo.CONTENT_ITEM_TYPE)) {
-                    d.aPhotos = addString(d.aPhotos, c, Photo.PHOTO);
-                } else if (mime.equals(Website.CONTENT_ITEM_TYPE)) {
-                    d.aUrls = addTypeArray(d.aUrls, c, Website.DATA,
-                                           ContactConstants.websiteTypeMap,
-                                           ContactConstants.websiteTypeValuesMap);
-                } else if (mime.equals(GroupMembership.CONTENT_ITEM_TYPE)) {
-                    String title = mUtils.getGroupTitle(
-                            c.getString(c.getColumnIndex(GroupMembership.GROUP_ROW_ID)));
-                    if (title != null) {
-                        if (d.aCategories == null) d.aCategories = new JSONArray();
-                        d.aCategories.put(title);
-                    }
-                } else if (mime.equals(StructuredPostal.CONTENT_ITEM_TYPE)) {
-                    d.aAddresses = addTypeArray(d.aAddresses, c, StructuredPostal.DATA,
-                                                ContactConstants.addressTypeMap,
-                                                ContactConstants.addressTypeValuesMap);
-                } else if (mime.equals(Phone.CONTENT_ITEM_TYPE)) {
-                    d.aNumbers = addTypeArray(d.aNumbers, c, Phone.DATA,
-                                              ContactConstants.phoneTypeMap,
-                                              ContactConstants.phoneTypeValuesMap);
-                } else if (mime.equals(Organization.CONTENT_ITEM_TYPE)) {
-                    d.aOrganizations = addString(d.aOrganizations, c, Organization.COMPANY);
-                } else if (mime.equals(Organization.CONTENT_ITEM_TYPE)) {
-                    d.aJobTitles = addString(d.aJobTitles, c, Organization.TITLE);
-                } else if (mime.equals(Event.CONTENT_ITEM_TYPE)) {
-                    int type = Integer.valueOf(c.getString(c.getColumnIndex(Event.TYPE)));
-                    if (type == Event.TYPE_BIRTHDAY) {
-                        d.birthday = c.getString(c.getColumnIndex(Event.START_DATE));
-                    } else if (type == Event.TYPE_ANNIVERSARY) {
-                        d.anniversary = c.getString(c.getColumnIndex(Event.START_DATE));
+                if (d == null) {
+                    d = new ContactData();
+                    if (columns.lastUpdated >= 0) {
+                        d.lastUpdated = ContactUtils.timeConvertToJS(c.getLong(columns.lastUpdated));
                     }
-                } else if (mime.equals(Note.CONTENT_ITEM_TYPE)) {
-                    d.aNotes = addString(d.aNotes, c, Note.NOTE);
-                } else if (mime.equals(Im.CONTENT_ITEM_TYPE)) {
-                    d.aImpp = addTypeArray(d.aImpp, c, Im.DATA, ContactConstants.imTypeMap,
-                                           ContactConstants.imTypeValuesMap);
-                } else if (mime.equals(ContactConstants.CUSTOM_MIMETYPE_GENDER)) {
-                    d.gender = c.getString(c.getColumnIndex(Data.DATA1));
+                    dataMap.put(id, d);
                 }
+                readDataRow(c, columns, d);
             }
-        } catch (Exception e) {
-            if (e instanceof NumberFormatException || e instanceof SecurityException) {
-                Log.e(TAG, "getContacts: " + e.toString());
-                return new JSONArray();
-            } else {
-                throw new RuntimeException(e);
-            }
+        } catch (SecurityException e) {
+            Log.e(TAG, "getContacts: " + e.toString());
+            return null;
         } finally {
             if (c != null) c.close();
         }
+        return dataMap;
+    }
 
-        int i = 0;
-        for (Map.Entry<Long, ContactData> entry : dataMap.entrySet()) {
-            if (resultsLimit != null && ++i > resultsLimit) break;
-            JSONObject o = entry.getValue().ensurePut(entry.getKey());
-            returnArray.put(o);
+    private void readDataRow(Cursor c, DataColumns columns, ContactData d) {
+        String mime = c.getString(columns.mimeType);
+        if (mime == null) return;
+
+        if (mime.equals(StructuredName.CONTENT_ITEM_TYPE)) {
+            d.hasName = true;
+            String value = c.getString(columns.displayName);
+            if (value != null) d.displayName = value;
+            value = c.getString(columns.prefix);
+            if (value != null) d.honorificPrefix = value;
+            value = c.getString(columns.givenName);
+            if (value != null) d.givenName = value;
+            value = c.getString(columns.middleName);
+            if (value != null) d.additionalName = value;
+            value = c.getString(columns.familyName);
+            if (value != null) d.familyName = value;
+            value = c.getString(columns.suffix);
+            if (value != null) d.honorificSuffix = value;
+        } else if (mime.equals(Nickname.CONTENT_ITEM_TYPE)) {
+            d.hasName = true;
+            String value = c.getString(columns.nickname);
+            if (value != null) d.nickname = value;
+        } else if (mime.equals(Email.CONTENT_ITEM_TYPE)) {
+            d.emails = addTypeValue(d.emails, c, columns, ContactConstants.emailTypeValuesMap);
+        } else if (mime.equals(Photo.CONTENT_ITEM_TYPE)) {
+            d.photos = addString(d.photos, c.getString(columns.photo));
+        } else if (mime.equals(Website.CONTENT_ITEM_TYPE)) {
+            d.urls = addTypeValue(d.urls, c, columns, ContactConstants.websiteTypeValuesMap);
+        } else if (mime.equals(GroupMembership.CONTENT_ITEM_TYPE)) {
+            String title = getGroupTitle(c.getString(columns.groupRowId));
+            if (title != null) d.categories = addString(d.categories, title);
+        } else if (mime.equals(StructuredPostal.CONTENT_ITEM_TYPE)) {
+            d.addresses = addTypeValue(d.addresses, c, columns,
+                                       ContactConstants.addressTypeValuesMap);
+        } else if (mime.equals(Phone.CONTENT_ITEM_TYPE)) {
+            d.numbers = addTypeValue(d.numbers, c, columns, ContactConstants.phoneTypeValuesMap);
+        } else if (mime.equals(Organization.CONTENT_ITEM_TYPE)) {
+            d.organizations = addString(d.organizations, c.getString(columns.company));
+            String title = c.getString(columns.title);
+            if (title != null) d.jobTitles = addString(d.jobTitles, title);
+        } else if (mime.equals(Event.CONTENT_ITEM_TYPE)) {
+            int type = c.getInt(columns.type);
+            if (type == Event.TYPE_BIRTHDAY) {
+                d.birthday = c.getString(columns.startDate);
+            } else if (type == Event.TYPE_ANNIVERSARY) {
+                d.anniversary = c.getString(columns.startDate);
+            }
+        } else if (mime.equals(Note.CONTENT_ITEM_TYPE)) {
+            d.notes = addString(d.notes, c.getString(columns.note));
+        } else if (mime.equals(Im.CONTENT_ITEM_TYPE)) {
+            d.impp = addTypeValue(d.impp, c, columns, ContactConstants.imTypeValuesMap);
+            TypedValue v = d.impp.get(d.impp.size() - 1);
+            int protocol = c.getInt(columns.imProtocol);
+            String prefix = ContactUtils.getKeyFromValue(ContactConstants.imProtocolMap, protocol);
+            v.value = prefix + ':' + v.value;
+        } else if (mime.equals(ContactConstants.CUSTOM_MIMETYPE_GENDER)) {
+            d.gender = c.getString(columns.data1);
         }
-        return returnArray;
+    }
+
+    private String getGroupTitle(String groupId) {
+        if (mGroupTitles == null) {
+            mGroupTitles = new HashMap<String, String>();
+            final String selection = Groups.DELETED + "=? and " + Groups.GROUP_VISIBLE + "=?";
+            Cursor c = null;
+            try {
+                c = mUtils.mResolver.query(Groups.CONTENT_URI,
+                        new String[] { Groups._ID, Groups.TITLE },
+                        selection, new String[]{"0", "1"}, null);
+                while (c.moveToNext()) {
+                    mGroupTitles.put(c.getString(0), c.getString(1));
+                }
+            } catch (SecurityException e) {
+                Log.e(TAG, "getGroupTitle: " + e.toString());
+            } finally {
+                if (c != null) c.close();
+            }
+        }
+        return mGroupTitles.get(groupId);
     }
 
     private FindOption createFindIDOption(String findString) {
@@ -384,16 +669,25 @@ public class ContactFinder {
         }
     }
 
-    public JSONArray find(String findString) {
-        Set<String> ids = getContactIds(createFindIDOption(findString));
-        if (ids == null) return new JSONArray();
+    /**
+     * @return The found contacts as a JSON array string.
+     */
+    public String find(String findString) {
+        Set<Long> ids = getContactIds(createFindIDOption(findString));
+        if (ids == null) return "[]";
         ContactJson findJson = new ContactJson(findString);
         List<String> sortBy = findJson.getStringArray("sortBy");
         String order = getSortOrder(sortBy, findJson.getString("sortOrder"));
         String orderMimeType = (order == null) ? null :
                 ContactConstants.contactDataMap.get(sortBy.get(0)).second;
         String resultsLimit = findJson.getString("resultsLimit");
-        Long resultsLimitLong = (resultsLimit == null) ? null : Long.valueOf(resultsLimit);
-        return getContacts(ids, order, orderMimeType, resultsLimitLong);
+        Long resultsLimitLong = null;
+        try {
+            resultsLimitLong = (resultsLimit == null) ? null : Long.valueOf(resultsLimit);
+        } catch (NumberFormatException e) {
+            Log.e(TAG, "find - Invalid resultsLimit: " + resultsLimit);
+        }
+        mGroupTitles = null;
+        return getContacts(orderContactIds(ids, order, orderMimeType, resultsLimitLong));
     }
 }
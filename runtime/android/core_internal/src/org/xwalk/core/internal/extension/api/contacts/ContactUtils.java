@@ -306,7 +306,7 @@ public class ContactUtils {
      * @param long e.g. 61
      * @return string e.g. "1969-12-31T00:01:01Z"
      */
-    private String timeConvertToJS(long seconds) {
+    static String timeConvertToJS(long seconds) {
         final SimpleDateFormat df =
                 new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", java.util.Locale.getDefault());
         return df.format(new java.util.Date(seconds));
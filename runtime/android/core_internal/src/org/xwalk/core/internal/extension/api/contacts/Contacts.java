@@ -20,17 +20,17 @@ import android.util.Log;
 import java.util.ArrayList;
 
 import org.chromium.base.ActivityState;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import org.xwalk.core.internal.XWalkPreferencesInternal;
 import org.xwalk.core.internal.extension.XWalkExtensionWithActivityStateListener;
 
 public class Contacts extends XWalkExtensionWithActivityStateListener {
     public static final String JS_API_PATH = "jsapi/contacts_api.js";
 
     private static final String TAG = "Contacts";
-    private static final String NAME = "xwalk.experimental.contacts";
+    public static final String NAME = "xwalk.experimental.contacts";
 
     private final ContactEventListener mObserver;
     private final ContentResolver mResolver;
@@ -40,6 +40,8 @@ public class Contacts extends XWalkExtensionWithActivityStateListener {
         mResolver = activity.getContentResolver();
         mObserver = new ContactEventListener(new Handler(), this, mResolver);
         mResolver.registerContentObserver(ContactsContract.Contacts.CONTENT_URI, true, mObserver);
+        // Queries can be slow, keep them off the thread shared by extensions.
+        setMessageDispatchPolicy(DISPATCH_SERIAL, 1);
     }
 
 
@@ -62,12 +64,19 @@ public class Contacts extends XWalkExtensionWithActivityStateListener {
             jsonOutput.put("asyncCallId", jsonInput.getString("asyncCallId"));
             if (cmd.equals("save")) {
                 ContactSaver saver = new ContactSaver(mResolver);
-                jsonOutput.put("data", saver.save(jsonInput.getString("contact")));
+                JSONObject contact = saver.save(jsonInput.getString("contact"));
+                // Don't wait for the observer, the contact may be searched right away.
+                invalidateCachedContact(contact.optString("id"));
+                jsonOutput.put("data", contact);
             } else if (cmd.equals("find")) {
-                ContactFinder finder = new ContactFinder(mResolver);
+                ContactFinder finder = new ContactFinder(mResolver, getContactCache());
                 String options = jsonInput.has("options") ? jsonInput.getString("options") : null;
-                JSONArray results = finder.find(options);
-                jsonOutput.put("data", results);
+                // The results are already serialized, splice them in rather
+                // than parsing them back into a JSONArray.
+                String asyncCallId = JSONObject.quote(jsonInput.getString("asyncCallId"));
+                this.postMessage(instanceID, "{\"asyncCallId\":" + asyncCallId
+                        + ",\"data\":" + finder.find(options) + "}");
+                return;
             } else if (cmd.equals("remove")) {
                 ArrayList<ContentProviderOperation> ops = new ArrayList<ContentProviderOperation>();
                 String[] args = new String[] { jsonInput.getString("contactId") };
@@ -75,6 +84,7 @@ public class Contacts extends XWalkExtensionWithActivityStateListener {
                         .withSelection(RawContacts.CONTACT_ID + "=?", args).build());
                 try {
                     mResolver.applyBatch(ContactsContract.AUTHORITY, ops);
+                    invalidateCachedContact(args[0]);
                 } catch (Exception e) {
                     if (e instanceof RemoteException ||
                         e instanceof OperationApplicationException ||
@@ -87,6 +97,7 @@ public class Contacts extends XWalkExtensionWithActivityStateListener {
                 }
             } else if (cmd.equals("clear")) {
                 handleClear();
+                ContactCache.getInstance().invalidateAll();
             } else {
                 Log.e(TAG, "Unexpected message received: " + message);
                 return;
@@ -97,6 +108,30 @@ public class Contacts extends XWalkExtensionWithActivityStateListener {
         }
     }
 
+    /**
+     * Returns the contact cache sized from CONTACTS_CACHE_SIZE, with all
+     * changes seen so far applied, or null when caching is disabled.
+     */
+    private ContactCache getContactCache() {
+        ContactCache cache = ContactCache.getInstance();
+        cache.setMaxSize(XWalkPreferencesInternal.getIntegerValue(
+                XWalkPreferencesInternal.CONTACTS_CACHE_SIZE));
+        if (!cache.isEnabled()) return null;
+
+        mObserver.startTracking();
+        mObserver.flushPendingChanges();
+        return cache;
+    }
+
+    private void invalidateCachedContact(String contactId) {
+        if (contactId == null || contactId.isEmpty()) return;
+        try {
+            ContactCache.getInstance().invalidate(Long.parseLong(contactId));
+        } catch (NumberFormatException e) {
+            ContactCache.getInstance().invalidateAll();
+        }
+    }
+
     // Remove all contacts.
     private void handleClear() {
         Cursor c = null;
@@ -125,6 +160,7 @@ public class Contacts extends XWalkExtensionWithActivityStateListener {
             case ActivityState.PAUSED:
             case ActivityState.DESTROYED:
                 mResolver.unregisterContentObserver(mObserver);
+                mObserver.onPause();
                 break;
             default:
                 break;
@@ -19,7 +19,7 @@ public class DeviceCapabilities extends XWalkExtensionWithActivityStateListener
     public static final String JS_API_PATH = "jsapi/device_capabilities_api.js";
 
     private static final String TAG = "DeviceCapabilities";
-    private static final String NAME = "xwalk.experimental.system";
+    public static final String NAME = "xwalk.experimental.system";
 
     private DeviceCapabilitiesCPU mCPU;
     private DeviceCapabilitiesCodecs mCodecs;
@@ -37,6 +37,9 @@ public class DeviceCapabilities extends XWalkExtensionWithActivityStateListener
         mDisplay = new DeviceCapabilitiesDisplay(this, context);
         mMemory = new DeviceCapabilitiesMemory(this, context);
         mStorage = new DeviceCapabilitiesStorage(this, activity);
+        // Codec and storage queries can be slow, keep them off the thread
+        // shared by extensions.
+        setMessageDispatchPolicy(DISPATCH_SERIAL, 1);
     }
 
     private void handleMessage(int instanceID, String message) {
@@ -47,6 +50,8 @@ public class DeviceCapabilities extends XWalkExtensionWithActivityStateListener
             if (cmd.equals("addEventListener")) {
                 String eventName = jsonInput.getString("eventName");
                 handleAddEventListener(eventName);
+            } else if (cmd.equals("setCPULoadSampleInterval")) {
+                mCPU.setSampleInterval(jsonInput.getLong("interval"));
             } else {
                 String asyncCallId = jsonInput.getString("asyncCallId");
                 handleGetDeviceInfo(instanceID, asyncCallId, cmd);
@@ -80,6 +85,8 @@ public class DeviceCapabilities extends XWalkExtensionWithActivityStateListener
     private void handleAddEventListener(String eventName) {
         if (eventName.equals("storageattach") || eventName.equals("storagedetach")) {
             mStorage.registerListener();
+        } else if (eventName.equals("cpuload")) {
+            mCPU.registerListener();
         }
     }
 
@@ -110,14 +117,17 @@ public class DeviceCapabilities extends XWalkExtensionWithActivityStateListener
     public void onActivityStateChange(Activity activity, int newState) {
         switch (newState) {
             case ActivityState.RESUMED:
+                mCPU.onResume();
                 mDisplay.onResume();
                 mStorage.onResume();
                 break;
             case ActivityState.PAUSED:
+                mCPU.onPause();
                 mDisplay.onPause();
                 mStorage.onPause();
                 break;
             case ActivityState.DESTROYED:
+                mCPU.onDestroy();
                 mDisplay.onDestroy();
                 mStorage.onDestroy();
                 break;
@@ -4,23 +4,36 @@
 
 package org.xwalk.core.internal.extension.api.device_capabilities;
 
-import android.util.Log;
-
-import java.io.RandomAccessFile;
-import java.io.IOException;
-
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 class DeviceCapabilitiesCPU {
-    private static final String SYSTEM_INFO_STAT_FILE = "/proc/stat";
     private static final String TAG = "DeviceCapabilitiesCPU";
 
+    // Windows of the load averages reported along with the current load.
+    private static final long[] LOAD_AVERAGE_WINDOWS_MS = { 1000, 5000, 15000 };
+    private static final String[] LOAD_AVERAGE_NAMES = { "1s", "5s", "15s" };
+    // How long sampling goes on after getInfo() when there is no cpuload
+    // listener, long enough to keep the longest load average accurate for
+    // callers polling it.
+    private static final long INFO_SAMPLING_DURATION_MS = 30000;
+
     private DeviceCapabilities mDeviceCapabilities;
+    private DeviceCapabilitiesCPULoadSampler mSampler;
 
     private int mCoreNum = 0;
     private String mCPUArch = "Unknown";
-    private double mCPULoad = 0.0;
+    private boolean mIsListening = false;
+    private boolean mIsPaused = false;
+
+    private final DeviceCapabilitiesCPULoadSampler.Listener mLoadListener =
+            new DeviceCapabilitiesCPULoadSampler.Listener() {
+        @Override
+        public void onSample(double[] loads) {
+            notifyCPULoad(loads);
+        }
+    };
 
     public DeviceCapabilitiesCPU(DeviceCapabilities instance) {
         mDeviceCapabilities = instance;
@@ -28,16 +41,31 @@ class DeviceCapabilitiesCPU {
         // Get arch and core number at constructor since they won't change time to time.
         mCoreNum = Runtime.getRuntime().availableProcessors();
         mCPUArch = System.getProperty("os.arch");
+
+        mSampler = new DeviceCapabilitiesCPULoadSampler(mCoreNum);
     }
 
+    /**
+     * Answers from the latest sample instead of measuring the load on demand.
+     * The sampler is started by the first call, whose load is the average
+     * since boot, and stops INFO_SAMPLING_DURATION_MS after the last call
+     * unless there is a cpuload listener.
+     */
     public JSONObject getInfo() {
-        getCPULoad();
+        if (mIsListening) {
+            startSampling();
+        } else if (!mIsPaused) {
+            mSampler.startFor(INFO_SAMPLING_DURATION_MS);
+        }
+        double[] loads = mSampler.getLatestLoads();
 
         JSONObject out = new JSONObject();
         try {
             out.put("numOfProcessors", mCoreNum);
             out.put("archName", mCPUArch);
-            out.put("load", mCPULoad);
+            out.put("load", loads[0]);
+            out.put("loadAverage", getLoadAverage());
+            out.put("processors", convertLoadsToJSON(loads));
         } catch (JSONException e) {
             return mDeviceCapabilities.setErrorMessage(e.toString());
         }
@@ -45,49 +73,74 @@ class DeviceCapabilitiesCPU {
         return out;
     }
 
-    /**
-     * The algorithm here can be found at:
-     * http://stackoverflow.com/questions/3017162/how-to-get-total-cpu-usage-in-linux-c
-     */
-    private boolean getCPULoad() {
+    public void setSampleInterval(long intervalMs) {
+        mSampler.setInterval(intervalMs);
+    }
+
+    public void registerListener() {
+        if (mIsListening) {
+            return;
+        }
+
+        mIsListening = true;
+        mSampler.setListener(mLoadListener);
+        startSampling();
+    }
+
+    public void onResume() {
+        mIsPaused = false;
+        if (mIsListening) startSampling();
+    }
+
+    public void onPause() {
+        mIsPaused = true;
+        mSampler.stop();
+    }
+
+    public void onDestroy() {
+        mIsListening = false;
+        mSampler.setListener(null);
+        mSampler.stop();
+    }
+
+    private void startSampling() {
+        if (mIsPaused) return;
+        mSampler.start();
+    }
+
+    private JSONObject getLoadAverage() throws JSONException {
+        JSONObject out = new JSONObject();
+        for (int i = 0; i < LOAD_AVERAGE_WINDOWS_MS.length; ++i) {
+            out.put(LOAD_AVERAGE_NAMES[i], mSampler.getAverageLoad(LOAD_AVERAGE_WINDOWS_MS[i]));
+        }
+        return out;
+    }
+
+    private JSONArray convertLoadsToJSON(double[] loads) throws JSONException {
+        JSONArray arr = new JSONArray();
+        for (int i = 1; i < loads.length; ++i) {
+            JSONObject core = new JSONObject();
+            core.put("id", Integer.toString(i - 1));
+            core.put("load", loads[i]);
+            arr.put(core);
+        }
+        return arr;
+    }
+
+    private void notifyCPULoad(double[] loads) {
+        JSONObject out = new JSONObject();
         try {
-            RandomAccessFile file = new RandomAccessFile(SYSTEM_INFO_STAT_FILE, "r");
-            String line = file.readLine();
-
-            String[] arrs = line.split("\\s+");
-            long total1 = 0;
-            for (int i = 1; i < arrs.length; ++i) {
-                total1 += Long.parseLong(arrs[i]);
-            }
-            // arrs[4] is the time spent in idle tasks.
-            long used1 = total1 - Long.parseLong(arrs[4]);
-            try {
-                Thread.sleep(1000);
-            } catch (Exception e) {
-                mCPULoad = 0.0;
-                return false;
-            }
-
-            file.seek(0);
-            line = file.readLine();
-            file.close();
-
-            arrs = line.split("\\s+");
-            long total2 = 0;
-            for (int i = 1; i < arrs.length; ++i) {
-                total2 += Long.parseLong(arrs[i]);
-            }
-            // arrs[4] is the time spent in idle tasks.
-            long used2 = total2 - Long.parseLong(arrs[4]);
-            if (total2 == total1) {
-                mCPULoad = 0.0;
-            } else {
-                mCPULoad = (double) (used2 - used1) / (total2 - total1);
-            }
-        } catch (IOException e) {
-            mCPULoad = 0.0;
-            return false;
+            JSONObject data = new JSONObject();
+            data.put("load", loads[0]);
+            data.put("processors", convertLoadsToJSON(loads));
+
+            out.put("reply", "cpuLoad");
+            out.put("eventName", "cpuload");
+            out.put("data", data);
+
+            mDeviceCapabilities.broadcastMessage(out.toString());
+        } catch (JSONException e) {
+            mDeviceCapabilities.printErrorMessage(e);
         }
-        return true;
     }
 }
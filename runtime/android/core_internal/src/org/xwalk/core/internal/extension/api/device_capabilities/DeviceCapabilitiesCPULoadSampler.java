@@ -0,0 +1,337 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.extension.api.device_capabilities;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Samples /proc/stat on a background thread and keeps the latest samples in a
+ * small ring buffer, so CPU load can be answered without blocking the caller.
+ *
+ * Index 0 of every per-CPU array holds the aggregate "cpu" line, index i + 1
+ * holds "cpu<i>".
+ */
+class DeviceCapabilitiesCPULoadSampler {
+    private static final String SYSTEM_INFO_STAT_FILE = "/proc/stat";
+    private static final String TAG = "DeviceCapabilitiesCPULoadSampler";
+
+    static final long DEFAULT_SAMPLE_INTERVAL_MS = 1000;
+    static final long MIN_SAMPLE_INTERVAL_MS = 100;
+    // The longest window callers may ask an average for.
+    static final long MAX_WINDOW_MS = 15000;
+
+    interface Listener {
+        /**
+         * Called on the sampler thread after each new sample.
+         * loads[0] is the aggregate load, loads[i + 1] the load of core i.
+         */
+        void onSample(double[] loads);
+    }
+
+    private static class Sample {
+        long mTimestamp;
+        // Number of entries in mTotal/mIdle, 0 means the read failed. Entries
+        // of cores missing from /proc/stat, e.g. offline ones, are -1.
+        int mCount;
+        final long[] mTotal;
+        final long[] mIdle;
+
+        Sample(int size) {
+            mTotal = new long[size];
+            mIdle = new long[size];
+        }
+    }
+
+    private final int mCoreNum;
+    private final Object mLock = new Object();
+    // Serializes sample(), which start() may call while the thread of a
+    // previous start() is still sampling.
+    private final Object mSampleLock = new Object();
+
+    private Sample[] mSamples;
+    // Filled outside of the lock, then swapped into the ring.
+    private Sample mScratch;
+    // Index of the next slot to write and number of valid samples.
+    private int mHead = 0;
+    private int mSize = 0;
+    private long mIntervalMs = DEFAULT_SAMPLE_INTERVAL_MS;
+    // Sampling stops by itself at this time, see startFor().
+    private long mStopTime = Long.MAX_VALUE;
+
+    private HandlerThread mThread;
+    private Handler mHandler;
+    private Listener mListener;
+
+    private final Runnable mSampleTask = new Runnable() {
+        @Override
+        public void run() {
+            sample();
+            synchronized (DeviceCapabilitiesCPULoadSampler.this) {
+                // Don't reschedule if stopped, or restarted on another thread.
+                if (mHandler == null || mHandler.getLooper() != Looper.myLooper()) return;
+                if (SystemClock.elapsedRealtime() >= mStopTime) {
+                    stop();
+                    return;
+                }
+                mHandler.postDelayed(this, getInterval());
+            }
+        }
+    };
+
+    public DeviceCapabilitiesCPULoadSampler(int coreNum) {
+        mCoreNum = coreNum;
+        mScratch = new Sample(coreNum + 1);
+        allocateBuffer();
+    }
+
+    public void setListener(Listener listener) {
+        synchronized (mLock) {
+            mListener = listener;
+        }
+    }
+
+    /**
+     * Changes the sampling interval. The buffer is resized so that it still
+     * covers MAX_WINDOW_MS, which drops the samples taken so far.
+     */
+    public synchronized void setInterval(long intervalMs) {
+        if (intervalMs < MIN_SAMPLE_INTERVAL_MS) intervalMs = MIN_SAMPLE_INTERVAL_MS;
+
+        synchronized (mLock) {
+            if (intervalMs == mIntervalMs) return;
+            mIntervalMs = intervalMs;
+            allocateBuffer();
+        }
+        if (mHandler != null) {
+            mHandler.removeCallbacks(mSampleTask);
+            mHandler.post(mSampleTask);
+        }
+    }
+
+    public long getInterval() {
+        synchronized (mLock) {
+            return mIntervalMs;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return mThread != null;
+    }
+
+    /**
+     * Starts sampling until stop() is called. A first sample is taken
+     * synchronously if it was not running yet, so that a load figure is
+     * available right away.
+     */
+    public synchronized void start() {
+        mStopTime = Long.MAX_VALUE;
+        startThread();
+    }
+
+    /**
+     * Starts sampling for at least the given duration, after which it stops
+     * by itself unless start() or startFor() is called again.
+     */
+    public synchronized void startFor(long durationMs) {
+        long stopTime = SystemClock.elapsedRealtime() + durationMs;
+        if (mThread == null || (mStopTime != Long.MAX_VALUE && mStopTime < stopTime)) {
+            mStopTime = stopTime;
+        }
+        startThread();
+    }
+
+    private void startThread() {
+        if (mThread != null) return;
+
+        sample();
+        mThread = new HandlerThread(TAG);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mHandler.postDelayed(mSampleTask, getInterval());
+    }
+
+    public synchronized void stop() {
+        if (mThread == null) return;
+
+        mHandler.removeCallbacks(mSampleTask);
+        mThread.quit();
+        mThread = null;
+        mHandler = null;
+    }
+
+    /**
+     * Returns the load of each CPU over the last sample interval, or since
+     * boot when only one sample has been taken yet.
+     */
+    public double[] getLatestLoads() {
+        synchronized (mLock) {
+            if (mSize == 0) return new double[mCoreNum + 1];
+            Sample newest = mSamples[index(mSize - 1)];
+            Sample previous = mSize > 1 ? mSamples[index(mSize - 2)] : null;
+            return computeLoads(previous, newest);
+        }
+    }
+
+    /**
+     * Returns the aggregate load averaged over the given window, bounded by
+     * MAX_WINDOW_MS and by the samples currently held in the buffer.
+     */
+    public double getAverageLoad(long windowMs) {
+        synchronized (mLock) {
+            if (mSize == 0) return 0.0;
+            Sample newest = mSamples[index(mSize - 1)];
+            Sample oldest = null;
+            for (int i = mSize - 2; i >= 0; --i) {
+                Sample candidate = mSamples[index(i)];
+                if (newest.mTimestamp - candidate.mTimestamp > windowMs) break;
+                oldest = candidate;
+            }
+            if (oldest == null && mSize > 1) oldest = mSamples[index(mSize - 2)];
+            return computeLoad(oldest, newest, 0);
+        }
+    }
+
+    private void allocateBuffer() {
+        int capacity = (int) (MAX_WINDOW_MS / mIntervalMs) + 2;
+        mSamples = new Sample[capacity];
+        for (int i = 0; i < capacity; ++i) {
+            mSamples[i] = new Sample(mCoreNum + 1);
+        }
+        mHead = 0;
+        mSize = 0;
+    }
+
+    // Maps the logical position (0 is the oldest sample) to the ring index.
+    private int index(int position) {
+        return (mHead - mSize + position + mSamples.length) % mSamples.length;
+    }
+
+    private void sample() {
+        double[] loads = null;
+        Listener listener;
+        synchronized (mSampleLock) {
+            if (!readStat(mScratch)) return;
+            mScratch.mTimestamp = SystemClock.elapsedRealtime();
+
+            synchronized (mLock) {
+                Sample slot = mScratch;
+                mScratch = mSamples[mHead];
+                mSamples[mHead] = slot;
+
+                mHead = (mHead + 1) % mSamples.length;
+                if (mSize < mSamples.length) ++mSize;
+
+                listener = mListener;
+                if (listener != null) {
+                    Sample previous = mSize > 1 ? mSamples[index(mSize - 2)] : null;
+                    loads = computeLoads(previous, slot);
+                }
+            }
+        }
+        if (listener != null) listener.onSample(loads);
+    }
+
+    private double[] computeLoads(Sample from, Sample to) {
+        double[] loads = new double[mCoreNum + 1];
+        for (int i = 0; i < loads.length; ++i) {
+            loads[i] = computeLoad(from, to, i);
+        }
+        return loads;
+    }
+
+    /**
+     * The algorithm here can be found at:
+     * http://stackoverflow.com/questions/3017162/how-to-get-total-cpu-usage-in-linux-c
+     */
+    private static double computeLoad(Sample from, Sample to, int cpu) {
+        if (cpu >= to.mCount || to.mTotal[cpu] < 0) return 0.0;
+
+        long total = to.mTotal[cpu];
+        long idle = to.mIdle[cpu];
+        // Cores may go offline between two samples, in which case the counters
+        // of the older sample can't be used as a base.
+        if (from != null && cpu < from.mCount && from.mTotal[cpu] >= 0
+                && from.mTotal[cpu] <= total) {
+            total -= from.mTotal[cpu];
+            idle -= from.mIdle[cpu];
+        }
+        if (total <= 0) return 0.0;
+        return (double) (total - idle) / total;
+    }
+
+    private boolean readStat(Sample sample) {
+        BufferedReader reader = null;
+        sample.mCount = 0;
+        // The recycled sample may hold the counters of cores now missing.
+        Arrays.fill(sample.mTotal, -1);
+        Arrays.fill(sample.mIdle, -1);
+        try {
+            reader = new BufferedReader(new FileReader(SYSTEM_INFO_STAT_FILE));
+            String line;
+            while ((line = reader.readLine()) != null && line.startsWith("cpu")) {
+                int slot = parseCpuSlot(line);
+                if (slot < 0 || slot >= sample.mTotal.length) continue;
+                parseCpuLine(line, sample, slot);
+                if (slot + 1 > sample.mCount) sample.mCount = slot + 1;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, e.toString());
+        } catch (NumberFormatException e) {
+            Log.e(TAG, e.toString());
+        } finally {
+            try {
+                if (reader != null) reader.close();
+            } catch (IOException e) {
+                Log.e(TAG, e.toString());
+            }
+        }
+        return sample.mCount > 0;
+    }
+
+    // "cpu " maps to slot 0, "cpuN " to slot N + 1.
+    private static int parseCpuSlot(String line) {
+        int i = 3;
+        if (line.length() <= i || line.charAt(i) == ' ') return 0;
+        int core = 0;
+        while (i < line.length() && Character.isDigit(line.charAt(i))) {
+            core = core * 10 + (line.charAt(i) - '0');
+            ++i;
+        }
+        return core + 1;
+    }
+
+    // Sums all jiffies of the line, the 4th value is the time spent idle.
+    private static void parseCpuLine(String line, Sample sample, int slot) {
+        long total = 0;
+        long idle = 0;
+        int field = 0;
+        int i = line.indexOf(' ');
+        int length = line.length();
+        while (i < length) {
+            while (i < length && line.charAt(i) == ' ') ++i;
+            if (i >= length) break;
+            long value = 0;
+            while (i < length && line.charAt(i) != ' ') {
+                char c = line.charAt(i++);
+                if (c < '0' || c > '9') throw new NumberFormatException(line);
+                value = value * 10 + (c - '0');
+            }
+            total += value;
+            if (field == 3) idle = value;
+            ++field;
+        }
+        sample.mTotal[slot] = total;
+        sample.mIdle[slot] = idle;
+    }
+}
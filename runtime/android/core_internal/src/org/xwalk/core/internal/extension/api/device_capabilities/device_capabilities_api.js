@@ -6,9 +6,9 @@ var g_next_async_call_id = 0;
 var g_async_calls = [];
 var g_listeners = [];
 
-// Preserve 4 spaces to hold onattach, ondetach, onconnect and ondisconnect's
-// callback functions.
-var g_next_listener_id = 4;
+// Preserve 5 spaces to hold onattach, ondetach, onconnect, ondisconnect and
+// oncpuload's callback functions.
+var g_next_listener_id = 5;
 
 function AsyncCall(resolve, reject) {
   this.resolve = resolve;
@@ -32,6 +32,19 @@ exports.getCPUInfo = function() {
   return createPromise(msg);
 };
 
+exports.setCPULoadSampleInterval = function(interval) {
+  if (typeof interval !== 'number' || interval <= 0) {
+    console.log("Invalid parameters of interval!");
+    return;
+  }
+
+  var msg = {
+    'cmd': 'setCPULoadSampleInterval',
+    'interval': interval
+  };
+  extension.postMessage(JSON.stringify(msg));
+};
+
 exports.getAVCodecs = function() {
   var msg = {
     'cmd': 'getCodecsInfo'
@@ -95,7 +108,8 @@ extension.setMessageListener(function(json) {
   if (msg.reply == 'attachStorage' ||
       msg.reply == 'detachStorage' ||
       msg.reply == 'connectDisplay' ||
-      msg.reply == 'disconnectDisplay') {
+      msg.reply == 'disconnectDisplay' ||
+      msg.reply == 'cpuLoad') {
     for (var id in g_listeners) {
       if (g_listeners[id]['eventName'] === msg.eventName) {
         var event = null;
@@ -107,6 +121,9 @@ extension.setMessageListener(function(json) {
             msg.eventName == 'storagedetach') {
           event = new SystemStorageEvent(msg.data);
         }
+        if (msg.eventName == 'cpuload') {
+          event = new SystemCPULoadEvent(msg.data);
+        }
         g_listeners[id]['callback'](event);
       }
     }
@@ -167,6 +184,11 @@ function _addEventListener(isOn, eventName, callback) {
         listener_id = 3;
         break;
 
+      case 'cpuload':
+        g_listeners[4] = listener;
+        listener_id = 4;
+        break;
+
       default:
         console.log("Invalid event name!");
         break;
@@ -212,6 +234,12 @@ Object.defineProperty(exports, 'ondisplaydisconnect', {
   }
 });
 
+Object.defineProperty(exports, 'oncpuload', {
+  set: function(callback) {
+    _addEventListener(true, 'cpuload', callback);
+  }
+});
+
 exports.addEventListener = function(eventName, callback) {
   return _addEventListener(false, eventName, callback);
 };
@@ -229,3 +257,8 @@ window.SystemStorageEvent = function(data) {
   _addConstProperty(this, 'storage', _createConstClone(data));
   this.prototype = new Event('SystemStorageEvent');
 };
+
+window.SystemCPULoadEvent = function(data) {
+  _addConstProperty(this, 'cpu', _createConstClone(data));
+  this.prototype = new Event('SystemCPULoadEvent');
+};
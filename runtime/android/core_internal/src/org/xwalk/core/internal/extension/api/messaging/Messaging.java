@@ -31,7 +31,7 @@ interface Command {
 public class Messaging extends XWalkExtensionWithActivityStateListener {
     public static final String JS_API_PATH = "jsapi/messaging_api.js";
 
-    private static final String NAME = "xwalk.experimental.messaging";
+    public static final String NAME = "xwalk.experimental.messaging";
 
     private static HashMap<String, Command> sMethodMap = new HashMap<String, Command>();
 
@@ -87,16 +87,17 @@ public class Messaging extends XWalkExtensionWithActivityStateListener {
         });
     }
 
-    private String getCommandString(String message) {
+    // Messages are parsed once here, commands get the parsed object.
+    private JSONObject parseMessage(String message) {
         if (message.isEmpty()) {
-            return "";
+            return null;
         }
 
         try {
-            return new JSONObject(message).getString("cmd");
-        } catch(Exception e) {
+            return new JSONObject(message);
+        } catch(JSONException e) {
             e.printStackTrace();
-            return "";
+            return null;
         }
     }
 
@@ -110,15 +111,22 @@ public class Messaging extends XWalkExtensionWithActivityStateListener {
         }
 
         initMethodMap();
+        // Message store queries can be slow, keep them off the thread shared
+        // by extensions.
+        setMessageDispatchPolicy(DISPATCH_SERIAL, 1);
     }
 
     @Override
     public void onMessage(int instanceID, String message) {
-        Command command = sMethodMap.get(getCommandString(message));
+        JSONObject jsonMsg = parseMessage(message);
+        if (null == jsonMsg) {
+            return;
+        }
 
+        Command command = sMethodMap.get(jsonMsg.optString("cmd"));
         if (null != command) {
             try {
-                command.runCommand(instanceID, new JSONObject(message));
+                command.runCommand(instanceID, jsonMsg);
             } catch(Exception e) {
                 e.printStackTrace();
                 return;
@@ -128,7 +136,8 @@ public class Messaging extends XWalkExtensionWithActivityStateListener {
 
     @Override
     public String onSyncMessage(int instanceID, String message) {
-        if (getCommandString(message).equals("msg_smsServiceId")) {
+        JSONObject jsonMsg = parseMessage(message);
+        if (null != jsonMsg && jsonMsg.optString("cmd").equals("msg_smsServiceId")) {
             return mSmsManager.getServiceIds();
         }
         return "";
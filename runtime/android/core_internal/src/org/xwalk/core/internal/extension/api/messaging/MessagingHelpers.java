@@ -4,7 +4,6 @@
 
 package org.xwalk.core.internal.extension.api.messaging;
 
-import android.database.Cursor;
 import java.text.SimpleDateFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -97,56 +96,75 @@ public class MessagingHelpers {
         return new Object[]{filterString, argsStringList.toArray(new String[argsStringList.size()])};
     }
 
-    public static String buildSqlFilterOptionString(JSONObject filterOption) {
+    /**
+     * Builds the sort order clause, followed by LIMIT/OFFSET when limit or
+     * offset is not negative. The content provider only takes a sort order,
+     * so the paging clauses have to ride along with it.
+     */
+    public static String buildSqlFilterOptionString(JSONObject filterOption, int limit, int offset) {
         String filterOptionString = "";
 
         try {
-            if (filterOption.has("sortBy")) {
+            if (filterOption != null && filterOption.has("sortBy")) {
                 filterOptionString += " " +
                     MessagingSmsConstMaps.smsTableColumnDict.get(filterOption.getString("sortBy"));
+            } else if (limit >= 0 || offset > 0) {
+                // Pages are only stable with a defined order.
+                filterOptionString += " " + MessagingSmsConsts.ID;
             }
 
-            if (filterOption.has("sortOrder")) {
+            if (filterOption != null && filterOption.has("sortOrder")) {
                 filterOptionString += " " + 
                     MessagingSmsConstMaps.sortOrderDict.get(filterOption.getString("sortOrder"));
             }
-
-            if (filterOption.has("limit")) {
-                filterOptionString += " LIMIT " + filterOption.getString("limit");
-            }
         } catch (JSONException e) {
             e.printStackTrace();
             return "";
         }
 
+        if (limit >= 0) {
+            filterOptionString += " LIMIT " + limit;
+        } else if (offset > 0) {
+            // SQLite only accepts OFFSET after a LIMIT clause.
+            filterOptionString += " LIMIT -1";
+        }
+
+        if (offset > 0) {
+            filterOptionString += " OFFSET " + offset;
+        }
+
         return filterOptionString;
     }
 
-    public static JSONObject SmsMessageCursor2Json(Cursor c) {
-        JSONObject jsonMsg = null;
+    public static int getIntOption(JSONObject filterOption, String name, int defaultValue) {
+        if (filterOption == null || !filterOption.has(name)) {
+            return defaultValue;
+        }
 
         try {
-            jsonMsg = new JSONObject();
-            jsonMsg.put("messageID", c.getString(c.getColumnIndex(MessagingSmsConsts.ID)));
-            jsonMsg.put("conversationID", c.getString(c.getColumnIndex(MessagingSmsConsts.THREAD_ID)));
-            jsonMsg.put("type", "sms");
-            jsonMsg.put("serviceID", "");
-            jsonMsg.put("from", c.getString(c.getColumnIndex(MessagingSmsConsts.ADDRESS)));
-            jsonMsg.put("timestamp", convertDateLong2String(
-                    c.getLong(c.getColumnIndex(MessagingSmsConsts.DATE))));
-            jsonMsg.put("read", c.getString(c.getColumnIndex(MessagingSmsConsts.READ)));
-            jsonMsg.put("to", "");
-            jsonMsg.put("body", c.getString(c.getColumnIndex(MessagingSmsConsts.BODY)));
-            jsonMsg.put("state", MessagingSmsConstMaps.smsStateDictI2S.get(
-                    c.getInt(c.getColumnIndex(MessagingSmsConsts.TYPE))));
-            jsonMsg.put("deliveryStatus", MessagingSmsConstMaps.smsDiliveryStatusDictI2S.get(
-                    c.getInt(c.getColumnIndex(MessagingSmsConsts.STATUS))));
-            jsonMsg.put("deliveryTimestamp", "");
-            jsonMsg.put("messageClass", "");
-            return jsonMsg;
+            return Integer.parseInt(filterOption.getString(name));
         } catch (JSONException e) {
             e.printStackTrace();
-            return null;
+        } catch (NumberFormatException e) {
+            e.printStackTrace();
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Continuation tokens are opaque to JS, they currently encode the offset
+     * of the next page.
+     */
+    public static String encodeContinuation(int offset) {
+        return Integer.toString(offset, Character.MAX_RADIX);
+    }
+
+    public static int decodeContinuation(String continuation) {
+        try {
+            return Math.max(0, Integer.parseInt(continuation, Character.MAX_RADIX));
+        } catch (NumberFormatException e) {
+            e.printStackTrace();
+            return 0;
         }
     }
 }
@@ -17,8 +17,11 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.telephony.SmsManager;
 import android.telephony.SmsMessage;
+import android.util.JsonWriter;
 import android.util.Log; 
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.text.SimpleDateFormat;
 import java.text.ParseException;
 import java.util.Date;
@@ -31,11 +34,18 @@ import org.xwalk.core.internal.extension.api.messaging.Messaging;
 import org.xwalk.core.internal.extension.api.messaging.MessagingHelpers;
 import org.xwalk.core.internal.extension.api.messaging.MessagingSmsConstMaps;
 import org.xwalk.core.internal.extension.api.messaging.MessagingSmsConsts;
+import org.xwalk.core.internal.extension.api.messaging.MessagingSmsCursorWriter;
 
 public class MessagingManager {
     private final static String TAG = "MessagingManager"; 
+    // Upper bound of the reply buffer kept around for the next query.
+    private final static int MAX_RETAINED_REPLY_CAPACITY = 256 * 1024;
+    // Number of rows sent per message when findMessages has no chunkSize option.
+    private final static int DEFAULT_CHUNK_SIZE = 500;
     private final Activity mMainActivity;
     private final Messaging mMessagingHandler;
+    // Reused by every query reply, all of them come in on the extension thread.
+    private StringWriter mReplyContents = new StringWriter();
 
     MessagingManager(Activity activity, Messaging messaging) {
         mMainActivity = activity;
@@ -111,56 +121,119 @@ public class MessagingManager {
         String sqlString = null;
         String[] sqlArgs = null;
         String sqlOption = null;
+        String[] projection = MessagingSmsCursorWriter.PROJECTION;
+        int limit = -1;
+        int offset = 0;
+        int chunkSize = DEFAULT_CHUNK_SIZE;
 
         if (cmd.equals("msg_findMessages")) {
             Object[] retValue = MessagingHelpers.buildSqlFilterString(filter);
             sqlString = (String)retValue[0];
             sqlArgs = (String[])retValue[1];
-            sqlOption = MessagingHelpers.buildSqlFilterOptionString(filterOption);
+
+            limit = MessagingHelpers.getIntOption(filterOption, "limit", -1);
+            if (filterOption != null && filterOption.has("continuation")) {
+                offset = MessagingHelpers.decodeContinuation(
+                        filterOption.optString("continuation"));
+            } else {
+                offset = Math.max(0, MessagingHelpers.getIntOption(filterOption, "offset", 0));
+            }
+            chunkSize = MessagingHelpers.getIntOption(filterOption, "chunkSize", DEFAULT_CHUNK_SIZE);
+            if (chunkSize <= 0) chunkSize = DEFAULT_CHUNK_SIZE;
+            if (filterOption != null) {
+                projection = MessagingSmsCursorWriter.buildProjection(
+                        filterOption.optJSONArray("fields"));
+            }
+
+            // One row more than asked for tells whether there is a next page.
+            sqlOption = MessagingHelpers.buildSqlFilterOptionString(
+                    filterOption, limit < 0 ? -1 : limit + 1, offset);
         } else {
             sqlString = String.format("%s = ?", MessagingSmsConsts.ID);
             sqlArgs = new String[]{messageID};
         }
 
-        Cursor cursor = cr.query(contentUri, null, sqlString, sqlArgs, sqlOption);
-
-        JSONObject jsonMsgRet = null;
-        JSONArray results = null;
-        try {
-            jsonMsgRet = new JSONObject();
-            results = new JSONArray(); 
-            jsonMsgRet.put("asyncCallId", asyncCallId);
-            jsonMsgRet.put("cmd", cmd + "_ret");
-            JSONObject jsData = new JSONObject();
-            jsonMsgRet.put("data", jsData);
-            jsData.put("error", false);
-            JSONObject jsBody = new JSONObject();
-            jsData.put("body", jsBody);
-            jsBody.put("results", results);
-        } catch (JSONException e) {
-            e.printStackTrace();
+        Cursor cursor = cr.query(contentUri, projection, sqlString, sqlArgs, sqlOption);
+        if (cursor == null) {
+            Log.e(TAG, "Failed to query messages for " + cmd);
             return;
         }
-        
+
+        // Rows are streamed straight into the reply instead of building a
+        // JSONObject per message and serializing the whole tree afterwards.
+        // Results go out in chunks of chunkSize rows, all tagged with the same
+        // asyncCallId, the last one has "done" set.
         try {
+            JsonWriter writer = beginQueryReply(asyncCallId, cmd);
+            int rows = 0;
+            int chunkRows = 0;
+            boolean hasMore = false;
             if (msgType.equals("mms")) {
                 // TODO:(shawn) Pending on Android MMS related api get public. 
                 // MMS is implemented in native messaging app, but they are not exposed as public APIs.
                 // We ever tired to backport ~60 files with MMS feature supporting. Considering the pros and 
                 // cons, we would rather break the MMS feature than doing the ugly backport.
-            } else if (cursor.getCount() > 0) {
+            } else {
+                MessagingSmsCursorWriter smsWriter = new MessagingSmsCursorWriter(cursor);
                 while (cursor.moveToNext()) {
-                    JSONObject jsonSmsObj = MessagingHelpers.SmsMessageCursor2Json(cursor);
-                    if (null != jsonSmsObj) {
-                        results.put(jsonSmsObj);
+                    if (limit >= 0 && rows == limit) {
+                        hasMore = true;
+                        break;
+                    }
+                    if (chunkRows == chunkSize) {
+                        endQueryReply(instanceID, writer, false, null);
+                        writer = beginQueryReply(asyncCallId, cmd);
+                        chunkRows = 0;
                     }
+                    smsWriter.writeMessage(writer);
+                    ++rows;
+                    ++chunkRows;
                 }
             }
+            endQueryReply(instanceID, writer, true,
+                    hasMore ? MessagingHelpers.encodeContinuation(offset + rows) : null);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write messages: " + e.toString());
         } finally {
             cursor.close();
         }
-        
-        mMessagingHandler.postMessage(instanceID, jsonMsgRet.toString());
+    }
+
+    private JsonWriter beginQueryReply(String asyncCallId, String cmd) throws IOException {
+        JsonWriter writer = new JsonWriter(resetReplyContents());
+        writer.beginObject();
+        writer.name("asyncCallId").value(asyncCallId);
+        writer.name("cmd").value(cmd + "_ret");
+        writer.name("data").beginObject();
+        writer.name("error").value(false);
+        writer.name("body").beginObject();
+        writer.name("results").beginArray();
+        return writer;
+    }
+
+    private void endQueryReply(int instanceID, JsonWriter writer, boolean done,
+            String continuation) throws IOException {
+        writer.endArray();
+        writer.name("done").value(done);
+        if (continuation != null) {
+            writer.name("continuation").value(continuation);
+        }
+        writer.endObject();
+        writer.endObject();
+        writer.endObject();
+        writer.close();
+
+        mMessagingHandler.postMessage(instanceID, mReplyContents.toString());
+    }
+
+    private StringWriter resetReplyContents() {
+        // Don't hold on to the buffer of an exceptionally large reply.
+        if (mReplyContents.getBuffer().capacity() > MAX_RETAINED_REPLY_CAPACITY) {
+            mReplyContents = new StringWriter();
+        } else {
+            mReplyContents.getBuffer().setLength(0);
+        }
+        return mReplyContents;
     }
 
     private void operation(int instanceID, JSONObject jsonMsg) {
@@ -0,0 +1,139 @@
+// Copyright (c) 2014 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.extension.api.messaging;
+
+import android.database.Cursor;
+import android.util.JsonWriter;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+
+import org.json.JSONArray;
+import org.xwalk.core.internal.extension.api.messaging.MessagingSmsConstMaps;
+import org.xwalk.core.internal.extension.api.messaging.MessagingSmsConsts;
+
+/**
+ * Streams rows of an SMS cursor into a JsonWriter. Column indices and the
+ * date formatter are resolved once per cursor instead of once per row.
+ */
+public class MessagingSmsCursorWriter {
+    // Columns read from content://sms to build a message.
+    public static final String[] PROJECTION = {
+        MessagingSmsConsts.ID,
+        MessagingSmsConsts.THREAD_ID,
+        MessagingSmsConsts.ADDRESS,
+        MessagingSmsConsts.DATE,
+        MessagingSmsConsts.READ,
+        MessagingSmsConsts.BODY,
+        MessagingSmsConsts.TYPE,
+        MessagingSmsConsts.STATUS
+    };
+
+    // Maps the message fields JS may ask for to the columns they are read from.
+    private static final HashMap<String, String> sFieldColumnDict = new HashMap<String, String>();
+
+    static {
+        sFieldColumnDict.put("messageID", MessagingSmsConsts.ID);
+        sFieldColumnDict.put("conversationID", MessagingSmsConsts.THREAD_ID);
+        sFieldColumnDict.put("from", MessagingSmsConsts.ADDRESS);
+        sFieldColumnDict.put("timestamp", MessagingSmsConsts.DATE);
+        sFieldColumnDict.put("read", MessagingSmsConsts.READ);
+        sFieldColumnDict.put("body", MessagingSmsConsts.BODY);
+        sFieldColumnDict.put("state", MessagingSmsConsts.TYPE);
+        sFieldColumnDict.put("deliveryStatus", MessagingSmsConsts.STATUS);
+    }
+
+    private final Cursor mCursor;
+    private final SimpleDateFormat mDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private final Date mDate = new Date();
+
+    private final int mIdIndex;
+    private final int mThreadIdIndex;
+    private final int mAddressIndex;
+    private final int mDateIndex;
+    private final int mReadIndex;
+    private final int mBodyIndex;
+    private final int mTypeIndex;
+    private final int mStatusIndex;
+
+    public MessagingSmsCursorWriter(Cursor cursor) {
+        mCursor = cursor;
+        mIdIndex = cursor.getColumnIndex(MessagingSmsConsts.ID);
+        mThreadIdIndex = cursor.getColumnIndex(MessagingSmsConsts.THREAD_ID);
+        mAddressIndex = cursor.getColumnIndex(MessagingSmsConsts.ADDRESS);
+        mDateIndex = cursor.getColumnIndex(MessagingSmsConsts.DATE);
+        mReadIndex = cursor.getColumnIndex(MessagingSmsConsts.READ);
+        mBodyIndex = cursor.getColumnIndex(MessagingSmsConsts.BODY);
+        mTypeIndex = cursor.getColumnIndex(MessagingSmsConsts.TYPE);
+        mStatusIndex = cursor.getColumnIndex(MessagingSmsConsts.STATUS);
+    }
+
+    /**
+     * Returns the columns needed for the given message fields, or the full
+     * PROJECTION when no (known) field is given. Fields whose column is not
+     * in the projection are left out of the written messages.
+     */
+    public static String[] buildProjection(JSONArray fields) {
+        if (fields == null) return PROJECTION;
+
+        ArrayList<String> columns = new ArrayList<String>();
+        for (int i = 0; i < fields.length(); ++i) {
+            String column = sFieldColumnDict.get(fields.optString(i));
+            if (column != null && !columns.contains(column)) columns.add(column);
+        }
+        if (columns.isEmpty()) return PROJECTION;
+        return columns.toArray(new String[columns.size()]);
+    }
+
+    /**
+     * Writes the row the cursor is positioned on as a message object.
+     */
+    public void writeMessage(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        writeString(writer, "messageID", mIdIndex);
+        writeString(writer, "conversationID", mThreadIdIndex);
+        writer.name("type").value("sms");
+        writer.name("serviceID").value("");
+        writeString(writer, "from", mAddressIndex);
+        if (mDateIndex >= 0) writer.name("timestamp").value(formatDate(mDateIndex));
+        writeString(writer, "read", mReadIndex);
+        writer.name("to").value("");
+        writeString(writer, "body", mBodyIndex);
+        writeOptional(writer, "state",
+                mTypeIndex < 0 ? null :
+                MessagingSmsConstMaps.smsStateDictI2S.get(mCursor.getInt(mTypeIndex)));
+        writeOptional(writer, "deliveryStatus",
+                mStatusIndex < 0 ? null :
+                MessagingSmsConstMaps.smsDiliveryStatusDictI2S.get(mCursor.getInt(mStatusIndex)));
+        writer.name("deliveryTimestamp").value("");
+        writer.name("messageClass").value("");
+        writer.endObject();
+    }
+
+    private void writeString(JsonWriter writer, String name, int index) throws IOException {
+        if (index < 0) return;
+        writeOptional(writer, name, mCursor.getString(index));
+    }
+
+    // Null values are left out, the same as JSONObject.put() does.
+    private static void writeOptional(JsonWriter writer, String name, String value)
+            throws IOException {
+        if (value == null) return;
+        writer.name(name).value(value);
+    }
+
+    private String formatDate(int index) {
+        long time = mCursor.getLong(index);
+        if (time <= 0l) {
+            return "";
+        }
+
+        mDate.setTime(time);
+        return mDateFormat.format(mDate);
+    }
+}
@@ -222,33 +222,61 @@ MessagingCursor.prototype.previous = function() {
   return ret;
 }
 
+// Results of findMessages come in chunks, which are collected until the one
+// marked as done arrives.
 function handleFindMessages(msgObj) {
+  var call = g_async_calls[msgObj.asyncCallId];
+  if (!call) {
+    return;
+  }
+
   if (msgObj.data.error) {
-    if (_isFunction(g_promises[msgObj.asyncCallId].reject)) {
-      g_promises[msgObj.asyncCallId].reject(msgObj.data.body);
+    if (_isFunction(call.reject)) {
+      call.reject(msgObj.data.body);
     }
+    delete g_async_calls[msgObj.asyncCallId];
+    return;
+  }
+
+  var body = msgObj.data.body;
+  if (call.results) {
+    Array.prototype.push.apply(call.results, body.results);
   } else {
-    if (_isFunction(g_promises[msgObj.asyncCallId].resolve)) {
-      var cursor = new MessagingCursor(msgObj.data.body.results);
-      g_promises[msgObj.asyncCallId].resolve(cursor);
+    call.results = body.results;
+  }
+
+  if (body.done === false) {
+    return;
+  }
+
+  if (_isFunction(call.resolve)) {
+    var cursor = new MessagingCursor(call.results);
+    if (body.continuation) {
+      cursor.continuation = body.continuation;
     }
+    call.resolve(cursor);
   }
 
-  delete g_promises[msgObj.asyncCallId];
+  delete g_async_calls[msgObj.asyncCallId];
 }
 
 function handlePromise(msgObj) {
+  var call = g_async_calls[msgObj.asyncCallId];
+  if (!call) {
+    return;
+  }
+
   if (msgObj.data.error) {
-    if (_isFunction(g_promises[msgObj.asyncCallId].reject)) {
-      g_promises[msgObj.asyncCallId].reject(msgObj.data.body);
+    if (_isFunction(call.reject)) {
+      call.reject(msgObj.data.body);
     }
   } else {
-    if (_isFunction(g_promises[msgObj.asyncCallId].resolve)) {
-      g_promises[msgObj.asyncCallId].resolve(msgObj.data.body);
+    if (_isFunction(call.resolve)) {
+      call.resolve(msgObj.data.body);
     }
   }
 
-  delete g_promises[msgObj.asyncCallId];
+  delete g_async_calls[msgObj.asyncCallId];
 }
 
 extension.setMessageListener(function(json) {
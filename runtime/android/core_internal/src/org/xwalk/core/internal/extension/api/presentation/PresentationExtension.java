@@ -34,7 +34,7 @@ import org.xwalk.core.internal.extension.XWalkExtensionWithActivityStateListener
 public class PresentationExtension extends XWalkExtensionWithActivityStateListener {
     public final static String JS_API_PATH = "jsapi/presentation_api.js";
 
-    private final static String NAME = "navigator.presentation";
+    public final static String NAME = "navigator.presentation";
     private final static String TAG = "PresentationExtension";
 
     // Tags:
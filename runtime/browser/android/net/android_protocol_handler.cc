@@ -9,6 +9,7 @@
 #include "base/android/jni_android.h"
 #include "base/android/jni_string.h"
 #include "base/android/jni_weak_ref.h"
+#include "base/files/file.h"
 #include "base/strings/string_util.h"
 #include "content/public/common/url_constants.h"
 #include "jni/AndroidProtocolHandler_jni.h"
@@ -22,6 +23,7 @@
 #include "net/url_request/url_request_interceptor.h"
 #include "url/gurl.h"
 #include "xwalk/runtime/browser/android/net/android_stream_reader_url_request_job.h"
+#include "xwalk/runtime/browser/android/net/asset_file_input_stream.h"
 #include "xwalk/runtime/browser/android/net/input_stream_impl.h"
 #include "xwalk/runtime/browser/android/net/url_constants.h"
 #include "xwalk/runtime/browser/xwalk_browser_context.h"
@@ -32,6 +34,7 @@ using base::android::ClearException;
 using base::android::ConvertUTF8ToJavaString;
 using base::android::ScopedJavaGlobalRef;
 using base::android::ScopedJavaLocalRef;
+using xwalk::AssetFileInputStream;
 using xwalk::InputStream;
 using xwalk::InputStreamImpl;
 
@@ -85,6 +88,17 @@ class AndroidStreamReaderURLRequestJobDelegateImpl
                       std::string* name) override;
 
   ~AndroidStreamReaderURLRequestJobDelegateImpl() override;
+
+ private:
+  // Returns a stream reading the mapped asset if |url| is an asset stored
+  // uncompressed in the APK.
+  scoped_ptr<InputStream> OpenAssetFile(JNIEnv* env,
+                                        jobject context,
+                                        jstring url);
+
+  // Whether the opened stream is an AssetFileInputStream rather than a Java
+  // InputStream.
+  bool is_asset_file_;
 };
 
 class AndroidRequestInterceptorBase : public net::URLRequestInterceptor {
@@ -141,7 +155,8 @@ static ScopedJavaLocalRef<jobject> GetResourceContext(JNIEnv* env) {
 // AndroidStreamReaderURLRequestJobDelegateImpl -------------------------------
 
 AndroidStreamReaderURLRequestJobDelegateImpl::
-    AndroidStreamReaderURLRequestJobDelegateImpl() {}
+    AndroidStreamReaderURLRequestJobDelegateImpl()
+    : is_asset_file_(false) {}
 
 AndroidStreamReaderURLRequestJobDelegateImpl::
 ~AndroidStreamReaderURLRequestJobDelegateImpl() {
@@ -153,13 +168,26 @@ AndroidStreamReaderURLRequestJobDelegateImpl::OpenInputStream(
   DCHECK(url.is_valid());
   DCHECK(env);
 
-  // Open the input stream.
   ScopedJavaLocalRef<jstring> jurl =
       ConvertUTF8ToJavaString(env, url.spec());
+  ScopedJavaLocalRef<jobject> context = GetResourceContext(env);
+
+  if (url.SchemeIs(xwalk::kAppScheme) ||
+      (url.SchemeIsFile() &&
+       StartsWithASCII(url.path(), xwalk::kAndroidAssetPath, true))) {
+    scoped_ptr<InputStream> asset_file =
+        OpenAssetFile(env, context.obj(), jurl.obj());
+    if (asset_file) {
+      is_asset_file_ = true;
+      return asset_file.Pass();
+    }
+  }
+
+  // Open the input stream.
   ScopedJavaLocalRef<jobject> stream =
       xwalk::Java_AndroidProtocolHandler_open(
           env,
-          GetResourceContext(env).obj(),
+          context.obj(),
           jurl.obj());
 
   // Check and clear pending exceptions.
@@ -170,6 +198,27 @@ AndroidStreamReaderURLRequestJobDelegateImpl::OpenInputStream(
   return make_scoped_ptr<InputStream>(new InputStreamImpl(stream));
 }
 
+scoped_ptr<InputStream>
+AndroidStreamReaderURLRequestJobDelegateImpl::OpenAssetFile(
+    JNIEnv* env,
+    jobject context,
+    jstring url) {
+  ScopedJavaLocalRef<jobject> fd =
+      xwalk::Java_AndroidProtocolHandler_openAssetFd(env, context, url);
+  if (ClearException(env) || fd.is_null())
+    return scoped_ptr<InputStream>();
+
+  jlong offset = xwalk::Java_AndroidProtocolHandler_getStartOffset(
+      env, fd.obj());
+  jlong length = xwalk::Java_AndroidProtocolHandler_getLength(env, fd.obj());
+  // The file is owned, and closed, by |file| from here.
+  base::File file(xwalk::Java_AndroidProtocolHandler_detachFd(env, fd.obj()));
+  if (ClearException(env))
+    return scoped_ptr<InputStream>();
+
+  return AssetFileInputStream::Create(file.Pass(), offset, length);
+}
+
 void AndroidStreamReaderURLRequestJobDelegateImpl::OnInputStreamOpenFailed(
     net::URLRequest* request,
     bool* restart) {
@@ -191,13 +240,16 @@ bool AndroidStreamReaderURLRequestJobDelegateImpl::GetMimeType(
   // fail, as the mime type cannot be determined for all supported schemes.
   ScopedJavaLocalRef<jstring> url =
       ConvertUTF8ToJavaString(env, request->url().spec());
-  const InputStreamImpl* stream_impl =
-      InputStreamImpl::FromInputStream(stream);
+  // Mapped assets have no Java stream to sniff, their type is only guessed
+  // from the file extension.
+  jobject jstream = NULL;
+  if (!is_asset_file_)
+    jstream = InputStreamImpl::FromInputStream(stream)->jobj();
   ScopedJavaLocalRef<jstring> returned_type =
       xwalk::Java_AndroidProtocolHandler_getMimeType(
           env,
           GetResourceContext(env).obj(),
-          stream_impl->jobj(), url.obj());
+          jstream, url.obj());
   if (ClearException(env) || returned_type.is_null())
     return false;
 
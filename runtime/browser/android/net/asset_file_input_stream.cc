@@ -0,0 +1,75 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+#include "xwalk/runtime/browser/android/net/asset_file_input_stream.h"
+
+#include <string.h>
+
+#include <algorithm>
+#include <limits>
+
+#include "base/logging.h"
+#include "net/base/io_buffer.h"
+
+namespace xwalk {
+
+// static
+scoped_ptr<InputStream> AssetFileInputStream::Create(base::File file,
+                                                     int64 offset,
+                                                     int64 length) {
+  if (!file.IsValid() || offset < 0 || length < 0)
+    return scoped_ptr<InputStream>();
+
+  scoped_ptr<AssetFileInputStream> stream(new AssetFileInputStream());
+  // An empty range can't be mapped, there is nothing to read anyway.
+  if (length > 0 &&
+      !stream->mapped_file_.Initialize(
+          file.Pass(), base::MemoryMappedFile::Region(offset, length))) {
+    DLOG(ERROR) << "Unable to map the asset file range";
+    return scoped_ptr<InputStream>();
+  }
+  return stream.Pass();
+}
+
+AssetFileInputStream::AssetFileInputStream()
+    : position_(0) {
+}
+
+AssetFileInputStream::~AssetFileInputStream() {
+}
+
+bool AssetFileInputStream::BytesAvailable(int* bytes_available) const {
+  size_t remaining = mapped_file_.length() - position_;
+  *bytes_available = static_cast<int>(
+      std::min(remaining,
+               static_cast<size_t>(std::numeric_limits<int>::max())));
+  return true;
+}
+
+bool AssetFileInputStream::Skip(int64_t n, int64_t* bytes_skipped) {
+  if (n < 0)
+    return false;
+  size_t remaining = mapped_file_.length() - position_;
+  size_t skipped = std::min(remaining, static_cast<size_t>(n));
+  position_ += skipped;
+  *bytes_skipped = skipped;
+  return true;
+}
+
+bool AssetFileInputStream::Read(net::IOBuffer* dest,
+                                int length,
+                                int* bytes_read) {
+  DCHECK_GE(length, 0);
+  size_t remaining = mapped_file_.length() - position_;
+  size_t count = std::min(remaining, static_cast<size_t>(length));
+  if (count > 0) {
+    memcpy(dest->data(), mapped_file_.data() + position_, count);
+    position_ += count;
+  }
+  // Reading 0 bytes signals the end of the stream.
+  *bytes_read = static_cast<int>(count);
+  return true;
+}
+
+}  // namespace xwalk
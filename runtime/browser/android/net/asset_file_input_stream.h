@@ -0,0 +1,44 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+#ifndef XWALK_RUNTIME_BROWSER_ANDROID_NET_ASSET_FILE_INPUT_STREAM_H_
+#define XWALK_RUNTIME_BROWSER_ANDROID_NET_ASSET_FILE_INPUT_STREAM_H_
+
+#include "base/files/file.h"
+#include "base/files/memory_mapped_file.h"
+#include "base/memory/scoped_ptr.h"
+#include "xwalk/runtime/browser/android/net/input_stream.h"
+
+namespace xwalk {
+
+// Reads an asset stored uncompressed in the APK by mapping its range of the
+// APK file, so that the bytes are copied straight into the request buffers
+// instead of going through a Java InputStream.
+class AssetFileInputStream : public InputStream {
+ public:
+  // Maps |length| bytes of |file| from |offset|. Returns an empty pointer if
+  // the range can't be mapped.
+  static scoped_ptr<InputStream> Create(base::File file,
+                                        int64 offset,
+                                        int64 length);
+
+  ~AssetFileInputStream() override;
+
+  // InputStream implementation.
+  bool BytesAvailable(int* bytes_available) const override;
+  bool Skip(int64_t n, int64_t* bytes_skipped) override;
+  bool Read(net::IOBuffer* dest, int length, int* bytes_read) override;
+
+ private:
+  AssetFileInputStream();
+
+  base::MemoryMappedFile mapped_file_;
+  size_t position_;
+
+  DISALLOW_COPY_AND_ASSIGN(AssetFileInputStream);
+};
+
+}  // namespace xwalk
+
+#endif  // XWALK_RUNTIME_BROWSER_ANDROID_NET_ASSET_FILE_INPUT_STREAM_H_
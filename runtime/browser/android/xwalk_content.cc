@@ -17,6 +17,7 @@
 #include "base/json/json_writer.h"
 #include "base/path_service.h"
 #include "base/pickle.h"
+#include "base/values.h"
 #include "content/public/browser/browser_context.h"
 #include "content/public/browser/browser_thread.h"
 #include "content/public/browser/devtools_agent_host.h"
@@ -33,6 +34,7 @@
 #include "xwalk/runtime/browser/android/xwalk_contents_client_bridge.h"
 #include "xwalk/runtime/browser/android/xwalk_contents_client_bridge_base.h"
 #include "xwalk/runtime/browser/android/xwalk_contents_io_thread_client_impl.h"
+#include "xwalk/runtime/browser/android/xwalk_url_filter.h"
 #include "xwalk/runtime/browser/android/xwalk_web_contents_delegate.h"
 #include "xwalk/runtime/browser/runtime_resource_dispatcher_host_delegate_android.h"
 #include "xwalk/runtime/browser/xwalk_browser_context.h"
@@ -71,6 +73,16 @@ class XWalkContentUserData : public base::SupportsUserData::Data {
   XWalkContent* content_;
 };
 
+void StartRenderProcess(content::WebContents* web_contents) {
+  content::RenderViewHost* render_view_host =
+      web_contents->GetRenderViewHost();
+  if (!render_view_host)
+    return;
+  content::RenderProcessHost* process = render_view_host->GetProcess();
+  if (!process->HasConnection())
+    process->Init();
+}
+
 // FIXME(wang16): Remove following methods after deprecated fields
 // are not supported any more.
 void PrintManifestDeprecationWarning(std::string field) {
@@ -126,7 +138,8 @@ XWalkContent* XWalkContent::FromWebContents(
 }
 
 XWalkContent::XWalkContent(scoped_ptr<content::WebContents> web_contents)
-    : web_contents_(web_contents.Pass()) {
+    : web_contents_(web_contents.Pass()),
+      url_filter_(new XWalkUrlFilter) {
 }
 
 XWalkContent::~XWalkContent() {
@@ -161,7 +174,7 @@ void XWalkContent::SetJavaPeers(JNIEnv* env,
   XWalkContentsClientBridgeBase::Associate(web_contents_.get(),
       contents_client_bridge_.get());
   XWalkContentsIoThreadClientImpl::Associate(web_contents_.get(),
-      ScopedJavaLocalRef<jobject>(env, io_thread_client));
+      ScopedJavaLocalRef<jobject>(env, io_thread_client), url_filter_);
   int render_process_id = web_contents_->GetRenderProcessHost()->GetID();
   int render_frame_id = web_contents_->GetRoutingID();
   RuntimeResourceDispatcherHostDelegateAndroid::OnIoThreadClientReady(
@@ -236,26 +249,49 @@ void XWalkContent::SetJsOnlineProperty(JNIEnv* env,
   render_view_host_ext_->SetJsOnlineProperty(network_up);
 }
 
-jboolean XWalkContent::SetManifest(JNIEnv* env,
-                                   jobject obj,
-                                   jstring path,
-                                   jstring manifest_string) {
-  std::string path_str = base::android::ConvertJavaStringToUTF8(env, path);
+namespace {
+
+scoped_ptr<base::DictionaryValue> ParseManifestString(
+    JNIEnv* env, jstring manifest_string) {
   std::string json_input =
       base::android::ConvertJavaStringToUTF8(env, manifest_string);
+  scoped_ptr<base::Value> manifest_value(base::JSONReader::Read(json_input));
+  if (!manifest_value ||
+      !manifest_value->IsType(base::Value::TYPE_DICTIONARY))
+    return scoped_ptr<base::DictionaryValue>();
+  return make_scoped_ptr(
+      static_cast<base::DictionaryValue*>(manifest_value.release()));
+}
 
-  base::Value* manifest_value = base::JSONReader::Read(json_input);
-  if (!manifest_value) return false;
+}  // namespace
 
-  base::DictionaryValue* manifest_dictionary;
-  manifest_value->GetAsDictionary(&manifest_dictionary);
+jboolean XWalkContent::SetManifest(JNIEnv* env,
+                                   jobject obj,
+                                   jstring path,
+                                   jstring manifest_string) {
+  scoped_ptr<base::DictionaryValue> manifest_dictionary =
+      ParseManifestString(env, manifest_string);
   if (!manifest_dictionary) return false;
+  return SetManifestDictionary(env, obj, path, manifest_dictionary.Pass());
+}
 
-  scoped_ptr<base::DictionaryValue>
-      manifest_dictionary_ptr(manifest_dictionary);
+jboolean XWalkContent::SetParsedManifest(JNIEnv* env,
+                                         jobject obj,
+                                         jstring path,
+                                         jlong parsed_manifest) {
+  scoped_ptr<base::DictionaryValue> manifest_dictionary(
+      reinterpret_cast<base::DictionaryValue*>(parsed_manifest));
+  if (!manifest_dictionary) return false;
+  return SetManifestDictionary(env, obj, path, manifest_dictionary.Pass());
+}
 
-  xwalk::application::Manifest manifest(
-      manifest_dictionary_ptr.Pass());
+jboolean XWalkContent::SetManifestDictionary(
+    JNIEnv* env,
+    jobject obj,
+    jstring path,
+    scoped_ptr<base::DictionaryValue> manifest_dictionary) {
+  std::string path_str = base::android::ConvertJavaStringToUTF8(env, path);
+  xwalk::application::Manifest manifest(manifest_dictionary.Pass());
 
   std::string url;
   if (manifest.GetString(keys::kStartURLKey, &url)) {
@@ -416,6 +452,28 @@ static jlong Init(JNIEnv* env, jobject obj) {
   return reinterpret_cast<intptr_t>(new XWalkContent(web_contents.Pass()));
 }
 
+// Called on a background thread, the result is owned by the caller until it
+// is passed to SetParsedManifest() or ReleaseParsedManifest().
+static jlong ParseManifest(JNIEnv* env, jclass clazz, jstring manifest) {
+  return reinterpret_cast<intptr_t>(
+      ParseManifestString(env, manifest).release());
+}
+
+static void ReleaseParsedManifest(JNIEnv* env,
+                                  jclass clazz,
+                                  jlong parsed_manifest) {
+  delete reinterpret_cast<base::DictionaryValue*>(parsed_manifest);
+}
+
+static jlong InitDetached(JNIEnv* env, jclass clazz) {
+  DCHECK(BrowserThread::CurrentlyOn(BrowserThread::UI));
+  scoped_ptr<WebContents> web_contents(content::WebContents::Create(
+      content::WebContents::CreateParams(
+          XWalkRunner::GetInstance()->browser_context())));
+  StartRenderProcess(web_contents.get());
+  return reinterpret_cast<intptr_t>(new XWalkContent(web_contents.Pass()));
+}
+
 bool RegisterXWalkContent(JNIEnv* env) {
   return RegisterNativesImpl(env);
 }
@@ -511,4 +569,33 @@ void XWalkContent::SetBackgroundColor(JNIEnv* env, jobject obj, jint color) {
   render_view_host_ext_->SetBackgroundColor(color);
 }
 
+void XWalkContent::WarmUpRenderer(JNIEnv* env, jobject obj) {
+  DCHECK(BrowserThread::CurrentlyOn(BrowserThread::UI));
+  StartRenderProcess(web_contents_.get());
+}
+
+void XWalkContent::SetInterceptUrlPatterns(JNIEnv* env,
+                                           jobject obj,
+                                           jobjectArray url_prefixes,
+                                           jobjectArray hosts,
+                                           jobjectArray url_patterns) {
+  DCHECK(BrowserThread::CurrentlyOn(BrowserThread::UI));
+  std::vector<std::string> prefixes_vector;
+  std::vector<std::string> hosts_vector;
+  std::vector<std::string> patterns_vector;
+  if (url_prefixes) {
+    base::android::AppendJavaStringArrayToStringVector(
+        env, url_prefixes, &prefixes_vector);
+  }
+  if (hosts) {
+    base::android::AppendJavaStringArrayToStringVector(
+        env, hosts, &hosts_vector);
+  }
+  if (url_patterns) {
+    base::android::AppendJavaStringArrayToStringVector(
+        env, url_patterns, &patterns_vector);
+  }
+  url_filter_->SetPatterns(prefixes_vector, hosts_vector, patterns_vector);
+}
+
 }  // namespace xwalk
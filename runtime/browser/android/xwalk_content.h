@@ -11,12 +11,17 @@
 
 #include "base/android/jni_weak_ref.h"
 #include "base/android/scoped_java_ref.h"
+#include "base/memory/ref_counted.h"
 #include "base/memory/scoped_ptr.h"
 #include "content/public/common/permission_status.mojom.h"
 #include "xwalk/runtime/browser/android/renderer_host/xwalk_render_view_host_ext.h"
 
 using base::android::ScopedJavaLocalRef;
 
+namespace base {
+class DictionaryValue;
+}
+
 namespace content {
 class BrowserContext;
 class WebContents;
@@ -26,6 +31,7 @@ namespace xwalk {
 
 class XWalkWebContentsDelegate;
 class XWalkContentsClientBridge;
+class XWalkUrlFilter;
 
 class XWalkContent {
  public:
@@ -68,7 +74,22 @@ class XWalkContent {
                        jobject obj,
                        jstring path,
                        jstring manifest);
+  // Takes the manifest returned by the static ParseManifest(), which may
+  // have been parsed on another thread.
+  jboolean SetParsedManifest(JNIEnv* env,
+                             jobject obj,
+                             jstring path,
+                             jlong parsed_manifest);
   void SetBackgroundColor(JNIEnv* env, jobject obj, jint color);
+  // Starts the renderer process ahead of the first navigation.
+  void WarmUpRenderer(JNIEnv* env, jobject obj);
+  // Only the requests matching these patterns are passed to the Java
+  // shouldInterceptRequest(). Null or empty arrays disable the filter.
+  void SetInterceptUrlPatterns(JNIEnv* env,
+                               jobject obj,
+                               jobjectArray url_prefixes,
+                               jobjectArray hosts,
+                               jobjectArray url_patterns);
 
   // Geolocation API support
   void ShowGeolocationPrompt(const GURL& origin,
@@ -80,6 +101,11 @@ class XWalkContent {
                                  jstring origin);
 
  private:
+  jboolean SetManifestDictionary(JNIEnv* env,
+                                 jobject obj,
+                                 jstring path,
+                                 scoped_ptr<base::DictionaryValue> dictionary);
+
   JavaObjectWeakGlobalRef java_ref_;
   // TODO(guangzhen): The WebContentsDelegate need to take ownership of
   // WebContents as chrome content design. For xwalk, XWalkContent owns
@@ -91,6 +117,7 @@ class XWalkContent {
   scoped_ptr<XWalkContentsClientBridge> contents_client_bridge_;
   scoped_ptr<content::WebContents> web_contents_;
   scoped_ptr<XWalkContent> pending_contents_;
+  scoped_refptr<XWalkUrlFilter> url_filter_;
 
   // GURL is supplied by the content layer as requesting frame.
   // Callback is supplied by the content layer, and is invoked with the result
@@ -25,6 +25,7 @@
 #include "net/url_request/url_request.h"
 #include "url/gurl.h"
 #include "xwalk/runtime/browser/android/intercepted_request_data_impl.h"
+#include "xwalk/runtime/browser/android/xwalk_url_filter.h"
 
 using base::android::AttachCurrentThread;
 using base::android::ConvertUTF8ToJavaString;
@@ -44,6 +45,7 @@ namespace {
 struct IoThreadClientData {
   bool pending_association;
   JavaObjectWeakGlobalRef io_thread_client;
+  scoped_refptr<XWalkUrlFilter> url_filter;
 
   IoThreadClientData();
 };
@@ -108,7 +110,8 @@ void RfhToIoThreadClientMap::Erase(pair<int, int> rfh_id) {
 class ClientMapEntryUpdater : public content::WebContentsObserver {
  public:
   ClientMapEntryUpdater(JNIEnv* env, WebContents* web_contents,
-                        jobject jdelegate);
+                        jobject jdelegate,
+                        const scoped_refptr<XWalkUrlFilter>& url_filter);
 
   void RenderFrameCreated(RenderFrameHost* render_frame_host) override;
   void RenderFrameDeleted(RenderFrameHost* render_frame_host) override;
@@ -116,13 +119,16 @@ class ClientMapEntryUpdater : public content::WebContentsObserver {
 
  private:
   JavaObjectWeakGlobalRef jdelegate_;
+  scoped_refptr<XWalkUrlFilter> url_filter_;
 };
 
 ClientMapEntryUpdater::ClientMapEntryUpdater(JNIEnv* env,
                                              WebContents* web_contents,
-                                             jobject jdelegate)
+                                             jobject jdelegate,
+    const scoped_refptr<XWalkUrlFilter>& url_filter)
     : content::WebContentsObserver(web_contents),
-      jdelegate_(env, jdelegate) {
+      jdelegate_(env, jdelegate),
+      url_filter_(url_filter) {
   DCHECK(web_contents);
   DCHECK(jdelegate);
 
@@ -134,6 +140,7 @@ void ClientMapEntryUpdater::RenderFrameCreated(RenderFrameHost* rfh) {
   IoThreadClientData client_data;
   client_data.io_thread_client = jdelegate_;
   client_data.pending_association = false;
+  client_data.url_filter = url_filter_;
   RfhToIoThreadClientMap::GetInstance()->Set(
       GetRenderFrameHostIdPair(rfh), client_data);
 }
@@ -166,7 +173,8 @@ XWalkContentsIoThreadClient::FromID(int render_process_id,
   DCHECK(!client_data.pending_association || java_delegate.is_null());
   return scoped_ptr<XWalkContentsIoThreadClient>(
       new XWalkContentsIoThreadClientImpl(
-          client_data.pending_association, java_delegate));
+          client_data.pending_association, java_delegate,
+          client_data.url_filter));
 }
 
 // static
@@ -198,17 +206,20 @@ void XWalkContentsIoThreadClientImpl::RegisterPendingContents(
 // static
 void XWalkContentsIoThreadClientImpl::Associate(
     WebContents* web_contents,
-    const JavaRef<jobject>& jclient) {
+    const JavaRef<jobject>& jclient,
+    const scoped_refptr<XWalkUrlFilter>& url_filter) {
   JNIEnv* env = AttachCurrentThread();
   // The ClientMapEntryUpdater lifespan is tied to the WebContents.
-  new ClientMapEntryUpdater(env, web_contents, jclient.obj());
+  new ClientMapEntryUpdater(env, web_contents, jclient.obj(), url_filter);
 }
 
 XWalkContentsIoThreadClientImpl::XWalkContentsIoThreadClientImpl(
     bool pending_association,
-    const JavaRef<jobject>& obj)
+    const JavaRef<jobject>& obj,
+    const scoped_refptr<XWalkUrlFilter>& url_filter)
   : pending_association_(pending_association),
-    java_object_(obj) {
+    java_object_(obj),
+    url_filter_(url_filter) {
 }
 
 XWalkContentsIoThreadClientImpl::~XWalkContentsIoThreadClientImpl() {
@@ -238,6 +249,9 @@ XWalkContentsIoThreadClientImpl::ShouldInterceptRequest(
   DCHECK(BrowserThread::CurrentlyOn(BrowserThread::IO));
   if (java_object_.is_null())
     return scoped_ptr<InterceptedRequestData>();
+  // Requests the embedder isn't interested in don't go to Java at all.
+  if (url_filter_.get() && !url_filter_->Matches(location))
+    return scoped_ptr<InterceptedRequestData>();
   const content::ResourceRequestInfo* info =
       content::ResourceRequestInfo::ForRequest(request);
   bool is_main_frame = info &&
@@ -12,6 +12,7 @@
 #include "base/android/scoped_java_ref.h"
 #include "base/basictypes.h"
 #include "base/compiler_specific.h"
+#include "base/memory/ref_counted.h"
 #include "base/memory/scoped_ptr.h"
 
 class GURL;
@@ -27,6 +28,7 @@ class URLRequest;
 namespace xwalk {
 
 class InterceptedRequestData;
+class XWalkUrlFilter;
 
 class XWalkContentsIoThreadClientImpl : public XWalkContentsIoThreadClient {
  public:
@@ -35,15 +37,18 @@ class XWalkContentsIoThreadClientImpl : public XWalkContentsIoThreadClient {
 
   // Associates the |jclient| instance (which must implement the
   // XWalkContentsIoThreadClient Java interface) with the |web_contents|.
-  // This should be called at most once per |web_contents|.
+  // This should be called at most once per |web_contents|. Only the requests
+  // matching |url_filter| are passed to the Java ShouldInterceptRequest().
   static void Associate(content::WebContents* web_contents,
-                        const base::android::JavaRef<jobject>& jclient);
+                        const base::android::JavaRef<jobject>& jclient,
+                        const scoped_refptr<XWalkUrlFilter>& url_filter);
 
   // Either |pending_associate| is true or |jclient| holds a non-null
-  // Java object.
+  // Java object. |url_filter| may be null.
   XWalkContentsIoThreadClientImpl(
       bool pending_associate,
-      const base::android::JavaRef<jobject>& jclient);
+      const base::android::JavaRef<jobject>& jclient,
+      const scoped_refptr<XWalkUrlFilter>& url_filter);
   ~XWalkContentsIoThreadClientImpl() override;
 
   // Implementation of XWalkContentsIoThreadClient.
@@ -67,6 +72,7 @@ class XWalkContentsIoThreadClientImpl : public XWalkContentsIoThreadClient {
  private:
   bool pending_association_;
   base::android::ScopedJavaGlobalRef<jobject> java_object_;
+  scoped_refptr<XWalkUrlFilter> url_filter_;
 
   DISALLOW_COPY_AND_ASSIGN(XWalkContentsIoThreadClientImpl);
 };
@@ -0,0 +1,73 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+#include "xwalk/runtime/browser/android/xwalk_url_filter.h"
+
+#include "base/logging.h"
+#include "base/strings/string_util.h"
+#include "third_party/re2/re2/re2.h"
+#include "url/gurl.h"
+
+namespace xwalk {
+
+XWalkUrlFilter::XWalkUrlFilter()
+    : enabled_(false) {
+}
+
+XWalkUrlFilter::~XWalkUrlFilter() {
+}
+
+void XWalkUrlFilter::SetPatterns(
+    const std::vector<std::string>& url_prefixes,
+    const std::vector<std::string>& hosts,
+    const std::vector<std::string>& url_patterns) {
+  ScopedVector<re2::RE2> compiled_patterns;
+  for (size_t i = 0; i < url_patterns.size(); ++i) {
+    scoped_ptr<re2::RE2> pattern(new re2::RE2(url_patterns[i]));
+    if (!pattern->ok()) {
+      LOG(WARNING) << "Invalid URL pattern " << url_patterns[i] << ": "
+                   << pattern->error();
+      continue;
+    }
+    compiled_patterns.push_back(pattern.release());
+  }
+
+  std::vector<std::string> lower_hosts;
+  for (size_t i = 0; i < hosts.size(); ++i)
+    lower_hosts.push_back(base::StringToLowerASCII(hosts[i]));
+
+  base::AutoLock lock(lock_);
+  enabled_ = !url_prefixes.empty() || !hosts.empty() || !url_patterns.empty();
+  url_prefixes_ = url_prefixes;
+  hosts_.swap(lower_hosts);
+  url_patterns_.swap(compiled_patterns);
+}
+
+bool XWalkUrlFilter::Matches(const GURL& url) const {
+  base::AutoLock lock(lock_);
+  if (!enabled_)
+    return true;
+
+  const std::string& spec = url.spec();
+  for (size_t i = 0; i < url_prefixes_.size(); ++i) {
+    if (StartsWithASCII(spec, url_prefixes_[i], true))
+      return true;
+  }
+
+  // GURL hosts are already lower case.
+  const std::string host = url.host();
+  for (size_t i = 0; i < hosts_.size(); ++i) {
+    if (host == hosts_[i] ||
+        EndsWith(host, "." + hosts_[i], true))
+      return true;
+  }
+
+  for (size_t i = 0; i < url_patterns_.size(); ++i) {
+    if (re2::RE2::FullMatch(spec, *url_patterns_[i]))
+      return true;
+  }
+  return false;
+}
+
+}  // namespace xwalk
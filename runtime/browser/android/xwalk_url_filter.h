@@ -0,0 +1,54 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+#ifndef XWALK_RUNTIME_BROWSER_ANDROID_XWALK_URL_FILTER_H_
+#define XWALK_RUNTIME_BROWSER_ANDROID_XWALK_URL_FILTER_H_
+
+#include <string>
+#include <vector>
+
+#include "base/memory/ref_counted.h"
+#include "base/memory/scoped_vector.h"
+#include "base/synchronization/lock.h"
+
+class GURL;
+
+namespace re2 {
+class RE2;
+}
+
+namespace xwalk {
+
+// Decides on the IO thread which requests of an XWalkContent are passed to
+// the embedder's shouldInterceptLoadRequest(). The patterns are set on the
+// UI thread.
+class XWalkUrlFilter : public base::RefCountedThreadSafe<XWalkUrlFilter> {
+ public:
+  XWalkUrlFilter();
+
+  // A URL matches if it starts with one of |url_prefixes|, if its host is
+  // one of |hosts| or a subdomain of them, or if it fully matches one of
+  // |url_patterns|. Without any pattern, every URL matches.
+  void SetPatterns(const std::vector<std::string>& url_prefixes,
+                   const std::vector<std::string>& hosts,
+                   const std::vector<std::string>& url_patterns);
+
+  bool Matches(const GURL& url) const;
+
+ private:
+  friend class base::RefCountedThreadSafe<XWalkUrlFilter>;
+  ~XWalkUrlFilter();
+
+  mutable base::Lock lock_;
+  bool enabled_;
+  std::vector<std::string> url_prefixes_;
+  std::vector<std::string> hosts_;
+  ScopedVector<re2::RE2> url_patterns_;
+
+  DISALLOW_COPY_AND_ASSIGN(XWalkUrlFilter);
+};
+
+}  // namespace xwalk
+
+#endif  // XWALK_RUNTIME_BROWSER_ANDROID_XWALK_URL_FILTER_H_
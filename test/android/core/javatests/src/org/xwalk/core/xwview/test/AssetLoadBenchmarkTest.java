@@ -0,0 +1,62 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.test.suitebuilder.annotation.MediumTest;
+import android.util.Log;
+
+import org.chromium.base.test.util.Feature;
+
+/**
+ * Measures the time to load a 5MB packaged app from the assets, through
+ * file:///android_asset/ and app:// urls.
+ *
+ * The app is generated by build/android/generate_packaged_app_benchmark.py.
+ * Its images are stored uncompressed and read from the mapped APK.
+ */
+public class AssetLoadBenchmarkTest extends XWalkViewTestBase {
+    private static final String TAG = "AssetLoadBenchmarkTest";
+    private static final String APP_PATH = "packaged_app/index.html";
+    private static final int APP_SIZE = 5 * 1049236 + 628;
+    private static final int ITERATIONS = 5;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    private void benchmark(String url) throws Exception {
+        long total = 0;
+        long first = 0;
+        for (int i = 0; i < ITERATIONS; ++i) {
+            loadUrlSync("about:blank");
+            long start = System.nanoTime();
+            loadUrlSync(url);
+            long time = System.nanoTime() - start;
+            assertEquals("loaded", getTitleOnUiThread());
+            if (i == 0) {
+                first = time;
+            } else {
+                total += time;
+            }
+        }
+        long average = total / (ITERATIONS - 1);
+        Log.i(TAG, url + ": first load " + first / 1000 + " us, then " + average / 1000 +
+                " us on average, " + (APP_SIZE * 1000L) / Math.max(average, 1) + " MB/s");
+    }
+
+    @MediumTest
+    @Feature({"AssetLoadBenchmark"})
+    public void testLoadAndroidAsset() throws Throwable {
+        benchmark("file:///android_asset/www/" + APP_PATH);
+    }
+
+    @MediumTest
+    @Feature({"AssetLoadBenchmark"})
+    public void testLoadAppScheme() throws Throwable {
+        String packageName = getActivity().getPackageName().toLowerCase();
+        benchmark("app://" + packageName + "/" + APP_PATH);
+    }
+}
@@ -0,0 +1,103 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.net.test.util.TestWebServer;
+import org.xwalk.core.XWalkPreferences;
+import org.xwalk.core.XWalkView;
+
+import org.xwalk.core.xwview.test.util.CommonResources;
+
+/**
+ * Test suite for XWalkPreferences.COALESCE_RESOURCE_CALLBACKS.
+ */
+public class CoalesceResourceCallbacksTest extends XWalkViewTestBase {
+    private static final int SCRIPT_COUNT = 20;
+
+    private TestWebServer mWebServer;
+    private final List<String> mStartedUrls =
+            Collections.synchronizedList(new ArrayList<String>());
+    private volatile int mBatchCount = 0;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        mWebServer = TestWebServer.start();
+        setPreference(true);
+        setResourceClient(new TestXWalkResourceClient() {
+            @Override
+            public void onLoadsStarted(XWalkView view, String[] urls) {
+                ++mBatchCount;
+                for (String url : urls) {
+                    mStartedUrls.add(url);
+                }
+                super.onLoadsStarted(view, urls);
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        setPreference(false);
+        mWebServer.shutdown();
+        super.tearDown();
+    }
+
+    private void setPreference(final boolean enabled) {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                XWalkPreferences.setValue(XWalkPreferences.COALESCE_RESOURCE_CALLBACKS, enabled);
+            }
+        });
+    }
+
+    // Returns the URLs of a page loading SCRIPT_COUNT scripts, the page
+    // first.
+    private List<String> createPage(String name) {
+        List<String> urls = new ArrayList<String>();
+        StringBuilder scripts = new StringBuilder();
+        for (int i = 0; i < SCRIPT_COUNT; ++i) {
+            String url = mWebServer.setResponse("/" + name + i + ".js", "var a" + i + ";",
+                    CommonResources.getTextJavascriptHeaders(true));
+            urls.add(url);
+            scripts.append("<script src=\"" + url + "\"></script>");
+        }
+        urls.add(0, mWebServer.setResponse("/" + name + ".html",
+                CommonResources.makeHtmlPageFrom("<title>Test</title>", scripts.toString()),
+                CommonResources.getTextHtmlHeaders(true)));
+        return urls;
+    }
+
+    private void loadPageAndWaitForResources(List<String> urls) throws Exception {
+        int count = mTestHelperBridge.getOnLoadStartedHelper().getCallCount();
+        loadUrlSync(urls.get(0));
+        // Every resource is still reported through onLoadStarted() by default.
+        mTestHelperBridge.getOnLoadStartedHelper().waitForCallback(count, urls.size());
+    }
+
+    @SmallTest
+    @Feature({"CoalesceResourceCallbacks"})
+    public void testResourcesStartedInBatches() throws Throwable {
+        List<String> firstPage = createPage("first");
+        loadPageAndWaitForResources(firstPage);
+        assertTrue(mStartedUrls.containsAll(firstPage));
+        assertTrue(mBatchCount > 0);
+
+        // The batches keep being delivered after the first one.
+        int batchCount = mBatchCount;
+        List<String> secondPage = createPage("second");
+        loadPageAndWaitForResources(secondPage);
+        assertTrue(mStartedUrls.containsAll(secondPage));
+        assertTrue(mBatchCount > batchCount);
+    }
+}
@@ -0,0 +1,122 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.ContactsContract;
+import android.provider.ContactsContract.CommonDataKinds.StructuredName;
+import android.provider.ContactsContract.Data;
+import android.provider.ContactsContract.RawContacts;
+import android.test.mock.MockContentProvider;
+import android.test.mock.MockContentResolver;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.chromium.base.test.util.Feature;
+import org.json.JSONObject;
+import org.xwalk.core.XWalkPreferences;
+import org.xwalk.core.internal.extension.api.contacts.ContactCache;
+import org.xwalk.core.internal.extension.api.contacts.ContactFinder;
+
+/**
+ * Test suite for the contacts cache and XWalkPreferences.getContactsCacheStats().
+ */
+public class ContactsCacheStatsTest extends XWalkViewTestBase {
+    private static final long CONTACT_ID = 7;
+
+    // Serves a single contact with one raw contact and a name.
+    private static class FakeContactsProvider extends MockContentProvider {
+        int mVersion = 1;
+        String mName = "Alice";
+        int mDataReadCount = 0;
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection,
+                String[] selectionArgs, String sortOrder) {
+            MatrixCursor cursor = new MatrixCursor(projection);
+            Object[] row = new Object[projection.length];
+            boolean isRawContacts = uri.equals(RawContacts.CONTENT_URI);
+            if (!isRawContacts && projection.length > 1) ++mDataReadCount;
+            for (int i = 0; i < projection.length; ++i) {
+                String column = projection[i];
+                if (column.equals(Data.CONTACT_ID)) {
+                    row[i] = CONTACT_ID;
+                } else if (isRawContacts && column.equals(RawContacts._ID)) {
+                    row[i] = CONTACT_ID * 10;
+                } else if (isRawContacts && column.equals(RawContacts.VERSION)) {
+                    row[i] = mVersion;
+                } else if (column.equals(Data.MIMETYPE)) {
+                    row[i] = StructuredName.CONTENT_ITEM_TYPE;
+                } else if (column.equals(StructuredName.DISPLAY_NAME)) {
+                    row[i] = mName;
+                }
+            }
+            cursor.addRow(row);
+            return cursor;
+        }
+    }
+
+    private FakeContactsProvider mProvider;
+    private MockContentResolver mResolver;
+    private ContactCache mCache;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        mProvider = new FakeContactsProvider();
+        mResolver = new MockContentResolver();
+        mResolver.addProvider(ContactsContract.AUTHORITY, mProvider);
+        mCache = ContactCache.getInstance();
+        mCache.setMaxSize(10);
+        mCache.invalidateAll();
+        mCache.resetStatistics();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        mCache.setMaxSize(0);
+        super.tearDown();
+    }
+
+    @SmallTest
+    @Feature({"ContactsCache"})
+    public void testRepeatedFindHitsCache() throws Throwable {
+        String first = new ContactFinder(mResolver, mCache).find(null);
+        assertTrue(first.contains("Alice"));
+        assertEquals(1, mProvider.mDataReadCount);
+
+        String second = new ContactFinder(mResolver, mCache).find(null);
+        assertEquals(first, second);
+        assertEquals(1, mProvider.mDataReadCount);
+
+        JSONObject stats = new JSONObject(XWalkPreferences.getContactsCacheStats());
+        assertEquals(1, stats.getLong("hitCount"));
+        assertEquals(1, stats.getLong("missCount"));
+        assertEquals(1, stats.getInt("entryCount"));
+        assertEquals(10, stats.getInt("maxSize"));
+    }
+
+    @SmallTest
+    @Feature({"ContactsCache"})
+    public void testChangedContactIsReadAgain() throws Throwable {
+        new ContactFinder(mResolver, mCache).find(null);
+        assertEquals(1, mProvider.mDataReadCount);
+
+        // No change notification is delivered, the new version alone must
+        // invalidate the entry.
+        mProvider.mVersion = 2;
+        mProvider.mName = "Bob";
+        String contacts = new ContactFinder(mResolver, mCache).find(null);
+        assertTrue(contacts.contains("Bob"));
+        assertFalse(contacts.contains("Alice"));
+        assertEquals(2, mProvider.mDataReadCount);
+
+        JSONObject stats = new JSONObject(XWalkPreferences.getContactsCacheStats());
+        assertEquals(0, stats.getLong("hitCount"));
+        assertEquals(2, stats.getLong("missCount"));
+        assertEquals(1, stats.getInt("entryCount"));
+    }
+}
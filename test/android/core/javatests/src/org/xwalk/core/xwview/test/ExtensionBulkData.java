@@ -0,0 +1,83 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.xwalk.core.XWalkExtension;
+
+/**
+ * Java counterpart of extensions/test/bulk_data_transmission.c, sending the
+ * requested number of bytes either as a string or as an ArrayBuffer.
+ */
+public class ExtensionBulkData extends XWalkExtension {
+    private static final String RESULTS_PREFIX = "results:";
+
+    private final BlockingQueue<String> mResults = new ArrayBlockingQueue<String>(1);
+
+    public ExtensionBulkData() {
+        super("bulkData",
+              "var bulkDataListener = null;"
+              + "extension.setMessageListener(function(msg) {"
+              + "  if (bulkDataListener instanceof Function) {"
+              + "    bulkDataListener(msg);"
+              + "  };"
+              + "});"
+              + "exports.requestBulkDataAsync = function(size, callback) {"
+              + "  bulkDataListener = callback;"
+              + "  extension.postMessage('text:' + size);"
+              + "};"
+              + "exports.requestBinaryDataAsync = function(size, callback) {"
+              + "  bulkDataListener = callback;"
+              + "  extension.postMessage('binary:' + size);"
+              + "};"
+              + "exports.echoBinaryDataAsync = function(buffer, callback) {"
+              + "  bulkDataListener = callback;"
+              + "  extension.postMessage(buffer);"
+              + "};"
+              + "exports.reportResults = function(results) {"
+              + "  extension.postMessage('" + RESULTS_PREFIX + "' + JSON.stringify(results));"
+              + "};"
+             );
+    }
+
+    /**
+     * Returns the JSON results reported by the page.
+     */
+    public BlockingQueue<String> getResults() {
+        return mResults;
+    }
+
+    @Override
+    public void onMessage(int instanceID, String message) {
+        if (message.startsWith(RESULTS_PREFIX)) {
+            mResults.offer(message.substring(RESULTS_PREFIX.length()));
+        } else if (message.startsWith("text:")) {
+            int size = Integer.parseInt(message.substring("text:".length()));
+            char[] data = new char[size];
+            Arrays.fill(data, 'p');
+            postMessage(instanceID, new String(data));
+        } else if (message.startsWith("binary:")) {
+            int size = Integer.parseInt(message.substring("binary:".length()));
+            ByteBuffer data = ByteBuffer.allocateDirect(size);
+            while (data.hasRemaining()) data.put((byte) 'p');
+            data.flip();
+            postBinaryMessage(instanceID, data);
+        }
+    }
+
+    @Override
+    public void onBinaryMessage(int instanceID, ByteBuffer message) {
+        postBinaryMessage(instanceID, message);
+    }
+
+    @Override
+    public String onSyncMessage(int instanceID, String message) {
+        return "";
+    }
+}
@@ -0,0 +1,55 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.test.suitebuilder.annotation.MediumTest;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.chromium.base.test.util.Feature;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Measures the round trip of growing payloads through ExtensionBulkData,
+ * sent as strings and as ArrayBuffers.
+ */
+public class ExtensionBulkDataBenchmarkTest extends XWalkViewTestBase {
+    private static final String TAG = "ExtensionBulkDataBenchmarkTest";
+    private static final long RESULTS_TIMEOUT_SECONDS = 120;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    @MediumTest
+    @Feature({"ExtensionBulkData"})
+    public void testBulkDataTransmission() throws Throwable {
+        ExtensionBulkData bulkData = new ExtensionBulkData();
+
+        loadAssetFile("bulk_data_benchmark.html");
+        String results = bulkData.getResults().poll(RESULTS_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(results);
+        // The title and the results reach the browser through different
+        // channels, the title may come later.
+        assertTrue(pollOnUiThread(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return "Pass".equals(getXWalkView().getTitle());
+            }
+        }));
+
+        JSONArray entries = new JSONArray(results);
+        assertTrue(entries.length() > 0);
+        for (int i = 0; i < entries.length(); ++i) {
+            JSONObject entry = entries.getJSONObject(i);
+            Log.i(TAG, entry.getString("mode") + " " + entry.getInt("size") + " bytes: "
+                    + entry.getDouble("time") + " ms");
+        }
+    }
+}
@@ -6,6 +6,11 @@ package org.xwalk.core.xwview.test;
 
 import android.test.suitebuilder.annotation.SmallTest;
 import org.chromium.base.test.util.Feature;
+import org.chromium.content.browser.test.util.Criteria;
+import org.chromium.content.browser.test.util.CriteriaHelper;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.xwalk.core.XWalkExtension;
 import org.xwalk.core.xwview.test.ExtensionEcho;
 
 /**
@@ -45,4 +50,88 @@ public class ExtensionEchoTest extends XWalkViewTestBase {
         loadAssetFileAndWaitForTitle("framesEcho.html");
         assertEquals(PASS_STRING, getTitleOnUiThread());
     }
+
+    private void checkAsyncWithDispatchPolicy(int policy) throws Throwable {
+        final ExtensionEcho echo = new ExtensionEcho();
+        echo.setMessageDispatchPolicy(policy, 2);
+        assertEquals(policy, echo.getMessageDispatchPolicy());
+
+        loadAssetFileAndWaitForTitle("echo.html");
+        assertEquals(PASS_STRING, getTitleOnUiThread());
+
+        // The reply can reach the page before onMessage() has returned.
+        assertTrue(CriteriaHelper.pollForCriteria(new Criteria() {
+            @Override
+            public boolean isSatisfied() {
+                try {
+                    return new JSONObject(echo.getMessageStats()).getInt("messageCount") == 1;
+                } catch (JSONException e) {
+                    return false;
+                }
+            }
+        }));
+        JSONObject stats = new JSONObject(echo.getMessageStats());
+        assertEquals(policy, stats.getInt("dispatchPolicy"));
+        assertEquals(0, stats.getInt("queueDepth"));
+    }
+
+    @SmallTest
+    @Feature({"ExtensionEcho"})
+    public void testAsyncSerialDispatch() throws Throwable {
+        checkAsyncWithDispatchPolicy(XWalkExtension.DISPATCH_SERIAL);
+    }
+
+    @SmallTest
+    @Feature({"ExtensionEcho"})
+    public void testAsyncConcurrentDispatch() throws Throwable {
+        checkAsyncWithDispatchPolicy(XWalkExtension.DISPATCH_CONCURRENT);
+    }
+
+    @SmallTest
+    @Feature({"ExtensionEcho"})
+    public void testSyncSerialDispatch() throws Throwable {
+        ExtensionEcho echo = new ExtensionEcho();
+        echo.setMessageDispatchPolicy(XWalkExtension.DISPATCH_SERIAL, 1);
+
+        loadAssetFile("echoSync.html");
+        assertEquals(PASS_STRING, getTitleOnUiThread());
+    }
+
+    @SmallTest
+    @Feature({"ExtensionEcho"})
+    public void testDeferredSyncReply() throws Throwable {
+        ExtensionEcho echo = new ExtensionEcho() {
+            @Override
+            public void onDeferredSyncMessage(final int instanceID, final int replyID,
+                    final String message) {
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        sendSyncReply(instanceID, replyID, onSyncMessage(instanceID, message));
+                    }
+                }).start();
+            }
+        };
+
+        loadAssetFile("echoSync.html");
+        assertEquals(PASS_STRING, getTitleOnUiThread());
+    }
+
+    @SmallTest
+    @Feature({"ExtensionEcho"})
+    public void testSyncReplyTimeout() throws Throwable {
+        ExtensionEcho echo = new ExtensionEcho() {
+            @Override
+            public void onDeferredSyncMessage(int instanceID, int replyID, String message) {
+                // Never replies.
+            }
+        };
+        assertEquals(XWalkExtension.DEFAULT_SYNC_REPLY_TIMEOUT, echo.getSyncReplyTimeout());
+        echo.setSyncReplyTimeout(100);
+        assertEquals(100, echo.getSyncReplyTimeout());
+
+        // The page gets an empty reply instead of staying blocked.
+        loadAssetFileAndWaitForTitle("echoSync.html");
+        assertEquals("Fail", getTitleOnUiThread());
+    }
 }
@@ -0,0 +1,136 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.os.Debug;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.xwalk.core.XWalkExtension;
+
+/**
+ * Extension driven by extension_messaging_benchmark.html. It echoes the
+ * strings and ArrayBuffers it receives, and broadcasts strings of the
+ * requested size to all its instances.
+ *
+ * The page brackets each scenario with "begin:" and "end:" sync messages.
+ * Their results are completed with an estimate of the payload bytes copied
+ * between the Java and native heaps, and the garbage collections of the
+ * Java heap of the browser process, then handed to the test once the page
+ * sends "done".
+ *
+ * The estimate follows the copies XWalkExtensionAndroid makes, for the
+ * single byte characters the page sends:
+ * - an echoed string is copied into a Java string, then back out of it;
+ * - an echoed ArrayBuffer is received in place, and copied once when
+ *   posted back from its direct buffer;
+ * - a broadcast string is copied out of Java once, whatever the number of
+ *   instances. It is then serialized once per renderer process, which
+ *   happens outside of the Java heap and isn't counted.
+ */
+public class ExtensionMessagingBenchmark extends XWalkExtension {
+    private static final String TAG = "ExtensionMessagingBenchmark";
+    private static final String BEGIN_PREFIX = "begin:";
+    private static final String END_PREFIX = "end:";
+    private static final String BROADCAST_PREFIX = "broadcast:";
+    private static final String DONE = "done";
+
+    private final BlockingQueue<String> mResults = new ArrayBlockingQueue<String>(1);
+    private final JSONArray mEntries = new JSONArray();
+    private final AtomicLong mEstimatedBytesCopied = new AtomicLong();
+    private long mScenarioEstimatedBytesCopied;
+    private int mScenarioGcCount;
+    private String mBroadcastPayload = "";
+
+    public ExtensionMessagingBenchmark() {
+        super("messagingBenchmark",
+              "var listener = null;"
+              + "extension.setMessageListener(function(msg) {"
+              + "  if (listener instanceof Function) {"
+              + "    listener(msg);"
+              + "  };"
+              + "});"
+              + "exports.setListener = function(callback) {"
+              + "  listener = callback;"
+              + "};"
+              + "exports.echo = function(msg) {"
+              + "  extension.postMessage(msg);"
+              + "};"
+              + "exports.requestBroadcast = function(size) {"
+              + "  extension.internal.sendSyncMessage('" + BROADCAST_PREFIX + "' + size);"
+              + "};"
+              + "exports.begin = function(scenario) {"
+              + "  extension.internal.sendSyncMessage("
+              + "      '" + BEGIN_PREFIX + "' + JSON.stringify(scenario));"
+              + "};"
+              + "exports.end = function(results) {"
+              + "  extension.internal.sendSyncMessage("
+              + "      '" + END_PREFIX + "' + JSON.stringify(results));"
+              + "};"
+              + "exports.done = function() {"
+              + "  extension.internal.sendSyncMessage('" + DONE + "');"
+              + "};"
+             );
+        Debug.startAllocCounting();
+    }
+
+    /**
+     * Returns the JSON array of the scenario results, once the page is done.
+     */
+    public BlockingQueue<String> getResults() {
+        return mResults;
+    }
+
+    @Override
+    public void onMessage(int instanceID, String message) {
+        mEstimatedBytesCopied.addAndGet(2L * message.length());
+        postMessage(instanceID, message);
+    }
+
+    @Override
+    public void onBinaryMessage(int instanceID, ByteBuffer message) {
+        mEstimatedBytesCopied.addAndGet(message.remaining());
+        postBinaryMessage(instanceID, message);
+    }
+
+    @Override
+    public String onSyncMessage(int instanceID, String message) {
+        try {
+            if (message.startsWith(BEGIN_PREFIX)) {
+                mScenarioEstimatedBytesCopied = mEstimatedBytesCopied.get();
+                mScenarioGcCount = Debug.getGlobalGcInvocationCount();
+            } else if (message.startsWith(END_PREFIX)) {
+                JSONObject entry = new JSONObject(message.substring(END_PREFIX.length()));
+                entry.put("estimatedBytesCopied",
+                        mEstimatedBytesCopied.get() - mScenarioEstimatedBytesCopied);
+                entry.put("gcCount", Debug.getGlobalGcInvocationCount() - mScenarioGcCount);
+                mEntries.put(entry);
+            } else if (message.startsWith(BROADCAST_PREFIX)) {
+                int size = Integer.parseInt(message.substring(BROADCAST_PREFIX.length()));
+                if (mBroadcastPayload.length() != size) {
+                    char[] data = new char[size];
+                    Arrays.fill(data, 'p');
+                    mBroadcastPayload = new String(data);
+                }
+                mEstimatedBytesCopied.addAndGet(size);
+                broadcastMessage(mBroadcastPayload);
+            } else if (message.equals(DONE)) {
+                Debug.stopAllocCounting();
+                mResults.offer(mEntries.toString());
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Invalid message " + message + ": " + e.toString());
+        }
+        return "";
+    }
+}
@@ -0,0 +1,82 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.test.suitebuilder.annotation.MediumTest;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.chromium.base.test.util.Feature;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Measures the messages per second, the median and 99th percentile round
+ * trip latencies, the estimated bytes copied and the garbage collections of
+ * ExtensionMessagingBenchmark, echoing strings, echoing ArrayBuffers and
+ * broadcasting, for growing payloads and instance counts. The 99th
+ * percentile is null for the scenarios with less than 100 round trips.
+ *
+ * The results are logged, and written to extension_messaging_benchmark.json
+ * in the files directory of the application.
+ */
+public class ExtensionMessagingBenchmarkTest extends XWalkViewTestBase {
+    private static final String TAG = "ExtensionMessagingBenchmarkTest";
+    private static final String RESULTS_FILE = "extension_messaging_benchmark.json";
+    private static final long RESULTS_TIMEOUT_SECONDS = 300;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    private void writeResults(String results) throws Exception {
+        File file = new File(getActivity().getFilesDir(), RESULTS_FILE);
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(results.getBytes("UTF-8"));
+        } finally {
+            output.close();
+        }
+        Log.i(TAG, "Results written to " + file.getPath());
+    }
+
+    @MediumTest
+    @Feature({"ExtensionMessagingBenchmark"})
+    public void testMessaging() throws Throwable {
+        ExtensionMessagingBenchmark benchmark = new ExtensionMessagingBenchmark();
+
+        loadAssetFile("extension_messaging_benchmark.html");
+        String results = benchmark.getResults().poll(RESULTS_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(results);
+        // The title and the results reach the browser through different
+        // channels, the title may come later.
+        assertTrue(pollOnUiThread(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return "Pass".equals(getXWalkView().getTitle());
+            }
+        }));
+        writeResults(results);
+
+        JSONArray entries = new JSONArray(results);
+        assertTrue(entries.length() > 0);
+        for (int i = 0; i < entries.length(); ++i) {
+            JSONObject entry = entries.getJSONObject(i);
+            assertTrue(entry.getInt("messages") > 0);
+            assertTrue(entry.getLong("estimatedBytesCopied") > 0);
+            Log.i(TAG, entry.getString("mode") + " " + entry.getInt("size") + " bytes, "
+                    + entry.getInt("instances") + " instances: "
+                    + entry.getDouble("messagesPerSecond") + " msgs/s, p50 "
+                    + entry.getDouble("p50") + " ms, p99 " + entry.opt("p99") + " ms, "
+                    + entry.getLong("estimatedBytesCopied") + " bytes copied (estimated), "
+                    + entry.getInt("gcCount") + " GCs");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+import android.webkit.WebResourceResponse;
+
+import java.io.ByteArrayInputStream;
+
+import org.chromium.base.test.util.Feature;
+import org.json.JSONObject;
+import org.xwalk.core.XWalkInterceptCache;
+
+import org.xwalk.core.xwview.test.util.CommonResources;
+
+/**
+ * Test suite for XWalkInterceptCache.
+ */
+public class InterceptCacheTest extends XWalkViewTestBase {
+    private static final String PAGE_URL = "http://xwalk.test/cached.html";
+    private static final String TITLE = "Cached";
+
+    private TestHelperBridge.ShouldInterceptLoadRequestHelper mShouldInterceptLoadRequestHelper;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        setResourceClient(new TestXWalkResourceClient());
+        mShouldInterceptLoadRequestHelper = mTestHelperBridge.getShouldInterceptLoadRequestHelper();
+        XWalkInterceptCache.clear();
+        XWalkInterceptCache.setMaxSize(1024 * 1024);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        XWalkInterceptCache.setMaxSize(0);
+        super.tearDown();
+    }
+
+    private WebResourceResponse makePageResponse() throws Exception {
+        String html = CommonResources.makeHtmlPageFrom("<title>" + TITLE + "</title>", "");
+        return new WebResourceResponse("text/html", "UTF-8",
+                new ByteArrayInputStream(html.getBytes("UTF-8")));
+    }
+
+    private int getPageRequestCount() {
+        if (mShouldInterceptLoadRequestHelper.getCallCount() == 0) return 0;
+        int count = 0;
+        for (String url : mShouldInterceptLoadRequestHelper.getUrls()) {
+            if (PAGE_URL.equals(url)) ++count;
+        }
+        return count;
+    }
+
+    private void loadTwice() throws Exception {
+        mShouldInterceptLoadRequestHelper.setReturnValueForUrl(PAGE_URL, makePageResponse());
+
+        int requestCount = getPageRequestCount();
+        loadUrlSync(PAGE_URL);
+        assertEquals(TITLE, getTitleOnUiThread());
+        assertEquals(requestCount + 1, getPageRequestCount());
+
+        // The response returned above has been consumed, only the cache can
+        // serve the page again.
+        loadUrlSync("about:blank");
+        loadUrlSync(PAGE_URL);
+        assertEquals(TITLE, getTitleOnUiThread());
+        assertEquals(requestCount + 1, getPageRequestCount());
+    }
+
+    @SmallTest
+    @Feature({"InterceptCache"})
+    public void testServesRepeatedRequests() throws Throwable {
+        long hitCount = new JSONObject(XWalkInterceptCache.getStats()).getLong("hitCount");
+        loadTwice();
+
+        JSONObject stats = new JSONObject(XWalkInterceptCache.getStats());
+        assertEquals(hitCount + 1, stats.getLong("hitCount"));
+        assertEquals(1, stats.getInt("entryCount"));
+        assertTrue(stats.getInt("size") > 0);
+    }
+
+    @SmallTest
+    @Feature({"InterceptCache"})
+    public void testDirectBuffers() throws Throwable {
+        XWalkInterceptCache.setUseDirectBuffers(true);
+        try {
+            loadTwice();
+        } finally {
+            XWalkInterceptCache.setUseDirectBuffers(false);
+        }
+    }
+
+    @SmallTest
+    @Feature({"InterceptCache"})
+    public void testEviction() throws Throwable {
+        loadTwice();
+        long evictionCount = new JSONObject(XWalkInterceptCache.getStats()).getLong("evictionCount");
+
+        XWalkInterceptCache.setMaxSize(1);
+        JSONObject stats = new JSONObject(XWalkInterceptCache.getStats());
+        assertEquals(evictionCount + 1, stats.getLong("evictionCount"));
+        assertEquals(0, stats.getInt("entryCount"));
+        assertEquals(0, stats.getInt("size"));
+
+        // Responses larger than the cache are served but not kept.
+        int requestCount = getPageRequestCount();
+        mShouldInterceptLoadRequestHelper.setReturnValueForUrl(PAGE_URL, makePageResponse());
+        loadUrlSync(PAGE_URL);
+        assertEquals(TITLE, getTitleOnUiThread());
+        assertEquals(requestCount + 1, getPageRequestCount());
+        assertEquals(0, new JSONObject(XWalkInterceptCache.getStats()).getInt("entryCount"));
+    }
+
+    @SmallTest
+    @Feature({"InterceptCache"})
+    public void testScopedPerClient() throws Throwable {
+        loadTwice();
+
+        // Another resource client is asked for the page, and gets its own entry.
+        setResourceClient(new TestXWalkResourceClient());
+        loadTwice();
+        assertEquals(2, new JSONObject(XWalkInterceptCache.getStats()).getInt("entryCount"));
+
+        XWalkInterceptCache.remove(PAGE_URL);
+        assertEquals(0, new JSONObject(XWalkInterceptCache.getStats()).getInt("entryCount"));
+    }
+}
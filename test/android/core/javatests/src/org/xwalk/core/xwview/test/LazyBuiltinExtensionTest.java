@@ -0,0 +1,57 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.chromium.base.test.util.Feature;
+import org.xwalk.core.internal.extension.api.XWalkDisplayManager;
+
+/**
+ * Test suite for the builtin extensions created on their first message.
+ */
+public class LazyBuiltinExtensionTest extends XWalkViewTestBase {
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    // Must be called on the UI thread, which registers the listeners.
+    private int getDisplayListenerCount() throws Exception {
+        XWalkDisplayManager manager = XWalkDisplayManager.getInstance(getActivity());
+        Field field = XWalkDisplayManager.class.getDeclaredField("mListeners");
+        field.setAccessible(true);
+        return ((List<?>) field.get(manager)).size();
+    }
+
+    @SmallTest
+    @Feature({"BuiltinExtensions"})
+    public void testPresentationResumedWhenCreated() throws Throwable {
+        final int listenersBefore = runTestOnUiThreadAndGetResult(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return getDisplayListenerCount();
+            }
+        });
+
+        // The page is loaded in a resumed activity, the Presentation
+        // extension is only created by its first message.
+        loadAssetFileAndWaitForTitle("displayAvailableTest.html");
+        String title = getTitleOnUiThread();
+        assertTrue("Available".equals(title) || "Unavailable".equals(title));
+
+        // It listens to the displays once it has seen the activity resume.
+        assertTrue(pollOnUiThread(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return getDisplayListenerCount() > listenersBefore;
+            }
+        }));
+    }
+}
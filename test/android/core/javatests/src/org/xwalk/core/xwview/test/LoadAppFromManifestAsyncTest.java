@@ -0,0 +1,109 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+import android.webkit.ValueCallback;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.content.browser.test.util.CallbackHelper;
+import org.json.JSONObject;
+
+/**
+ * Test suite for loadAppFromManifest() with a callback.
+ */
+public class LoadAppFromManifestAsyncTest extends XWalkViewTestBase {
+    private static final String TAG = "LoadAppFromManifestAsyncTest";
+    private static final String MANIFEST_URL = "file:///android_asset/www/manifest.json";
+    private static final String MISSING_MANIFEST_URL = "file:///android_asset/www/missing.json";
+    private static final String EXPECTED_TITLE = "Crosswalk Sample Application";
+
+    private final LinkedBlockingQueue<String> mReports = new LinkedBlockingQueue<String>();
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    private JSONObject loadAppFromManifest(final String content) throws Exception {
+        return loadAppFromManifest(MANIFEST_URL, content);
+    }
+
+    private JSONObject loadAppFromManifest(final String url, final String content)
+            throws Exception {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                getXWalkView().loadAppFromManifest(url, content,
+                        new ValueCallback<String>() {
+                    @Override
+                    public void onReceiveValue(String report) {
+                        mReports.add(report);
+                    }
+                });
+            }
+        });
+        String report = mReports.poll(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(report);
+        Log.i(TAG, "loadAppFromManifest: " + report);
+        return new JSONObject(report);
+    }
+
+    @SmallTest
+    @Feature({"LoadAppFromManifest"})
+    public void testLoadAppFromManifest() throws Throwable {
+        CallbackHelper pageFinishedHelper = mTestHelperBridge.getOnPageFinishedHelper();
+        int currentCallCount = pageFinishedHelper.getCallCount();
+
+        JSONObject report = loadAppFromManifest("{\"start_url\": \"index.html\"}");
+        assertFalse(report.has("error"));
+        assertTrue(report.has("readTime"));
+        assertTrue(report.has("parseTime"));
+        assertTrue(report.has("setManifestTime"));
+        assertTrue(report.getLong("navigationStartTime") >= 0);
+
+        pageFinishedHelper.waitForCallback(currentCallCount, 1, WAIT_TIMEOUT_SECONDS,
+                TimeUnit.SECONDS);
+        assertEquals(EXPECTED_TITLE, getTitleOnUiThread());
+    }
+
+    @SmallTest
+    @Feature({"LoadAppFromManifest"})
+    public void testInvalidManifest() throws Throwable {
+        JSONObject report = loadAppFromManifest("{\"start_url\": ");
+        assertTrue(report.has("error"));
+        assertFalse(report.has("navigationStartTime"));
+    }
+
+    @SmallTest
+    @Feature({"LoadAppFromManifest"})
+    public void testLoadAppFromManifestUrl() throws Throwable {
+        CallbackHelper pageFinishedHelper = mTestHelperBridge.getOnPageFinishedHelper();
+        int currentCallCount = pageFinishedHelper.getCallCount();
+
+        // The manifest is read from the assets on the background thread.
+        JSONObject report = loadAppFromManifest(MANIFEST_URL, null);
+        assertFalse(report.has("error"));
+        assertTrue(report.has("readTime"));
+        assertTrue(report.has("parseTime"));
+        assertTrue(report.getLong("navigationStartTime") >= 0);
+
+        pageFinishedHelper.waitForCallback(currentCallCount, 1, WAIT_TIMEOUT_SECONDS,
+                TimeUnit.SECONDS);
+        assertEquals(EXPECTED_TITLE, getTitleOnUiThread());
+    }
+
+    @SmallTest
+    @Feature({"LoadAppFromManifest"})
+    public void testMissingManifestUrl() throws Throwable {
+        JSONObject report = loadAppFromManifest(MISSING_MANIFEST_URL, null);
+        assertTrue(report.getString("error").startsWith("Failed to read the manifest"));
+        assertFalse(report.has("navigationStartTime"));
+    }
+}
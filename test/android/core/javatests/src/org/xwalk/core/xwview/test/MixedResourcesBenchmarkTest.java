@@ -0,0 +1,132 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.res.Resources;
+import android.test.suitebuilder.annotation.MediumTest;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+
+import org.chromium.base.test.util.Feature;
+
+/**
+ * Measures inflating a library layout through XWalkMixedResources, the way
+ * the library inflates its popups in shared mode, against the library
+ * Resources alone. Also compares resolving the package of a cached ID with
+ * walking the stack, which is what every lookup used to do.
+ *
+ * The system resources stand in for the application ones, so that the
+ * library IDs are only defined on the library side, as in shared mode.
+ */
+public class MixedResourcesBenchmarkTest extends XWalkViewTestBase {
+    private static final String TAG = "MixedResourcesBenchmarkTest";
+    private static final int ITERATIONS = 500;
+    // The item of the drop down used by <select> popups.
+    private static final String LAYOUT_NAME = "dropdown_item";
+
+    private static class ResourcesContext extends ContextWrapper {
+        private final Resources mResources;
+
+        ResourcesContext(Context base, Resources resources) {
+            super(base);
+            mResources = resources;
+        }
+
+        @Override
+        public Resources getResources() {
+            return mResources;
+        }
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    private Resources createMixedResources(Resources base, Resources library)
+            throws Exception {
+        Class<?> clazz = Class.forName("org.xwalk.core.XWalkMixedResources");
+        Constructor<?> constructor =
+                clazz.getDeclaredConstructor(Resources.class, Resources.class);
+        constructor.setAccessible(true);
+        return (Resources) constructor.newInstance(base, library);
+    }
+
+    private static Method getMethod(Resources mixed, String name, Class<?>... types)
+            throws Exception {
+        Method method = mixed.getClass().getDeclaredMethod(name, types);
+        method.setAccessible(true);
+        return method;
+    }
+
+    private static long timeInvoke(Resources mixed, Method method, Object... args)
+            throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            method.invoke(mixed, args);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private static long timeInflate(Context context, int layout) {
+        LayoutInflater inflater = LayoutInflater.from(context).cloneInContext(context);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            View view = inflater.inflate(layout, null);
+            assertNotNull(view);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    @MediumTest
+    @Feature({"MixedResourcesBenchmark"})
+    public void testInflate() throws Throwable {
+        runTestOnUiThreadAndGetResult(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                Context context = getActivity();
+                Resources library = context.getResources();
+                int layout = library.getIdentifier(
+                        LAYOUT_NAME, "layout", context.getPackageName());
+                assertTrue(layout != 0);
+
+                Resources mixed = createMixedResources(Resources.getSystem(), library);
+                Context plainContext = new ResourcesContext(context, library);
+                Context mixedContext = new ResourcesContext(context, mixed);
+
+                // Warm up both paths, this also fills the resource ID cache.
+                timeInflate(plainContext, layout);
+                timeInflate(mixedContext, layout);
+
+                long plain = timeInflate(plainContext, layout);
+                long viaMixed = timeInflate(mixedContext, layout);
+
+                // Both go through reflection, so they pay the same overhead.
+                Method lookup = getMethod(mixed, "useLibraryResource", int.class);
+                Method stackWalk = getMethod(mixed, "isCalledInLibrary");
+                assertEquals(Boolean.TRUE, lookup.invoke(mixed, layout));
+                long cached = timeInvoke(mixed, lookup, layout);
+                long walked = timeInvoke(mixed, stackWalk);
+
+                assertTrue(cached < walked);
+                Log.i(TAG, "inflate " + LAYOUT_NAME + ": " + plain + " ns/op, "
+                        + "with XWalkMixedResources: " + viaMixed + " ns/op, "
+                        + "cached lookup: " + cached + " ns/op, "
+                        + "stack walk: " + walked + " ns/op");
+
+                // The layout itself is only defined by the library.
+                assertNotNull(mixed.getLayout(layout));
+                return null;
+            }
+        });
+    }
+}
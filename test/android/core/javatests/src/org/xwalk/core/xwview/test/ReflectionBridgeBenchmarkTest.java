@@ -0,0 +1,76 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.test.suitebuilder.annotation.MediumTest;
+import android.util.Log;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.Callable;
+
+import org.chromium.base.test.util.Feature;
+import org.xwalk.core.XWalkView;
+
+/**
+ * Compares the cost of the generated wrapper methods calling into the bridge
+ * directly, as the embedded mode does, with the same methods going through
+ * their ReflectMethod, as they do when the direct interfaces are unavailable.
+ */
+public class ReflectionBridgeBenchmarkTest extends XWalkViewTestBase {
+    private static final String TAG = "ReflectionBridgeBenchmarkTest";
+    private static final int ITERATIONS = 10000;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    private static long timeGetUrl(XWalkView view, String[] result) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            result[0] = view.getUrl();
+        }
+        return System.nanoTime() - start;
+    }
+
+    @MediumTest
+    @Feature({"ReflectionBridgeBenchmark"})
+    public void testGetUrlCallOverhead() throws Throwable {
+        final String url = "file:///android_asset/www/index.html";
+        loadUrlSync(url);
+
+        final String[] results = runTestOnUiThreadAndGetResult(new Callable<String[]>() {
+            @Override
+            public String[] call() throws Exception {
+                XWalkView view = getXWalkView();
+                Field directBridge = XWalkView.class.getDeclaredField("directBridge");
+                directBridge.setAccessible(true);
+                Object bridge = directBridge.get(view);
+                assertNotNull(bridge);
+
+                String[] direct = new String[1];
+                long directTime = timeGetUrl(view, direct);
+
+                // Without the direct interface, the generated method falls
+                // back on its ReflectMethod.
+                String[] reflected = new String[1];
+                directBridge.set(view, null);
+                long reflectedTime;
+                try {
+                    reflectedTime = timeGetUrl(view, reflected);
+                } finally {
+                    directBridge.set(view, bridge);
+                }
+
+                Log.i(TAG, "getUrl: " + (directTime / ITERATIONS) + " ns/call, "
+                        + "through ReflectMethod: " + (reflectedTime / ITERATIONS)
+                        + " ns/call");
+                return new String[] { direct[0], reflected[0] };
+            }
+        });
+        assertEquals(url, results[0]);
+        assertEquals(url, results[1]);
+    }
+}
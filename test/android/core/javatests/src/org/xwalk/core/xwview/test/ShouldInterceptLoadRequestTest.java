@@ -316,6 +316,31 @@ public class ShouldInterceptLoadRequestTest extends XWalkViewTestBase {
                 CommonResources.FAVICON_FILENAME));
     }
 
+    @SmallTest
+    @Feature({"ShouldInterceptLoadRequest"})
+    public void testOnlyCalledForFilteredUrls() throws Throwable {
+        final String imagePath = "/" + CommonResources.FAVICON_FILENAME;
+        final String imageUrl = mWebServer.setResponseBase64(imagePath,
+                CommonResources.FAVICON_DATA_BASE64, CommonResources.getImagePngHeaders(true));
+        final String pageWithImage =
+            addPageToTestServer(mWebServer, "/page_with_image.html",
+                    CommonResources.getOnImageLoadedHtml(CommonResources.FAVICON_FILENAME));
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                getXWalkView().setInterceptLoadRequestFilter(
+                        null, null, new String[] { ".*\\.png" });
+            }
+        });
+
+        int callCount = mShouldInterceptLoadRequestHelper.getCallCount();
+        loadUrlSync(pageWithImage);
+        mShouldInterceptLoadRequestHelper.waitForCallback(callCount);
+
+        assertEquals(1, mShouldInterceptLoadRequestHelper.getUrls().size());
+        assertEquals(imageUrl, mShouldInterceptLoadRequestHelper.getUrls().get(0));
+    }
+
     @SmallTest
     @Feature({"ShouldInterceptLoadRequest"})
     public void testOnReceivedErrorCallback() throws Throwable {
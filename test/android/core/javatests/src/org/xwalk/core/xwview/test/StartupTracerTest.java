@@ -0,0 +1,78 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.chromium.base.test.util.Feature;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.xwalk.core.XWalkStartupTracer;
+
+/**
+ * Test suite for XWalkStartupTracer.
+ */
+public class StartupTracerTest extends XWalkViewTestBase {
+    private static final String TAG = "StartupTracerTest";
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    @SmallTest
+    @Feature({"StartupTracer"})
+    public void testGetReport() throws Throwable {
+        String report = XWalkStartupTracer.getReport();
+        Log.i(TAG, report);
+
+        JSONArray phases = new JSONObject(report).getJSONArray("phases");
+        Set<String> names = new HashSet<String>();
+        for (int i = 0; i < phases.length(); ++i) {
+            JSONObject phase = phases.getJSONObject(i);
+            assertTrue(phase.getLong("start") >= 0);
+            assertTrue(phase.getLong("duration") >= 0);
+            names.add(phase.getString("name"));
+            if (phase.getString("name").equals("loadXWalkLibrary")) {
+                assertTrue(phase.getInt("depth") > 0);
+            }
+        }
+        assertTrue(names.contains("XWalkViewDelegate.init"));
+        assertTrue(names.contains("loadXWalkLibrary"));
+        assertTrue(names.contains("isRunningOnIA"));
+        assertTrue(names.contains("startBrowserProcess"));
+        assertTrue(names.contains("XWalkContent.setNativeContent"));
+    }
+
+    @SmallTest
+    @Feature({"StartupTracer"})
+    public void testWriteTraceFile() throws Throwable {
+        File file = new File(getActivity().getCacheDir(), "startup_trace.json");
+        assertTrue(XWalkStartupTracer.writeTraceFile(file.getPath()));
+
+        byte[] content = new byte[(int) file.length()];
+        FileInputStream input = new FileInputStream(file);
+        try {
+            assertEquals(content.length, input.read(content));
+        } finally {
+            input.close();
+        }
+        file.delete();
+
+        JSONArray events = new JSONObject(new String(content, "UTF-8"))
+                .getJSONArray("traceEvents");
+        assertTrue(events.length() > 0);
+        JSONObject event = events.getJSONObject(0);
+        assertEquals("X", event.getString("ph"));
+        assertTrue(event.has("ts"));
+        assertTrue(event.has("dur"));
+    }
+}
@@ -0,0 +1,166 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.xwview.test;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.test.suitebuilder.annotation.MediumTest;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.chromium.base.test.util.Feature;
+import org.chromium.content.browser.test.util.Criteria;
+import org.chromium.content.browser.test.util.CriteriaHelper;
+import org.xwalk.core.XWalkResourceClient;
+import org.xwalk.core.XWalkView;
+import org.xwalk.core.XWalkViewPool;
+
+/**
+ * Measures the time from creating an XWalkView to its first page being
+ * loaded, with and without XWalkViewPool.
+ */
+public class XWalkViewPoolBenchmarkTest extends XWalkViewTestBase {
+    private static final String TAG = "XWalkViewPoolBenchmarkTest";
+    private static final String URL = "about:blank";
+    private static final int POOL_CAPACITY = 2;
+    private static final int ITERATIONS = 4;
+
+    private final LinkedBlockingQueue<Long> mLoadTimes = new LinkedBlockingQueue<Long>();
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                XWalkViewPool.setCapacity(0);
+            }
+        });
+        super.tearDown();
+    }
+
+    private int getPoolSizeOnUiThread() throws Exception {
+        return runTestOnUiThreadAndGetResult(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return XWalkViewPool.getSize();
+            }
+        });
+    }
+
+    private void waitForPoolSize(final int size) throws Exception {
+        assertTrue(CriteriaHelper.pollForCriteria(new Criteria() {
+            @Override
+            public boolean isSatisfied() {
+                try {
+                    return getPoolSizeOnUiThread() == size;
+                } catch (Exception e) {
+                    return false;
+                }
+            }
+        }));
+    }
+
+    // Returns the time from the creation of a new XWalkView to the end of
+    // its first load.
+    private long measureTimeToFirstLoad() throws Exception {
+        final Activity activity = getActivity();
+        final XWalkView[] views = new XWalkView[1];
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final long start = System.nanoTime();
+                views[0] = new XWalkView(activity, activity);
+                views[0].setResourceClient(new XWalkResourceClient(views[0]) {
+                    @Override
+                    public void onLoadFinished(XWalkView view, String url) {
+                        mLoadTimes.add(System.nanoTime() - start);
+                    }
+                });
+                views[0].load(URL, null);
+            }
+        });
+        Long time = mLoadTimes.poll(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(time);
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                views[0].onDestroy();
+            }
+        });
+        return time;
+    }
+
+    private long benchmark(boolean pooled) throws Exception {
+        long total = 0;
+        for (int i = 0; i < ITERATIONS; ++i) {
+            if (pooled) waitForPoolSize(POOL_CAPACITY);
+            total += measureTimeToFirstLoad();
+        }
+        return total / ITERATIONS;
+    }
+
+    @MediumTest
+    @Feature({"XWalkViewPool"})
+    public void testTimeToFirstLoad() throws Throwable {
+        long unpooledTime = benchmark(false);
+
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                XWalkViewPool.setCapacity(POOL_CAPACITY);
+            }
+        });
+        long pooledTime = benchmark(true);
+
+        Log.i(TAG, "Time to first load: " + unpooledTime / 1000 + " us without the pool, "
+                + pooledTime / 1000 + " us with " + POOL_CAPACITY + " pooled contents");
+    }
+
+    private void trimMemoryOnUiThread(final int level) {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                XWalkViewPool.onTrimMemory(level);
+            }
+        });
+    }
+
+    @MediumTest
+    @Feature({"XWalkViewPool"})
+    public void testTrimMemory() throws Throwable {
+        getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                XWalkViewPool.setCapacity(POOL_CAPACITY);
+            }
+        });
+        waitForPoolSize(POOL_CAPACITY);
+
+        // The pool is kept while the application is in the background.
+        trimMemoryOnUiThread(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(POOL_CAPACITY, getPoolSizeOnUiThread());
+        trimMemoryOnUiThread(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(POOL_CAPACITY, getPoolSizeOnUiThread());
+
+        trimMemoryOnUiThread(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(POOL_CAPACITY / 2, getPoolSizeOnUiThread());
+
+        trimMemoryOnUiThread(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(0, getPoolSizeOnUiThread());
+
+        // It isn't filled again until the application returns to the
+        // foreground.
+        getInstrumentation().waitForIdleSync();
+        assertEquals(0, getPoolSizeOnUiThread());
+    }
+}
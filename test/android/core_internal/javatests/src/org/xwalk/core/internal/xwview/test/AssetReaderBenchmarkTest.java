@@ -0,0 +1,135 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.xwview.test;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.test.suitebuilder.annotation.MediumTest;
+import android.util.Log;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+
+import org.chromium.base.test.util.Feature;
+import org.json.JSONObject;
+import org.xwalk.core.internal.XWalkAssetReader;
+
+/**
+ * Compares XWalkAssetReader with the chunked reader it replaced, on 1MB JS
+ * bundles packaged in the APK, one stored uncompressed and one compressed,
+ * and on a 1MB manifest read through AndroidProtocolHandler.getUrlContent().
+ * See build/android/generate_asset_reader_benchmark.py.
+ */
+public class AssetReaderBenchmarkTest extends XWalkViewInternalTestBase {
+    private static final String TAG = "AssetReaderBenchmarkTest";
+    private static final String STORED_ASSET = "asset_reader_benchmark/stored.png";
+    private static final String COMPRESSED_ASSET = "asset_reader_benchmark/compressed.js";
+    private static final String MANIFEST_ASSET = "asset_reader_benchmark/manifest.json";
+    private static final int ITERATIONS = 5;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    // The reader used by AndroidProtocolHandler.getUrlContent() before.
+    private static String readChunked(InputStream stream) throws IOException {
+        String content = "";
+        final int bufferSize = 1024;
+        byte[] buffer = new byte[bufferSize];
+        int actualSize = 0;
+        while ((actualSize = stream.read(buffer, 0, bufferSize)) > 0) {
+            content += new String(buffer, 0, actualSize);
+        }
+        return content;
+    }
+
+    private static boolean isStored(AssetManager assets, String path) throws IOException {
+        try {
+            assets.openFd(path).close();
+            return true;
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+    }
+
+    private String benchmark(String path) throws IOException {
+        AssetManager assets = getInstrumentation().getContext().getAssets();
+
+        String content = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            content = XWalkAssetReader.readAsset(assets, path);
+        }
+        long readerTime = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            InputStream stream = assets.open(path);
+            try {
+                readChunked(stream);
+            } finally {
+                stream.close();
+            }
+        }
+        long chunkedTime = (System.nanoTime() - start) / ITERATIONS;
+
+        Log.i(TAG, path + ": XWalkAssetReader " + readerTime / 1000 + " us, "
+                + "chunked " + chunkedTime / 1000 + " us");
+        return content;
+    }
+
+    @MediumTest
+    @Feature({"AssetReaderBenchmark"})
+    public void testManifestFromUrl() throws Throwable {
+        // The assets of the test APK are read through its own context.
+        Context context = getInstrumentation().getContext();
+        String url = "file:///android_asset/" + MANIFEST_ASSET;
+        Class<?> clazz = Class.forName("org.xwalk.core.internal.AndroidProtocolHandler");
+        Method getUrlContent = clazz.getDeclaredMethod(
+                "getUrlContent", Context.class, String.class);
+        getUrlContent.setAccessible(true);
+
+        String content = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            content = (String) getUrlContent.invoke(null, context, url);
+        }
+        long readerTime = (System.nanoTime() - start) / ITERATIONS;
+
+        String chunked = null;
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            InputStream stream = context.getAssets().open(MANIFEST_ASSET);
+            try {
+                chunked = readChunked(stream);
+            } finally {
+                stream.close();
+            }
+        }
+        long chunkedTime = (System.nanoTime() - start) / ITERATIONS;
+
+        Log.i(TAG, url + ": getUrlContent " + readerTime / 1000 + " us, "
+                + "chunked " + chunkedTime / 1000 + " us");
+        assertTrue(content.length() > 1000 * 1000);
+        assertEquals(chunked, content);
+        assertTrue(new JSONObject(content).getJSONArray("icons").length() > 0);
+    }
+
+    @MediumTest
+    @Feature({"AssetReaderBenchmark"})
+    public void testStoredAndCompressedAssets() throws Throwable {
+        AssetManager assets = getInstrumentation().getContext().getAssets();
+        assertTrue(isStored(assets, STORED_ASSET));
+        assertFalse(isStored(assets, COMPRESSED_ASSET));
+
+        String stored = benchmark(STORED_ASSET);
+        String compressed = benchmark(COMPRESSED_ASSET);
+        assertTrue(stored.getBytes("UTF-8").length > 1000 * 1000);
+        assertEquals(stored, compressed);
+    }
+}
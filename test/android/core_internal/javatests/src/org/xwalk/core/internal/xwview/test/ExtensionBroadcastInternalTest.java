@@ -25,4 +25,13 @@ public class ExtensionBroadcastInternalTest extends XWalkViewInternalTestBase {
         loadAssetFileAndWaitForTitle("broadcast.html");
         assertEquals("Pass", getTitleOnUiThread());
     }
+
+    @SmallTest
+    @Feature({"ExtensionBroadcastInternal"})
+    public void testLargeMessageToFrames() throws Throwable {
+        ExtensionBroadcastInternal broadcast = new ExtensionBroadcastInternal();
+
+        loadAssetFileAndWaitForTitle("broadcastLarge.html");
+        assertEquals("Pass", getTitleOnUiThread());
+    }
 }
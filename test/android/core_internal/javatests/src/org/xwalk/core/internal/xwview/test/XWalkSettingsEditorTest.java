@@ -0,0 +1,102 @@
+// Copyright (c) 2015 Intel Corporation. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package org.xwalk.core.internal.xwview.test;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.chromium.base.ThreadUtils;
+import org.chromium.base.test.util.Feature;
+import org.chromium.base.test.util.UrlUtils;
+import org.xwalk.core.internal.XWalkSettings;
+
+/**
+ * Test suite for XWalkSettings.edit().
+ */
+public class XWalkSettingsEditorTest extends XWalkViewInternalTestBase {
+    private static final String NO_LOCAL_STORAGE = "No localStorage";
+    private static final String HAS_LOCAL_STORAGE = "Has localStorage";
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    @SmallTest
+    @Feature({"XWalkViewInternal", "Preferences"})
+    public void testCommitAndApply() throws Throwable {
+        final String url = UrlUtils.getTestFileUrl("xwalkview/localStorage.html");
+        XWalkSettings settings = getXWalkSettingsOnUiThreadByContent(getXWalkView());
+
+        settings.edit()
+                .setJavaScriptEnabled(true)
+                .setDomStorageEnabled(true)
+                .setDatabaseEnabled(false)
+                .commit();
+        assertTrue(settings.getJavaScriptEnabled());
+        assertTrue(settings.getDomStorageEnabled());
+        assertFalse(settings.getDatabaseEnabled());
+        loadUrlSync(url);
+        assertEquals(HAS_LOCAL_STORAGE, getTitleOnUiThread());
+
+        // apply() doesn't wait for native, but the sync is queued on the UI
+        // thread before the next load.
+        settings.edit()
+                .setDomStorageEnabled(false)
+                .setDatabaseEnabled(true)
+                .apply();
+        assertFalse(settings.getDomStorageEnabled());
+        assertTrue(settings.getDatabaseEnabled());
+        loadUrlSync(url);
+        assertEquals(NO_LOCAL_STORAGE, getTitleOnUiThread());
+    }
+
+    @SmallTest
+    @Feature({"XWalkViewInternal", "Preferences"})
+    public void testCommitAfterApplyWaitsForSync() throws Throwable {
+        final String url = UrlUtils.getTestFileUrl("xwalkview/localStorage.html");
+        final XWalkSettings settings = getXWalkSettingsOnUiThreadByContent(getXWalkView());
+        settings.edit()
+                .setJavaScriptEnabled(true)
+                .setDomStorageEnabled(true)
+                .commit();
+
+        // Hold the UI thread so that the sync posted by apply() stays pending.
+        final CountDownLatch uiBlocked = new CountDownLatch(1);
+        final CountDownLatch releaseUi = new CountDownLatch(1);
+        ThreadUtils.postOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                uiBlocked.countDown();
+                try {
+                    releaseUi.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                }
+            }
+        });
+        assertTrue(uiBlocked.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        settings.edit().setDomStorageEnabled(false).apply();
+
+        final CountDownLatch committed = new CountDownLatch(1);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                settings.edit().setDatabaseEnabled(true).commit();
+                committed.countDown();
+            }
+        }).start();
+
+        // commit() must wait for the pending sync rather than return.
+        assertFalse(committed.await(500, TimeUnit.MILLISECONDS));
+        releaseUi.countDown();
+        assertTrue(committed.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(settings.getDomStorageEnabled());
+        assertTrue(settings.getDatabaseEnabled());
+        loadUrlSync(url);
+        assertEquals(NO_LOCAL_STORAGE, getTitleOnUiThread());
+    }
+}
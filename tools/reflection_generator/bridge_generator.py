@@ -22,10 +22,10 @@ class BridgeGenerator(CodeGenerator):
     bridge_class_template = Template("""\
 ${PACKAGE_SECTION}
 ${IMPORT_SECTION}
-public class ${CLASS_NAME} extends ${PARENT_CLASS} {
+public class ${CLASS_NAME} extends ${PARENT_CLASS}${CLASS_IMPLEMENTS} {
     private XWalkCoreBridge coreBridge;
     private Object wrapper;
-
+${DIRECT_FIELD}
     public Object getWrapper() {
         return wrapper;
     }
@@ -40,6 +40,8 @@ ${REFLECTION_INIT_SECTION}}
              'IMPORT_SECTION': self.GenerateImportRules(),
              'CLASS_NAME': self._java_data.bridge_name,
              'PARENT_CLASS': self._java_data.class_name,
+             'CLASS_IMPLEMENTS': self.GenerateClassImplements(),
+             'DIRECT_FIELD': self.GenerateDirectField(),
              'INTERNAL_CONSTRUCTOR': self.GenerateInternalConstructor(),
              'ENUMS_SECTION': self.GenerateEnums(),
              'METHODS_SECTION': self.GenerateMethods(),
@@ -51,6 +53,20 @@ ${REFLECTION_INIT_SECTION}}
       return ''
     return 'package ' + self._java_data.package_name + ";\n"
 
+  def HasDirectInterfaces(self):
+    return not self._java_data.HasNoInstanceAnnotation()
+
+  def GenerateClassImplements(self):
+    if not self.HasDirectInterfaces():
+      return ''
+    return ' implements %s' % self._java_data.bridge_interface_name
+
+  def GenerateDirectField(self):
+    if not self.HasDirectInterfaces():
+      return ''
+    return '    private %s directWrapper;\n' % (
+        self._java_data.wrapper_interface_name)
+
   def GenerateEnums(self):
     enum_template = Template("""\
     private ReflectMethod ${ENUM_VALUE_OF_METHOD} = new ReflectMethod();
@@ -133,12 +149,28 @@ Object.class);
                 'PARAMS': method._bridge_params_declare_for_wrapper}
       ref_methods_string += ref_method_template.substitute(value)
 
+    direct_init_string = ''
+    if self.HasDirectInterfaces():
+      direct_init_template = Template("""
+        ReflectMethod getDirectInterfaceMethod =
+                new ReflectMethod(null, wrapper, "getDirectInterface");
+        if (!getDirectInterfaceMethod.isNull()) {
+            Object direct = getDirectInterfaceMethod.invoke();
+            if (direct instanceof ${WRAPPER_INTERFACE}) {
+                directWrapper = (${WRAPPER_INTERFACE}) direct;
+            }
+        }
+""")
+      value = {'WRAPPER_INTERFACE': self._java_data.wrapper_interface_name}
+      direct_init_string = direct_init_template.substitute(value)
+
     ref_init_template = Template("""\
     void reflectionInit() {
-${REF_INIT}
+${REF_INIT}${DIRECT_INIT}
 ${REF_METHODS}    }
 """)
 
     value = {'REF_INIT': ref_init_string,
+             'DIRECT_INIT': direct_init_string,
              'REF_METHODS': ref_methods_string}
     return ref_init_template.substitute(value)
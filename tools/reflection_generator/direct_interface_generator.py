@@ -0,0 +1,62 @@
+#!/usr/bin/env python
+
+# Copyright (c) 2015 Intel Corporation. All rights reserved.
+# Use of this source code is governed by a BSD-style license that can be
+# found in the LICENSE file.
+
+from string import Template
+
+from code_generator import CodeGenerator
+
+class DirectInterfaceGenerator(CodeGenerator):
+  """Generator class that generates the interfaces used to call between
+     bridge and wrapper without reflection. They are compiled on both sides,
+     so the calls are only direct when both share a class loader, i.e. in
+     embedded mode.
+  """
+  BRIDGE = 'bridge'
+  WRAPPER = 'wrapper'
+
+  def __init__(self, java_data, class_loader, side):
+    super(DirectInterfaceGenerator, self).__init__(java_data, class_loader)
+    self._side = side
+
+  def RunTask(self):
+    if self._side == DirectInterfaceGenerator.BRIDGE:
+      self._generated_class_name = self._java_data.bridge_interface_name
+    else:
+      self._generated_class_name = self._java_data.wrapper_interface_name
+    self._generated_code = self.GenerateInterface()
+
+  def GenerateInterface(self):
+    interface_template = Template("""\
+${PACKAGE_SECTION}
+${IMPORT_SECTION}
+/**
+ * ${DOC}
+ */
+public interface ${INTERFACE_NAME} {
+${METHOD_SECTION}}
+""")
+    if self._side == DirectInterfaceGenerator.BRIDGE:
+      doc = 'Calls from %s to %s, available in embedded mode.' % (
+          self._java_data.wrapper_name, self._java_data.bridge_name)
+    else:
+      doc = 'Calls from %s to %s, available in embedded mode.' % (
+          self._java_data.bridge_name, self._java_data.wrapper_name)
+    value = {'PACKAGE_SECTION': 'package %s;\n' % self._java_data.package_name,
+             'IMPORT_SECTION': self.GenerateImportRules(),
+             'DOC': doc,
+             'INTERFACE_NAME': self._generated_class_name,
+             'METHOD_SECTION': self.GenerateMethods()}
+    return interface_template.substitute(value)
+
+  def GenerateMethods(self):
+    methods_string = ''
+    if self._side == DirectInterfaceGenerator.BRIDGE:
+      for method in self._java_data.GetDirectBridgeMethods():
+        methods_string += method.GenerateBridgeInterfaceMethod()
+    else:
+      for method in self._java_data.GetDirectWrapperMethods():
+        methods_string += method.GenerateWrapperInterfaceMethod()
+    return methods_string
@@ -375,6 +375,34 @@ class InternalJavaFileData(object):
       enum_object = Enum(enum_name, enum_content, enum_doc)
       self._enums[enum_name] = enum_object
 
+  @property
+  def bridge_interface_name(self):
+    return '%sInterface' % self._bridge_name
+
+  @property
+  def wrapper_interface_name(self):
+    return '%sWrapperInterface' % self._wrapper_name
+
+  def GetDirectBridgeMethods(self):
+    """Methods the wrapper calls on the bridge through the bridge interface."""
+    return self.FilterDirectMethods([method for method in self._methods
+        if method.IsDirectCallSupported() and not method.is_abstract])
+
+  def GetDirectWrapperMethods(self):
+    """Methods the bridge calls on the wrapper through the wrapper interface."""
+    return self.FilterDirectMethods([method for method in self._methods
+        if method.IsDirectCallSupported()])
+
+  def FilterDirectMethods(self, methods):
+    # Overloads only differing by internal types would clash once those are
+    # declared as Object, they are left to reflection.
+    signatures = {}
+    for method in methods:
+      signature = method.GetDirectSignature()
+      signatures[signature] = signatures.get(signature, 0) + 1
+    return [method for method in methods
+        if signatures[method.GetDirectSignature()] == 1]
+
   def HasNoInstanceAnnotation(self):
     return self._class_annotations.get(
         InternalJavaFileData.ANNOTATION_NO_INSTANCE, False)
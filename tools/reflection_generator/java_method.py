@@ -415,14 +415,156 @@ class Method(object):
   def GenerateMethodDeclareName(self):
     name = self.method_name
     for param_name in self.params:
-      # Remove modifier and generic type.
+      # Remove modifier and generic type, arrays can't be in identifiers.
       name += ConvertClassExpressionToClassType(
-          self.params[param_name]).replace('.class', '')
+          self.params[param_name]).replace('.class', '').replace('[]', 'Array')
     if self._is_constructor:
       return '%sConstructor' % name
     else:
       return '%sMethod' % name
 
+  def IsDirectCallSupported(self):
+    """ Whether the method can be called through the generated direct
+        interfaces in embedded mode. Generic types of internal classes,
+        like ValueCallback<XWalkNavigationItemInternal>, and enum return
+        values are still left to reflection.
+    """
+    if self._is_constructor or self._is_static:
+      return False
+    if self._method_return in self._class_java_data.enums:
+      return False
+    for param_name in self._typed_params:
+      typed_param = self._typed_params[param_name]
+      if (typed_param.contains_internal_class and
+          not self.IsInternalClass(self._params[param_name])):
+        return False
+    return True
+
+  def IsDirectTypedParam(self, param_type):
+    """ Internal classes and enums are passed as Object through the direct
+        interfaces, as the other side only knows its own types for them.
+    """
+    return (self.IsInternalClass(param_type) or
+        param_type in self._class_java_data.enums)
+
+  def GetDirectSignature(self):
+    """ The erased signature of the method in the direct interfaces, used
+        to find overloads that would clash there.
+    """
+    types = []
+    for param_name in self._params:
+      param_type = self._params[param_name]
+      if self.IsDirectTypedParam(param_type):
+        types.append('Object')
+      else:
+        types.append(ConvertClassExpressionToClassType(param_type))
+    return '%s(%s)' % (self._method_name, ', '.join(types))
+
+  def GetDirectReturnType(self):
+    if self.IsInternalClass(self._method_return):
+      return 'Object'
+    return self._method_return
+
+  def GetDirectParamsDeclare(self):
+    params = []
+    for param_name in self._params:
+      param_type = self._params[param_name]
+      if self.IsDirectTypedParam(param_type):
+        params.append('Object %s' % param_name)
+      else:
+        params.append('%s %s' % (param_type, param_name))
+    return ', '.join(params)
+
+  def HasDirectBridgeCall(self):
+    return self in self._class_java_data.GetDirectBridgeMethods()
+
+  def HasDirectWrapperCall(self):
+    return self in self._class_java_data.GetDirectWrapperMethods()
+
+  def GenerateBridgeInterfaceMethod(self):
+    template = Template("""\
+    public ${RETURN_TYPE} ${NAME}Super(${PARAMS});
+
+""")
+    value = {'RETURN_TYPE': self.GetDirectReturnType(),
+             'NAME': self._method_name,
+             'PARAMS': self.GetDirectParamsDeclare()}
+    return template.substitute(value)
+
+  def GenerateWrapperInterfaceMethod(self):
+    template = Template("""\
+    public ${RETURN_TYPE} ${NAME}(${PARAMS});
+
+""")
+    value = {'RETURN_TYPE': self.GetDirectReturnType(),
+             'NAME': self._method_name,
+             'PARAMS': self.GetDirectParamsDeclare()}
+    return template.substitute(value)
+
+  def GenerateBridgeDirectMethod(self):
+    """ The bridge's implementation of its direct interface. The Super
+        method already matches it unless some params are passed as Object.
+    """
+    if not self.HasDirectBridgeCall():
+      return ''
+    params_passing = []
+    needs_cast = False
+    for param_name in self._params:
+      param_type = self._params[param_name]
+      if self.IsDirectTypedParam(param_type):
+        needs_cast = True
+        bridge_type = self.FormatSingleParam(
+            param_type, param_name, ParamStringType.BRIDGE_DECLARE).split()[-2]
+        params_passing.append('(%s) %s' % (bridge_type, param_name))
+      else:
+        params_passing.append(param_name)
+    if not needs_cast:
+      return ''
+
+    template = Template("""\
+    public ${RETURN_TYPE} ${NAME}Super(${PARAMS}) {
+        ${RETURN}${NAME}Super(${PARAMS_PASSING});
+    }
+
+""")
+    value = {'RETURN_TYPE': self.GetDirectReturnType(),
+             'NAME': self._method_name,
+             'PARAMS': self.GetDirectParamsDeclare(),
+             'RETURN': '' if self._method_return == 'void' else 'return ',
+             'PARAMS_PASSING': ', '.join(params_passing)}
+    return template.substitute(value)
+
+  def GenerateWrapperDirectMethod(self):
+    """ The method of the wrapper's direct interface implementation, which
+        dispatches to the wrapper so that overrides are honored.
+    """
+    if not self.HasDirectWrapperCall():
+      return ''
+    params_passing = []
+    for param_name in self._params:
+      param_type = self._params[param_name]
+      if self.IsDirectTypedParam(param_type):
+        wrapper_type = self.FormatSingleParam(
+            param_type, param_name, ParamStringType.WRAPPER_DECLARE).split()[-2]
+        params_passing.append('(%s) %s' % (wrapper_type, param_name))
+      else:
+        params_passing.append(param_name)
+
+    template = Template("""\
+            @Override
+            public ${RETURN_TYPE} ${NAME}(${PARAMS}) {
+                ${RETURN}${CLASS_NAME}.this.${NAME}(${PARAMS_PASSING});
+            }
+
+""")
+    value = {'RETURN_TYPE': self.GetDirectReturnType(),
+             'NAME': self._method_name,
+             'PARAMS': self.GetDirectParamsDeclare(),
+             'RETURN': '' if self._method_return == 'void' else 'return ',
+             'CLASS_NAME': self._class_java_data.wrapper_name,
+             'PARAMS_PASSING': ', '.join(params_passing)}
+    return template.substitute(value)
+
   def GenerateBridgeConstructor(self):
     template = Template("""\
     public ${NAME}(${PARAMS}, Object wrapper) {
@@ -484,6 +626,7 @@ class Method(object):
     if return_is_internal:
       template = Template("""\
     public ${RETURN_TYPE} ${NAME}(${PARAMS}) {
+${DIRECT_CALL}\
         ${GENERIC_TYPE_DECLARE}${RETURN}coreBridge.getBridgeObject(\
 ${METHOD_DECLARE_NAME}.invoke(${PARAMS_PASSING}));
     }
@@ -491,6 +634,7 @@ ${METHOD_DECLARE_NAME}.invoke(${PARAMS_PASSING}));
     else :
       template = Template("""\
     public ${RETURN_TYPE} ${NAME}(${PARAMS}) {
+${DIRECT_CALL}\
         ${GENERIC_TYPE_DECLARE}${RETURN}${METHOD_DECLARE_NAME}.invoke(\
 ${PARAMS_PASSING});
     }
@@ -514,15 +658,48 @@ ${PARAMS_PASSING});
         generic_type_declare += 'final %s %sFinal = %s;\n        ' % (
             typed_param.expression, param_name, param_name)
 
+    direct_call = ''
+    if self.HasDirectWrapperCall():
+      call = 'directWrapper.%s(%s)' % (
+          self.method_name, self._bridge_params_pass_to_wrapper)
+      if return_is_internal:
+        call = 'coreBridge.getBridgeObject(%s)' % call
+      direct_call = self.GenerateDirectCall('directWrapper', call,
+          return_statement if return_is_internal else 'return')
+
     value = {'RETURN_TYPE': self.method_return,
              'NAME': self.method_name,
              'METHOD_DECLARE_NAME': self._method_declare_name,
              'PARAMS': self._bridge_params_declare,
              'RETURN': return_statement,
+             'DIRECT_CALL': direct_call,
              'GENERIC_TYPE_DECLARE': generic_type_declare,
              'PARAMS_PASSING': self._bridge_params_pass_to_wrapper}
     return template.substitute(value)
 
+  def GenerateDirectCall(self, direct_name, call, return_statement):
+    """ The statement calling through the direct interface when the other
+        side shares our class loader, falling through to reflection if not.
+    """
+    if self._method_return == 'void':
+      template = Template("""\
+        if (${DIRECT} != null) {
+            ${CALL};
+            return;
+        }
+""")
+      return_statement = ''
+    else:
+      template = Template("""\
+        if (${DIRECT} != null) {
+            ${RETURN} ${CALL};
+        }
+""")
+    value = {'DIRECT': direct_name,
+             'CALL': call,
+             'RETURN': return_statement}
+    return template.substitute(value)
+
   def GenerateBridgeSuperMethod(self):
     no_return_value = self._method_return == 'void'
     return_is_internal = self.IsInternalClass(self._method_return)
@@ -702,6 +879,7 @@ XWalkCoreWrapper.getInstance();
       template = Template("""\
 ${DOC}
     public ${RETURN_TYPE} ${NAME}(${PARAMS}) {
+${DIRECT_CALL}\
         return (${RETURN_TYPE}) coreWrapper.getWrapperObject(\
 ${METHOD_DECLARE_NAME}.invoke(${PARAMS_PASSING}));
     }
@@ -710,6 +888,7 @@ ${METHOD_DECLARE_NAME}.invoke(${PARAMS_PASSING}));
       template = Template("""\
 ${DOC}
     public ${RETURN_TYPE} ${NAME}(${PARAMS}) {
+${DIRECT_CALL}\
         if (${METHOD_DECLARE_NAME}.isNull() &&
                 XWalkCoreWrapper.reserveReflectMethod(${METHOD_DECLARE_NAME})) {
             ${METHOD_DECLARE_NAME}.setArguments(${PARAMS_RESERVING});
@@ -722,6 +901,7 @@ ${DOC}
       template = Template("""\
 ${DOC}
     public ${RETURN_TYPE} ${NAME}(${PARAMS}) {
+${DIRECT_CALL}\
         ${RETURN}${METHOD_DECLARE_NAME}.invoke(${PARAMS_PASSING});
     }
 """)
@@ -743,8 +923,18 @@ ${DOC}
       else:
         params_reserving.append(param)
 
+    direct_call = ''
+    if not self.is_abstract and self.HasDirectBridgeCall():
+      call = 'directBridge.%sSuper(%s)' % (
+          self.method_name, self._wrapper_params_pass_to_bridge)
+      if return_is_internal:
+        call = 'coreWrapper.getWrapperObject(%s)' % call
+      direct_call = self.GenerateDirectCall('directBridge', call,
+          return_state if return_is_internal else 'return')
+
     value = {'RETURN_TYPE': return_type,
              'RETURN': return_state,
+             'DIRECT_CALL': direct_call,
              'DOC': self.GenerateDoc(self.method_doc),
              'NAME': self.method_name,
              'PARAMS': re.sub(r'ValueCallback<([A-Za-z]+)Internal>',
@@ -779,10 +969,11 @@ ${DOC}
     elif self._is_static:
       return self.GenerateBridgeStaticMethod()
     else:
-      return '%s\n%s\n%s\n%s\n' % (
+      return '%s\n%s\n%s\n%s%s\n' % (
           self.GenerateBridgeOverrideMethod(),
           self.GenerateBridgeWrapperMethod(),
           self.GenerateBridgeSuperMethod(),
+          self.GenerateBridgeDirectMethod(),
           '    private ReflectMethod %s = \
 new ReflectMethod(null, null, "%s");\n' %
               (self._method_declare_name, self._method_name))
@@ -10,6 +10,7 @@ import shutil
 import sys
 
 from bridge_generator import BridgeGenerator
+from direct_interface_generator import DirectInterfaceGenerator
 from interface_generator import InterfaceGenerator
 from java_class import JavaClassLoader
 from string import Template
@@ -26,6 +27,9 @@ CLASSES_TO_BE_PROCESS = [
     'XWalkNavigationHistoryInternal',
     'XWalkJavascriptResultHandlerInternal',
     'XWalkJavascriptResultInternal',
+    'XWalkStartupTracerInternal',
+    'XWalkViewPoolInternal',
+    'XWalkInterceptCacheInternal',
 ]
 
 REFLECTION_HERLPER = [
@@ -40,6 +44,9 @@ BRIDGE_PACKAGE = 'org.xwalk.core.internal'
 
 bridge_path = ''
 wrapper_path = ''
+# Where the wrapper side copy of the direct interfaces is placed. It is only
+# compiled against, the interfaces are packaged with the bridge.
+wrapper_stub_path = ''
 
 def PerformSerialize(output_path, generator):
   file_name = generator.GetGeneratedClassFileName()
@@ -67,6 +74,21 @@ def GenerateJavaBindingClass(input_dir):
       wrapper_generator = WrapperGenerator(java_data, class_loader)
       wrapper_generator.RunTask()
       PerformSerialize(wrapper_path, wrapper_generator)
+      if not java_data.HasNoInstanceAnnotation():
+        GenerateDirectInterfaces(java_data, class_loader)
+
+
+def GenerateDirectInterfaces(java_data, class_loader):
+  # The interfaces are only packaged with the bridge. The wrapper compiles
+  # against a copy of them, and only uses them when the bridge is loaded by
+  # its own class loader.
+  for side in [DirectInterfaceGenerator.BRIDGE,
+               DirectInterfaceGenerator.WRAPPER]:
+    generator = DirectInterfaceGenerator(java_data, class_loader, side)
+    generator.RunTask()
+    PerformSerialize(bridge_path, generator)
+    if wrapper_stub_path:
+      PerformSerialize(wrapper_stub_path, generator)
 
 
 def GenerateJavaReflectClass(input_dir):
@@ -125,6 +147,10 @@ This script can generate bridge and wrap source files for given directory.
   option_parser.add_option('--wrapper-output',
                            help=('Output directory where the wrap code is '
                                  'placed.'))
+  option_parser.add_option('--wrapper-stub-output',
+                           help=('Output directory where the copy of the '
+                                 'bridge interfaces the wrap code is '
+                                 'compiled against is placed.'))
   option_parser.add_option('--stamp', help='the file to touch on success.')
   option_parser.add_option('--target-arch', help='Target Architecture')
   option_parser.add_option('--sdk-version', help='API Version')
@@ -143,6 +169,9 @@ This script can generate bridge and wrap source files for given directory.
     shutil.rmtree(options.bridge_output)
   if os.path.isdir(options.wrapper_output):
     shutil.rmtree(options.wrapper_output)
+  if (options.wrapper_stub_output and
+      os.path.isdir(options.wrapper_stub_output)):
+    shutil.rmtree(options.wrapper_stub_output)
 
   global bridge_path
   bridge_path = os.path.join(options.bridge_output,
@@ -154,6 +183,12 @@ This script can generate bridge and wrap source files for given directory.
                               os.path.sep.join(WRAPPER_PACKAGE.split('.')))
   os.makedirs(wrapper_path)
 
+  if options.wrapper_stub_output:
+    global wrapper_stub_path
+    wrapper_stub_path = os.path.join(options.wrapper_stub_output,
+                                     os.path.sep.join(BRIDGE_PACKAGE.split('.')))
+    os.makedirs(wrapper_stub_path)
+
   if options.input_dir:
     GenerateJavaBindingClass(options.input_dir)
     GenerateJavaReflectClass(options.input_dir)
@@ -32,7 +32,7 @@ ${FIELDS_SECTION}
 ${ENUMS_SECTION}
     private XWalkCoreWrapper coreWrapper;
     private Object bridge;
-
+${DIRECT_SECTION}
     Object getBridge() {
         return bridge;
     }
@@ -45,6 +45,12 @@ ${REFLECTION_SECTION}
 
     import_string = self.GenerateImportRules()
     import_string += "import java.util.ArrayList;\n"
+    if self.HasDirectInterfaces():
+      import_string += "\n"
+      for interface in [self._java_data.bridge_interface_name,
+                        self._java_data.wrapper_interface_name]:
+        import_string += "import %s.%s;\n" % (
+            self._java_data.package_name, interface)
 
     value = {'PACKAGE_SECTION': self.GeneratePackage(),
              'IMPORT_SECTION': import_string,
@@ -54,6 +60,7 @@ ${REFLECTION_SECTION}
              'CLASS_EXTENDS': self.GenerateClassExtends(),
              'CLASS_IMPLEMENTS': self.GenerateClassImplements(),
              'ENUMS_SECTION': self.GenerateEnums(),
+             'DIRECT_SECTION': self.GenerateDirectSection(),
              'FIELDS_SECTION': self.GenerateFields(),
              'INTERNALLY_CONSTRUCOR_SECTION':
                   self.GenerateInternallyConstructor(),
@@ -110,6 +117,31 @@ ${DOC}
 
     return fields_string
 
+  def HasDirectInterfaces(self):
+    return not self._java_data.HasNoInstanceAnnotation()
+
+  def GenerateDirectSection(self):
+    if not self.HasDirectInterfaces():
+      return ''
+
+    direct_template = Template("""\
+    private ${BRIDGE_INTERFACE} directBridge;
+
+    Object getDirectInterface() {
+        if (!XWalkCoreWrapper.getInstance().isDirectCallAvailable()) return null;
+
+        return new ${WRAPPER_INTERFACE}() {
+${METHODS}        };
+    }
+""")
+    methods_string = ''
+    for method in self._java_data.GetDirectWrapperMethods():
+      methods_string += method.GenerateWrapperDirectMethod()
+    value = {'BRIDGE_INTERFACE': self._java_data.bridge_interface_name,
+             'WRAPPER_INTERFACE': self._java_data.wrapper_interface_name,
+             'METHODS': methods_string}
+    return direct_template.substitute(value)
+
   def GenerateEnums(self):
     enum_template = Template("""\
 ${DOC}
@@ -224,14 +256,26 @@ paramTypes);
                 'PARAMS': method._wrapper_params_declare_for_bridge}
       ref_methods_string += ref_method_template.substitute(value)
 
+    direct_init_string = ''
+    if self.HasDirectInterfaces():
+      direct_init_template = Template("""
+        if (coreWrapper.isDirectCallAvailable()
+                && bridge instanceof ${BRIDGE_INTERFACE}) {
+            directBridge = (${BRIDGE_INTERFACE}) bridge;
+        }
+""")
+      value = {'BRIDGE_INTERFACE': self._java_data.bridge_interface_name}
+      direct_init_string = direct_init_template.substitute(value)
+
     ref_init_template = Template("""\
     void reflectionInit() {
         XWalkCoreWrapper.initEmbeddedMode();
 
-${REF_INIT}
+${REF_INIT}${DIRECT_INIT}
 ${REF_METHODS}    }
 """)
 
     value = {'REF_INIT': ref_init_string,
+             'DIRECT_INIT': direct_init_string,
              'REF_METHODS': ref_methods_string}
     return ref_init_template.substitute(value)
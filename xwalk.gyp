@@ -98,6 +98,8 @@
         'runtime/browser/android/net/android_protocol_handler.h',
         'runtime/browser/android/net/android_stream_reader_url_request_job.cc',
         'runtime/browser/android/net/android_stream_reader_url_request_job.h',
+        'runtime/browser/android/net/asset_file_input_stream.cc',
+        'runtime/browser/android/net/asset_file_input_stream.h',
         'runtime/browser/android/net/input_stream.h',
         'runtime/browser/android/net/input_stream_impl.cc',
         'runtime/browser/android/net/input_stream_impl.h',
@@ -140,6 +142,8 @@
         'runtime/browser/android/xwalk_icon_helper.h',
         'runtime/browser/android/xwalk_request_interceptor.cc',
         'runtime/browser/android/xwalk_request_interceptor.h',
+        'runtime/browser/android/xwalk_url_filter.cc',
+        'runtime/browser/android/xwalk_url_filter.h',
         'runtime/browser/android/xwalk_settings.cc',
         'runtime/browser/android/xwalk_view_delegate.cc',
         'runtime/browser/android/xwalk_view_delegate.h',
@@ -348,6 +352,7 @@
         }],
         ['OS=="android"',{
           'dependencies':[
+            '../third_party/re2/re2.gyp:re2',
             'xwalk_core_jar_jni',
             'xwalk_core_native_jni',
           ],